@@ -0,0 +1,24 @@
+package org.babinkuk.reactive;
+
+import org.babinkuk.config.MessageCatalog;
+import org.babinkuk.config.MessagePool;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+/**
+ * reactive (WebFlux + R2DBC) variant of the employee api
+ * same /employees contract and messages as the servlet application
+ *
+ * @author BabinKuk
+ *
+ */
+@SpringBootApplication
+@Import({ MessageCatalog.class, MessagePool.class })
+public class ReactiveApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveApplication.class, args);
+	}
+
+}
@@ -0,0 +1,38 @@
+package org.babinkuk.reactive.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.r2dbc.connectionfactory.init.ConnectionFactoryInitializer;
+import org.springframework.data.r2dbc.connectionfactory.init.ResourceDatabasePopulator;
+
+import io.r2dbc.spi.ConnectionFactory;
+
+/**
+ * runs employee.r2dbc.init-scripts on startup (in-memory databases, boot 2.3 has no R2DBC initialization)
+ *
+ * @author BabinKuk
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "employee.r2dbc.init-scripts")
+public class SchemaConfig {
+
+	@Bean
+	public ConnectionFactoryInitializer initializer(ConnectionFactory connectionFactory,
+			ResourceLoader resourceLoader,
+			@Value("${employee.r2dbc.init-scripts}") String[] locations) {
+		ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+		for (String location : locations) {
+			populator.addScript(resourceLoader.getResource(location.trim()));
+		}
+
+		ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
+		initializer.setConnectionFactory(connectionFactory);
+		initializer.setDatabasePopulator(populator);
+		return initializer;
+	}
+
+}
@@ -0,0 +1,234 @@
+package org.babinkuk.reactive.controller;
+
+import static org.babinkuk.controller.Api.EMPLOYEES;
+import static org.babinkuk.controller.Api.ROOT;
+
+import java.util.List;
+
+import javax.validation.Valid;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.common.ApiResponse;
+import org.babinkuk.common.EntityTags;
+import org.babinkuk.common.PageCursor;
+import org.babinkuk.config.MessageCatalog;
+import org.babinkuk.config.MessagePool;
+import org.babinkuk.exception.ObjectException;
+import org.babinkuk.exception.ObjectNotFoundException;
+import org.babinkuk.exception.ObjectValidationException;
+import org.babinkuk.reactive.service.EmployeeService;
+import org.babinkuk.reactive.validator.EmployeeValidator;
+import org.babinkuk.validator.ActionType;
+import org.babinkuk.vo.EmployeeVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * same /employees contract as the servlet EmployeeController (list, get, add, update, delete)
+ * handlers return publishers, no request thread waits on the database
+ *
+ * @author BabinKuk
+ *
+ */
+@RestController
+@RequestMapping(ROOT + EMPLOYEES)
+public class EmployeeController {
+
+	private final Logger log = LogManager.getLogger(getClass());
+
+	public static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
+	public static final String HEADER_PAGE_SIZE = "X-Page-Size";
+
+	private static final String VERSION_MISMATCH = "error_code_employee_version_mismatch";
+
+	// pages are always ordered by id
+	private static final String SORT = "id";
+
+	private static final String CURSOR_INVALID = "error_code_cursor_invalid";
+
+	@Autowired
+	private EmployeeService employeeService;
+
+	@Autowired
+	private EmployeeValidator employeeValidator;
+
+	@Autowired
+	private MessageCatalog messageCatalog;
+
+	@Value("${employee.page.default-size:20}")
+	private int defaultPageSize;
+
+	@Value("${employee.page.max-size:100}")
+	private int maxPageSize;
+
+	/**
+	 * expose GET "/employees"
+	 * keyset page ordered by id, X-Next-Cursor is set if there may be a next page
+	 *
+	 * @param after last id of the previous page
+	 * @param cursor opaque cursor from X-Next-Cursor (takes precedence over after)
+	 * @param limit page size (capped at employee.page.max-size)
+	 * @return Mono<ResponseEntity>
+	 */
+	@GetMapping("")
+	public Mono<ResponseEntity<List<EmployeeVO>>> getAllEmployees(
+			@RequestParam(name = "after", required = false, defaultValue = "0") int after,
+			@RequestParam(name = "cursor", required = false) String cursor,
+			@RequestParam(name = "limit", required = false) Integer limit) {
+		log.debug("Called EmployeeController.getAllEmployees(after={}, limit={})", after, limit);
+
+		int from = after;
+		if (cursor != null) {
+			PageCursor pageCursor = PageCursor.decode(cursor);
+
+			// cursor of a page with another sort (servlet api)
+			if (!pageCursor.matches(SORT, false)) {
+				throw new ObjectValidationException(MessagePool.getMessage(CURSOR_INVALID));
+			}
+			from = pageCursor.getId();
+		}
+		int pageSize = (limit == null || limit < 1) ? defaultPageSize : Math.min(limit, maxPageSize);
+
+		// page is bounded (max-size), collected for the paging headers
+		return employeeService.getEmployees(from, pageSize)
+			.collectList()
+			.map(page -> {
+				HttpHeaders headers = new HttpHeaders();
+				headers.set(HEADER_PAGE_SIZE, String.valueOf(pageSize));
+
+				if (page.size() == pageSize) {
+					headers.set(HEADER_NEXT_CURSOR, PageCursor.encode(SORT, false, page.get(page.size() - 1).getId()));
+				}
+
+				return ResponseEntity.ok().headers(headers).body(page);
+			});
+	}
+
+	/**
+	 * expose GET "/employees/{employeeId}"
+	 * get employee
+	 *
+	 * @param employeeId
+	 * @return Mono<ResponseEntity> with version ETag
+	 */
+	@GetMapping("/{employeeId}")
+	public Mono<ResponseEntity<EmployeeVO>> getEmployee(@PathVariable int employeeId) {
+		log.debug("Called EmployeeController.getEmployee(employeeId={})", employeeId);
+
+		return employeeService.findById(employeeId)
+			.map(employeeVO -> ResponseEntity.ok().eTag(EntityTags.of(employeeVO.getVersion())).body(employeeVO));
+	}
+
+	/**
+	 * expose POST "/employees"
+	 * add new employee
+	 *
+	 * @param employeeVO
+	 * @return
+	 */
+	@PostMapping("")
+	public Mono<ResponseEntity<ApiResponse>> addEmployee(
+			@Valid @RequestBody EmployeeVO employeeVO) {
+		log.debug("Called EmployeeController.addEmployee({})", employeeVO);
+
+		// in case id is passed in json, set to 0
+		// this is to force a save of new item ... instead of update
+		employeeVO.setId(0);
+
+		return employeeValidator.validate(employeeVO, ActionType.CREATE)
+			.flatMap(employeeService::save)
+			.map(ResponseEntity::ok);
+	}
+
+	/**
+	 * expose PUT "/employees"
+	 * update employee
+	 * with If-Match only if the stored version matches (412 otherwise)
+	 * the update is made against the version read here, a concurrent update fails it (409, 412 with If-Match)
+	 *
+	 * @param employeeVO
+	 * @param ifMatch
+	 * @return
+	 */
+	@PutMapping("")
+	public Mono<ResponseEntity<ApiResponse>> updateEmployee(
+			@Valid @RequestBody EmployeeVO employeeVO,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		log.debug("Called EmployeeController.updateEmployee({})", employeeVO);
+
+		return employeeService.findById(employeeVO.getId()).flatMap(current -> {
+			if (ifMatch != null && !EntityTags.matches(ifMatch, current.getVersion())) {
+				return Mono.just(new ApiResponse(HttpStatus.PRECONDITION_FAILED, messageCatalog.format(VERSION_MISMATCH, employeeVO.getId())).toEntity());
+			}
+			employeeVO.setVersion(current.getVersion());
+
+			return employeeValidator.validate(employeeVO, ActionType.UPDATE)
+				.flatMap(employeeService::save)
+				.map(ResponseEntity::ok);
+		});
+	}
+
+	/**
+	 * expose DELETE "/{employeeId}"
+	 *
+	 * @param employeeId
+	 * @return
+	 */
+	@DeleteMapping("/{employeeId}")
+	public Mono<ResponseEntity<ApiResponse>> deleteEmployee(
+			@PathVariable int employeeId) {
+		log.debug("Called EmployeeController.deleteEmployee(employeeId={})", employeeId);
+
+		return employeeValidator.objectExists(employeeId)
+			.then(employeeService.delete(employeeId))
+			.map(ResponseEntity::ok);
+	}
+
+	@ExceptionHandler
+	public ResponseEntity<ApiResponse> handleException(ObjectException exc) {
+
+		return new ApiResponse(HttpStatus.INTERNAL_SERVER_ERROR, exc.getMessage()).toEntity();
+	}
+
+	@ExceptionHandler
+	public ResponseEntity<ApiResponse> handleException(OptimisticLockingFailureException exc, ServerHttpRequest request) {
+
+		// concurrent update committed first (412 for conditional requests)
+		HttpStatus status = request.getHeaders().containsKey(HttpHeaders.IF_MATCH) ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+		return new ApiResponse(status, exc.getMessage()).toEntity();
+	}
+
+	@ExceptionHandler
+	public ResponseEntity<ApiResponse> handleException(ObjectNotFoundException exc) {
+
+		return new ApiResponse(HttpStatus.OK, exc.getMessage()).toEntity();
+	}
+
+	@ExceptionHandler
+	public ResponseEntity<ApiResponse> handleException(ObjectValidationException exc) {
+
+		ApiResponse apiResponse = new ApiResponse(HttpStatus.BAD_REQUEST, exc.getMessage());
+		apiResponse.setErrors(exc.getValidationErrors());
+		return apiResponse.toEntity();
+	}
+
+}
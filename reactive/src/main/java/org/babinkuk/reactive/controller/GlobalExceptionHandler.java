@@ -0,0 +1,39 @@
+package org.babinkuk.reactive.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.config.MessageCatalog;
+import org.babinkuk.controller.BindingResultApiResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+/**
+ * bean validation errors (@Valid), same response as the servlet GlobalExceptionHandler
+ *
+ * @author BabinKuk
+ *
+ */
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+	private final Logger log = LogManager.getLogger(getClass());
+
+	@Autowired
+	private MessageCatalog messageCatalog;
+
+	@ExceptionHandler
+	public ResponseEntity<Object> handleException(WebExchangeBindException exception) {
+
+		log.warn("Handling WebExchangeBindException", exception);
+		BindingResultApiResponse apiResponse = new BindingResultApiResponse(exception.getBindingResult(), messageCatalog);
+		apiResponse.setMessage(messageCatalog.get("validation_failed"));
+		apiResponse.setStatus(HttpStatus.BAD_REQUEST);
+
+		return new ResponseEntity<Object>(apiResponse, HttpStatus.BAD_REQUEST);
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.babinkuk.reactive.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * employee ids from the employee_seq table, same blocks as the pooled generator of the jpa entity
+ * (next_val is read and increased by 50, the block ends at the value read), so both applications
+ * can insert into the same database without colliding ids
+ *
+ * @author BabinKuk
+ *
+ */
+@Component
+public class EmployeeIdGenerator {
+
+	private final Logger log = LogManager.getLogger(getClass());
+
+	// allocationSize of the jpa entity
+	public static final int ALLOCATION_SIZE = 50;
+
+	private static final String SELECT = "SELECT next_val FROM employee_seq FOR UPDATE";
+
+	private static final String UPDATE = "UPDATE employee_seq SET next_val = :next WHERE next_val = :value";
+
+	@Autowired
+	private DatabaseClient databaseClient;
+
+	@Autowired
+	private TransactionalOperator transactionalOperator;
+
+	// current block (next > hi: none)
+	private long next = 1;
+
+	private long hi;
+
+	/**
+	 * @return Mono<Integer> next id, a new block is allocated when the current one is used up
+	 */
+	public Mono<Integer> nextId() {
+		return Mono.defer(() -> {
+			Integer id = take();
+			return id != null ? Mono.just(id) : allocate().map(this::takeFrom);
+		});
+	}
+
+	private synchronized Integer take() {
+		return next <= hi ? Integer.valueOf((int) next++) : null;
+	}
+
+	// a block allocated while another request refilled the current one is dropped (a gap, never a reused id)
+	private synchronized int takeFrom(long blockHi) {
+		if (next > hi) {
+			hi = blockHi;
+			// hibernate starts at 1 on a table seeded with 1 (never below)
+			next = Math.max(blockHi - ALLOCATION_SIZE + 1, 1);
+			log.debug("employee ids {} .. {}", next, hi);
+		}
+		return (int) next++;
+	}
+
+	// row lock and conditional update, as the table generator of hibernate
+	private Mono<Long> allocate() {
+		return databaseClient.execute(SELECT)
+			.map((row, metadata) -> row.get(0, Long.class))
+			.one()
+			.switchIfEmpty(Mono.error(() -> new IllegalStateException("employee_seq has no row (db/employee-seq-mysql.sql)")))
+			.flatMap(value -> databaseClient.execute(UPDATE)
+				.bind("next", value + ALLOCATION_SIZE)
+				.bind("value", value)
+				.fetch()
+				.rowsUpdated()
+				// changed in between, read again
+				.filter(updated -> updated == 1)
+				.map(updated -> value))
+			.as(transactionalOperator::transactional)
+			.switchIfEmpty(Mono.defer(this::allocate));
+	}
+
+}
@@ -0,0 +1,29 @@
+package org.babinkuk.reactive.dao;
+
+import org.babinkuk.reactive.entity.Employee;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface EmployeeRepository extends ReactiveCrudRepository<Employee, Integer> {
+
+	// keyset page (id index, no offset scan)
+	@Query("SELECT * FROM employee WHERE id > :after ORDER BY id ASC LIMIT :limit")
+	public Flux<Employee> findPage(int after, int limit);
+
+	public Mono<Employee> findByEmail(String email);
+
+	// id from employee_seq (EmployeeIdGenerator), email_domain is derived by the database
+	@Modifying
+	@Query("INSERT INTO employee(id, first_name, last_name, email, version) VALUES (:id, :firstName, :lastName, :email, 0)")
+	public Mono<Integer> insert(int id, String firstName, String lastName, String email);
+
+	// versioned update as by the jpa entity (optimistic locking), 0 rows if the version has changed
+	@Modifying
+	@Query("UPDATE employee SET first_name = :firstName, last_name = :lastName, email = :email, version = version + 1 WHERE id = :id AND version = :version")
+	public Mono<Integer> update(int id, String firstName, String lastName, String email, int version);
+
+}
@@ -0,0 +1,86 @@
+package org.babinkuk.reactive.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * employee row (R2DBC), same table as the jpa entity
+ * email_domain is derived by the database, it is not mapped
+ *
+ * @author BabinKuk
+ *
+ */
+@Table("employee")
+public class Employee {
+
+	// from employee_seq (EmployeeIdGenerator), rows are inserted by EmployeeRepository.insert
+	@Id
+	@Column("id")
+	private Integer id;
+
+	@Column("first_name")
+	private String firstName;
+
+	@Column("last_name")
+	private String lastName;
+
+	@Column("email")
+	private String email;
+
+	// optimistic locking, also the ETag of the employee
+	@Version
+	@Column("version")
+	private Integer version;
+
+	public Employee() {
+		// default
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public void setFirstName(String firstName) {
+		this.firstName = firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public void setLastName(String lastName) {
+		this.lastName = lastName;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public void setEmail(String email) {
+		this.email = email;
+	}
+
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
+	@Override
+	public String toString() {
+		return "Employee [id=" + id + ", firstName=" + firstName + ", lastName=" + lastName + ", email=" + email + ", version=" + version + "]";
+	}
+
+}
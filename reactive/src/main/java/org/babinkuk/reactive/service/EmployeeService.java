@@ -0,0 +1,52 @@
+package org.babinkuk.reactive.service;
+
+import org.babinkuk.common.ApiResponse;
+import org.babinkuk.vo.EmployeeVO;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface EmployeeService {
+
+	/**
+	 * get employee page (keyset on id)
+	 *
+	 * @param after last id of the previous page (0 for the first page)
+	 * @param limit page size
+	 * @return Flux<EmployeeVO>
+	 */
+	public Flux<EmployeeVO> getEmployees(int after, int limit);
+
+	/**
+	 * get employee (by id)
+	 *
+	 * @param id
+	 * @return Mono<EmployeeVO>, ObjectNotFoundException signal if not found
+	 */
+	public Mono<EmployeeVO> findById(int id);
+
+	/**
+	 * get employee (by email)
+	 *
+	 * @param email
+	 * @return Mono<EmployeeVO>, empty if not found
+	 */
+	public Mono<EmployeeVO> findByEmail(String email);
+
+	/**
+	 * save employee (id 0 inserts, otherwise updates)
+	 *
+	 * @param employeeVO validated employee, for updates with the version it was read with
+	 * @return Mono<ApiResponse>, OptimisticLockingFailureException signal if the stored version has changed
+	 */
+	public Mono<ApiResponse> save(EmployeeVO employeeVO);
+
+	/**
+	 * delete employee
+	 *
+	 * @param id validated id
+	 * @return Mono<ApiResponse>
+	 */
+	public Mono<ApiResponse> delete(int id);
+
+}
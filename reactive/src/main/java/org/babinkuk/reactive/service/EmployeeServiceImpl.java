@@ -0,0 +1,99 @@
+package org.babinkuk.reactive.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.common.ApiResponse;
+import org.babinkuk.config.MessageCatalog;
+import org.babinkuk.exception.ObjectNotFoundException;
+import org.babinkuk.reactive.dao.EmployeeIdGenerator;
+import org.babinkuk.reactive.dao.EmployeeRepository;
+import org.babinkuk.reactive.entity.Employee;
+import org.babinkuk.vo.EmployeeVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * non-blocking employee service (R2DBC), same messages as the servlet service
+ *
+ * @author BabinKuk
+ *
+ */
+@Service
+public class EmployeeServiceImpl implements EmployeeService {
+
+	private final Logger log = LogManager.getLogger(getClass());
+
+	public static String SAVE_SUCCESS = "employee_save_success";
+	public static String DELETE_SUCCESS = "employee_delete_success";
+
+	private static final String VERSION_MISMATCH = "error_code_employee_version_mismatch";
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private EmployeeIdGenerator employeeIdGenerator;
+
+	@Autowired
+	private MessageCatalog messageCatalog;
+
+	@Override
+	public Flux<EmployeeVO> getEmployees(int after, int limit) {
+		return employeeRepository.findPage(after, limit).map(this::toVO);
+	}
+
+	@Override
+	public Mono<EmployeeVO> findById(int id) {
+		return employeeRepository.findById(id)
+			.map(this::toVO)
+			.switchIfEmpty(Mono.defer(() -> {
+				// not found
+				String message = messageCatalog.format("error_code_employee_id_not_found", id);
+				log.warn(message);
+				return Mono.error(new ObjectNotFoundException(message));
+			}));
+	}
+
+	@Override
+	public Mono<EmployeeVO> findByEmail(String email) {
+		return employeeRepository.findByEmail(email).map(this::toVO);
+	}
+
+	@Override
+	public Mono<ApiResponse> save(EmployeeVO employeeVO) {
+		log.debug("save ({})", employeeVO);
+
+		Mono<Integer> result;
+		if (employeeVO.getId() == 0) {
+			// insert, id from the same sequence as the servlet application
+			result = employeeIdGenerator.nextId()
+				.flatMap(id -> employeeRepository.insert(id, employeeVO.getFirstName(), employeeVO.getLastName(), employeeVO.getEmail()));
+		} else {
+			result = employeeRepository.update(employeeVO.getId(), employeeVO.getFirstName(), employeeVO.getLastName(), employeeVO.getEmail(), employeeVO.getVersion())
+				.flatMap(updated -> updated == 1
+					? Mono.just(updated)
+					// changed (or deleted) since it was read
+					: Mono.error(new OptimisticLockingFailureException(messageCatalog.format(VERSION_MISMATCH, employeeVO.getId()))));
+		}
+
+		return result.then(Mono.fromSupplier(() -> new ApiResponse(HttpStatus.OK, messageCatalog.get(SAVE_SUCCESS))));
+	}
+
+	@Override
+	public Mono<ApiResponse> delete(int id) {
+		log.debug("delete ({})", id);
+
+		return employeeRepository.deleteById(id)
+			.then(Mono.fromSupplier(() -> new ApiResponse(HttpStatus.OK, messageCatalog.get(DELETE_SUCCESS))));
+	}
+
+	private EmployeeVO toVO(Employee employee) {
+		return new EmployeeVO(employee.getId(), employee.getFirstName(), employee.getLastName(), employee.getEmail(), employee.getVersion());
+	}
+
+}
@@ -0,0 +1,130 @@
+package org.babinkuk.reactive.validator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.config.MessageCatalog;
+import org.babinkuk.exception.ObjectNotFoundException;
+import org.babinkuk.exception.ObjectValidationException;
+import org.babinkuk.reactive.dao.EmployeeRepository;
+import org.babinkuk.validator.ActionType;
+import org.babinkuk.validator.ValidatorCodes;
+import org.babinkuk.vo.EmployeeVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * non-blocking port of the BusinessValidator rules
+ * field rules run first (no io), the database rules (object exists, email unique) run concurrently
+ *
+ * @author BabinKuk
+ *
+ */
+@Component
+public class EmployeeValidator {
+
+	private final Logger log = LogManager.getLogger(getClass());
+
+	private static final String EMPLOYEE_ID_NOT_FOUND = "error_code_employee_id_not_found";
+
+	private static final Pattern EMAIL_PATTERN = Pattern.compile("^(.+)@(\\S+)$");
+
+	@Autowired
+	private EmployeeRepository employeeRepository;
+
+	@Autowired
+	private MessageCatalog messageCatalog;
+
+	/**
+	 * @param vo
+	 * @param action CREATE or UPDATE
+	 * @return Mono<EmployeeVO> (vo), ObjectValidationException or ObjectNotFoundException signal if invalid
+	 */
+	public Mono<EmployeeVO> validate(EmployeeVO vo, ActionType action) {
+		log.debug("Validating {} (vo={})", action, vo);
+
+		List<ValidatorCodes> codes = new ArrayList<ValidatorCodes>(4);
+		add(codes, checkStringIsBlank(vo.getFirstName(), ValidatorCodes.ERROR_CODE_FIRST_NAME_EMPTY));
+		add(codes, checkStringIsBlank(vo.getLastName(), ValidatorCodes.ERROR_CODE_LAST_NAME_EMPTY));
+		boolean emailValid = !add(codes, checkEmailSyntax(vo.getEmail()));
+
+		Mono<Boolean> exists = action == ActionType.UPDATE ? objectExists(vo.getId()) : Mono.just(true);
+		Mono<Optional<ValidatorCodes>> emailUnique = emailValid ? checkEmailUnique(vo) : Mono.just(Optional.empty());
+
+		// both lookups are subscribed at once, the first error (not found) cancels the other
+		return Mono.zip(exists, emailUnique)
+			.flatMap(checks -> {
+				checks.getT2().ifPresent(codes::add);
+
+				if (codes.isEmpty()) {
+					return Mono.just(vo);
+				}
+
+				List<String> errors = new ArrayList<String>(codes.size());
+				for (ValidatorCodes code : codes) {
+					errors.add(messageCatalog.get(code));
+				}
+				return Mono.error(new ObjectValidationException(messageCatalog.format("validation_failed", action), errors));
+			});
+	}
+
+	/**
+	 * @param id
+	 * @return Mono<Boolean> (true), ObjectNotFoundException signal if not stored
+	 */
+	public Mono<Boolean> objectExists(int id) {
+		if (id <= 0) {
+			// never stored, no lookup needed
+			return notFound(id);
+		}
+		return employeeRepository.existsById(id)
+			.flatMap(found -> found ? Mono.just(true) : notFound(id));
+	}
+
+	/**
+	 * @param vo
+	 * @return error code if another employee uses the email
+	 */
+	private Mono<Optional<ValidatorCodes>> checkEmailUnique(EmployeeVO vo) {
+		return employeeRepository.findByEmail(vo.getEmail())
+			.map(employee -> employee.getId() == vo.getId()
+				// same employee, email has not changed
+				? Optional.<ValidatorCodes>empty()
+				: Optional.of(ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST))
+			.defaultIfEmpty(Optional.empty());
+	}
+
+	private ValidatorCodes checkEmailSyntax(String email) {
+		ValidatorCodes code = checkStringIsBlank(email, ValidatorCodes.ERROR_CODE_EMAIL_EMPTY);
+		if (code != null) {
+			return code;
+		}
+		return EMAIL_PATTERN.matcher(StringUtils.upperCase(StringUtils.replace(email, " ", ""))).matches() ? null : ValidatorCodes.ERROR_CODE_EMAIL_INVALID;
+	}
+
+	private ValidatorCodes checkStringIsBlank(String str, ValidatorCodes errorCode) {
+		return StringUtils.isBlank(str) ? errorCode : null;
+	}
+
+	private boolean add(List<ValidatorCodes> codes, ValidatorCodes code) {
+		if (code == null) {
+			return false;
+		}
+		codes.add(code);
+		return true;
+	}
+
+	private <T> Mono<T> notFound(int id) {
+		String message = messageCatalog.format(EMPLOYEE_ID_NOT_FOUND, id);
+		log.warn(message);
+		return Mono.error(new ObjectNotFoundException(message));
+	}
+
+}
@@ -0,0 +1,3 @@
+-- test rows (sql.script.employee.insert) use fixed ids below 1000, the first block is 1000 .. 1049
+-- single row, the in memory database is shared by the test contexts
+INSERT INTO employee_seq (next_val) SELECT 1049 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM employee_seq);
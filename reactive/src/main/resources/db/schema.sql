@@ -0,0 +1,22 @@
+-- employee table for the reactive application, same columns as the jpa entity of the servlet application
+-- (mysql: db/*-mysql.sql of the servlet application), both can use the same database
+-- id from employee_seq (EmployeeIdGenerator), email_domain derived by the database
+CREATE TABLE IF NOT EXISTS employee (
+	id INT NOT NULL,
+	first_name VARCHAR(255),
+	last_name VARCHAR(255),
+	email VARCHAR(255),
+	email_domain VARCHAR(255) AS (LOWER(REGEXP_REPLACE(email, '^.*@', ''))),
+	version INT NOT NULL DEFAULT 0,
+	PRIMARY KEY (id),
+	CONSTRAINT uk_employee_email UNIQUE (email)
+);
+
+CREATE INDEX IF NOT EXISTS idx_employee_email_domain ON employee (email_domain);
+CREATE INDEX IF NOT EXISTS idx_employee_first_name ON employee (first_name);
+CREATE INDEX IF NOT EXISTS idx_employee_last_name ON employee (last_name);
+
+-- pooled id blocks (allocationSize 50)
+CREATE TABLE IF NOT EXISTS employee_seq (
+	next_val BIGINT
+);
@@ -0,0 +1,29 @@
+package org.babinkuk.reactive.controller;
+
+import org.babinkuk.contract.EmployeeApiContract;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * shared /employees scenarios (EmployeeApiContract) against the reactive application
+ *
+ * @author BabinKuk
+ *
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+public class EmployeeApiTest extends EmployeeApiContract {
+
+	@Autowired
+	private DatabaseClient databaseClient;
+
+	@Override
+	protected void execute(String sql) {
+		databaseClient.execute(sql).fetch().rowsUpdated().block();
+	}
+
+}
@@ -0,0 +1,101 @@
+package org.babinkuk.reactive.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.reactive.dao.EmployeeIdGenerator;
+import org.babinkuk.vo.EmployeeVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * reactive only part, same table as the jpa entity (the /employees scenarios are in EmployeeApiTest)
+ *
+ * @author BabinKuk
+ *
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class EmployeeServiceTest {
+
+	public static final Logger log = LogManager.getLogger(EmployeeServiceTest.class);
+
+	@Autowired
+	private EmployeeService employeeService;
+
+	@Autowired
+	private DatabaseClient databaseClient;
+
+	@Value("${sql.script.employee.insert}")
+	private String sqlAddEmployee;
+
+	@Value("${sql.script.employee.delete}")
+	private String sqlDeleteEmployee;
+
+	@BeforeEach
+	public void setupDatabase() {
+		log.info("BeforeEach");
+		databaseClient.execute(sqlAddEmployee).fetch().rowsUpdated().block();
+	}
+
+	@AfterEach
+	public void setupAfterTransaction() {
+		log.info("AfterEach");
+		databaseClient.execute(sqlDeleteEmployee).fetch().rowsUpdated().block();
+	}
+
+	@Test
+	void insertFromSequence() {
+		log.info("insertFromSequence");
+
+		employeeService.save(new EmployeeVO("firstName", "lastName", "emailAddress@email.hr")).block();
+		employeeService.save(new EmployeeVO("firstName2", "lastName2", "emailAddress2@EMAIL.hr")).block();
+
+		EmployeeVO first = employeeService.findByEmail("emailAddress@email.hr").block();
+		EmployeeVO second = employeeService.findByEmail("emailAddress2@EMAIL.hr").block();
+
+		// consecutive ids of one block, the block is taken from employee_seq as by the servlet application
+		assertEquals(first.getId() + 1, second.getId(), "second.getId() NOK");
+		long nextVal = databaseClient.execute("SELECT next_val FROM employee_seq")
+			.map((row, metadata) -> row.get(0, Long.class))
+			.one().block();
+		assertTrue(first.getId() > nextVal - EmployeeIdGenerator.ALLOCATION_SIZE * 2 && second.getId() <= nextVal - EmployeeIdGenerator.ALLOCATION_SIZE,
+			"id outside of the allocated block");
+
+		// email_domain derived by the database (domain filter of the servlet application)
+		String domain = databaseClient.execute("SELECT email_domain FROM employee WHERE id = :id")
+			.bind("id", second.getId())
+			.map((row, metadata) -> row.get(0, String.class))
+			.one().block();
+		assertEquals("email.hr", domain, "email_domain NOK");
+	}
+
+	@Test
+	void updateVersioned() {
+		log.info("updateVersioned");
+
+		EmployeeVO employeeVO = employeeService.findById(1).block();
+		employeeVO.setFirstName("firstNameUpdate");
+
+		// read version, increased
+		employeeService.save(employeeVO).block();
+		assertEquals(1, employeeService.findById(1).block().getVersion(), "getVersion() NOK");
+
+		// same version again: another update was committed in between
+		employeeVO.setFirstName("firstNameLost");
+		assertThrows(OptimisticLockingFailureException.class, () -> employeeService.save(employeeVO).block());
+
+		EmployeeVO current = employeeService.findById(1).block();
+		assertEquals("firstNameUpdate", current.getFirstName(), "getFirstName() NOK");
+		assertEquals(1, current.getVersion(), "getVersion() NOK");
+	}
+
+}
@@ -0,0 +1,303 @@
+package org.babinkuk.contract;
+
+import static org.babinkuk.controller.Api.EMPLOYEES;
+import static org.babinkuk.controller.Api.ROOT;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItem;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.validator.ValidatorCodes;
+import org.babinkuk.vo.EmployeeVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * /employees scenarios (list, page, get, add, update, delete) shared by the servlet and the reactive application,
+ * both run them over http against the same schema (ids from employee_seq, generated ids from 1000)
+ * a subclass starts its application and runs the sql of the test rows
+ *
+ * @author BabinKuk
+ *
+ */
+public abstract class EmployeeApiContract {
+
+	public static final Logger log = LogManager.getLogger(EmployeeApiContract.class);
+
+	public static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
+	public static final String HEADER_PAGE_SIZE = "X-Page-Size";
+
+	@Autowired
+	protected WebTestClient webTestClient;
+
+	@Autowired
+	private MessageSource messageSource;
+
+	@Value("${sql.script.employee.insert}")
+	private String sqlAddEmployee;
+
+	@Value("${sql.script.employee.delete}")
+	private String sqlDeleteEmployee;
+
+	/**
+	 * run sql on the database of the application (test rows)
+	 *
+	 * @param sql
+	 */
+	protected abstract void execute(String sql);
+
+	@BeforeEach
+	public void setupDatabase() {
+		log.info("BeforeEach");
+		execute(sqlAddEmployee);
+	}
+
+	@AfterEach
+	public void setupAfterTransaction() {
+		log.info("AfterEach");
+		execute(sqlDeleteEmployee);
+	}
+
+	@Test
+	void getAllEmployees() {
+		log.info("getAllEmployees");
+
+		// get all employees
+		webTestClient.get().uri(ROOT + EMPLOYEES)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentType(MediaType.APPLICATION_JSON)
+			.expectBody()
+			.jsonPath("$.length()").isEqualTo(1)
+			;
+
+		// add another employee
+		add(new EmployeeVO("firstName", "lastName", "emailAddress@email.hr"));
+
+		// get all employees
+		webTestClient.get().uri(ROOT + EMPLOYEES)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.length()").isEqualTo(2)
+			;
+	}
+
+	@Test
+	void getEmployeesPage() {
+		log.info("getEmployeesPage");
+
+		// add two more employees
+		add(new EmployeeVO("firstName", "lastName", "emailAddress@email.hr"));
+		add(new EmployeeVO("firstName2", "lastName2", "emailAddress2@email.hr"));
+
+		// first page
+		EntityExchangeResult<byte[]> result = webTestClient.get().uri(ROOT + EMPLOYEES + "?limit=2")
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().valueEquals(HEADER_PAGE_SIZE, "2")
+			.expectHeader().exists(HEADER_NEXT_CURSOR)
+			.expectBody()
+			.jsonPath("$.length()").isEqualTo(2)
+			.jsonPath("$[0].id").isEqualTo(1) // verify ordering by id
+			.returnResult();
+
+		String cursor = result.getResponseHeaders().getFirst(HEADER_NEXT_CURSOR);
+
+		// second (last) page
+		webTestClient.get().uri(ROOT + EMPLOYEES + "?limit=2&cursor={cursor}", cursor)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().doesNotExist(HEADER_NEXT_CURSOR)
+			.expectBody()
+			.jsonPath("$.length()").isEqualTo(1)
+			.jsonPath("$[0].firstName").isEqualTo("firstName2")
+			;
+
+		// page size over the server side maximum is capped
+		webTestClient.get().uri(ROOT + EMPLOYEES + "?limit=100000")
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().valueEquals(HEADER_PAGE_SIZE, "100")
+			;
+
+		// invalid cursor
+		webTestClient.get().uri(ROOT + EMPLOYEES + "?cursor={cursor}", "not a cursor")
+			.exchange()
+			.expectStatus().isBadRequest()
+			.expectBody()
+			.jsonPath("$.message").isEqualTo(getMessage("error_code_cursor_invalid"))
+			;
+	}
+
+	@Test
+	void getEmployee() {
+		log.info("getEmployee");
+
+		// get employee with id=1
+		webTestClient.get().uri(ROOT + EMPLOYEES + "/{id}", 1)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().valueEquals("ETag", "\"0\"")
+			.expectBody()
+			.jsonPath("$.id").isEqualTo(1)
+			.jsonPath("$.firstName").isEqualTo("firstNameStudent")
+			;
+
+		// get employee with id=2 (non existing)
+		webTestClient.get().uri(ROOT + EMPLOYEES + "/{id}", 2)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.message").isEqualTo(String.format(getMessage("error_code_employee_id_not_found"), 2))
+			;
+	}
+
+	@Test
+	void addEmployee() {
+		log.info("addEmployee");
+
+		// create employee
+		add(new EmployeeVO("firstName", "lastName", "emailAddress@email.hr"));
+
+		// additional check, id from employee_seq
+		webTestClient.get().uri(ROOT + EMPLOYEES)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.length()").isEqualTo(2)
+			.jsonPath("$[1].id").value(greaterThanOrEqualTo(1000))
+			.jsonPath("$[1].firstName").isEqualTo("firstName")
+			.jsonPath("$[1].lastName").isEqualTo("lastName")
+			.jsonPath("$[1].email").isEqualTo("emailAddress@email.hr")
+			;
+	}
+
+	@Test
+	void addEmployeeInvalid() {
+		log.info("addEmployeeInvalid");
+
+		// empty first name (bean validation)
+		webTestClient.post().uri(ROOT + EMPLOYEES)
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(new EmployeeVO("", "lastName", "emailAddress@email.hr"))
+			.exchange()
+			.expectStatus().isBadRequest()
+			.expectBody()
+			.jsonPath("$.message").isEqualTo(getMessage("validation_failed"))
+			.jsonPath("$.fieldErrors").value(hasItem(getMessage(ValidatorCodes.ERROR_CODE_FIRST_NAME_EMPTY.getMessage())))
+			;
+
+		// email of the existing employee
+		webTestClient.post().uri(ROOT + EMPLOYEES)
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(new EmployeeVO("firstName", "lastName", "firstNameStudent@babinuk.com"))
+			.exchange()
+			.expectStatus().isBadRequest()
+			.expectBody()
+			.jsonPath("$.status").isEqualTo(HttpStatus.BAD_REQUEST.name())
+			.jsonPath("$.errors").value(hasItem(getMessage(ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST.getMessage())))
+			;
+	}
+
+	@Test
+	void updateEmployee() {
+		log.info("updateEmployee");
+
+		EmployeeVO employeeVO = webTestClient.get().uri(ROOT + EMPLOYEES + "/{id}", 1)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody(EmployeeVO.class)
+			.returnResult().getResponseBody();
+		employeeVO.setFirstName("firstNameUpdate");
+
+		// stale version
+		webTestClient.put().uri(ROOT + EMPLOYEES)
+			.contentType(MediaType.APPLICATION_JSON)
+			.header("If-Match", "\"5\"")
+			.bodyValue(employeeVO)
+			.exchange()
+			.expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED)
+			.expectBody()
+			.jsonPath("$.message").isEqualTo(String.format(getMessage("error_code_employee_version_mismatch"), 1))
+			;
+
+		// current version, same email is not a duplicate
+		webTestClient.put().uri(ROOT + EMPLOYEES)
+			.contentType(MediaType.APPLICATION_JSON)
+			.header("If-Match", "\"0\"")
+			.bodyValue(employeeVO)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.message").isEqualTo(getMessage("employee_save_success"))
+			;
+
+		// additional check, version increased
+		webTestClient.get().uri(ROOT + EMPLOYEES + "/{id}", 1)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().valueEquals("ETag", "\"1\"")
+			.expectBody()
+			.jsonPath("$.firstName").isEqualTo("firstNameUpdate")
+			;
+
+		// not existing employee
+		employeeVO.setId(2);
+
+		webTestClient.put().uri(ROOT + EMPLOYEES)
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(employeeVO)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.message").isEqualTo(String.format(getMessage("error_code_employee_id_not_found"), 2))
+			;
+	}
+
+	@Test
+	void deleteEmployee() {
+		log.info("deleteEmployee");
+
+		// delete employee
+		webTestClient.delete().uri(ROOT + EMPLOYEES + "/{id}", 1)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.message").isEqualTo(getMessage("employee_delete_success"))
+			;
+
+		// delete not existing employee
+		webTestClient.delete().uri(ROOT + EMPLOYEES + "/{id}", 1)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.message").isEqualTo(String.format(getMessage("error_code_employee_id_not_found"), 1))
+			;
+	}
+
+	private void add(EmployeeVO employeeVO) {
+		webTestClient.post().uri(ROOT + EMPLOYEES)
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(employeeVO)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.message").isEqualTo(getMessage("employee_save_success"))
+			;
+	}
+
+	private String getMessage(String str) {
+		return messageSource.getMessage(str, new Object[] {}, LocaleContextHolder.getLocale());
+	}
+
+}
@@ -0,0 +1,57 @@
+package org.babinkuk.benchmark;
+
+import org.babinkuk.Application;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * boots the application (test profile, H2) once per trial
+ * and seeds the employee table with the test row (id=1)
+ * 
+ * @author BabinKuk
+ *
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+	
+	public static final String EXISTING_EMAIL = "firstNameStudent@babinuk.com";
+	
+	public static final int EXISTING_ID = 1;
+	
+	public static final int MISSING_ID = 999;
+	
+	private ConfigurableApplicationContext context;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		context = new SpringApplicationBuilder()
+				.main(Application.class).sources(Application.class)
+				.web(WebApplicationType.NONE)
+				.run("--spring.profiles.active=test",
+					"--spring.devtools.restart.enabled=false",
+					"--spring.jpa.show-sql=false",
+					"--logging.level.root=ERROR");
+		
+		JdbcTemplate jdbc = getBean(JdbcTemplate.class);
+		jdbc.execute(context.getEnvironment().getProperty("sql.script.employee.delete"));
+		jdbc.execute(context.getEnvironment().getProperty("sql.script.employee.insert"));
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (context != null) {
+			context.close();
+		}
+	}
+	
+	public <T> T getBean(Class<T> type) {
+		return context.getBean(type);
+	}
+}
@@ -0,0 +1,89 @@
+package org.babinkuk.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.babinkuk.entity.Employee;
+import org.babinkuk.mapper.EmployeeMapper;
+import org.babinkuk.vo.EmployeeVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EmployeeMapper stage (generated MapStruct implementation)
+ * 
+ * @author BabinKuk
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+	
+	@Param({"100"})
+	private int listSize;
+	
+	private EmployeeMapper mapper;
+	
+	private Employee entity;
+	
+	private EmployeeVO vo;
+	
+	private List<Employee> entityList;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		mapper = EmployeeMapper.employeeMapperInstance;
+		
+		entity = new Employee("firstName", "lastName", "employee@babinkuk.com");
+		entity.setId(1);
+		vo = new EmployeeVO("firstName", "lastName", "employee@babinkuk.com");
+		vo.setId(1);
+		
+		entityList = new ArrayList<Employee>(listSize);
+		for (int i = 0; i < listSize; i++) {
+			Employee employee = new Employee("firstName" + i, "lastName" + i, "employee" + i + "@babinkuk.com");
+			employee.setId(i + 1);
+			entityList.add(employee);
+		}
+	}
+	
+	@Benchmark
+	public EmployeeVO toVO() {
+		return mapper.toVO(entity);
+	}
+	
+	@Benchmark
+	public EmployeeVO toVODetails() {
+		return mapper.toVODetails(entity);
+	}
+	
+	@Benchmark
+	public Employee toEntityInsert() {
+		return mapper.toEntity(vo);
+	}
+	
+	@Benchmark
+	public Employee toEntityUpdate() {
+		return mapper.toEntity(vo, entity);
+	}
+	
+	@Benchmark
+	public Iterable<EmployeeVO> toVOList() {
+		return mapper.toVO(entityList);
+	}
+}
@@ -0,0 +1,94 @@
+package org.babinkuk.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.babinkuk.dao.EmployeeRepository;
+import org.babinkuk.mapper.EmployeeMapper;
+import org.babinkuk.vo.EmployeeVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * read paths: managed entities + EmployeeMapper (read-write session, as with open session in view,
+ * by id from the second-level cache after the first call) against EmployeeVO projections in a read-only transaction
+ * run with -prof gc for gc.alloc.rate.norm (bytes per operation)
+ * 
+ * @author BabinKuk
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmark {
+	
+	@Param({"100"})
+	private int rows;
+	
+	private EmployeeRepository repository;
+	
+	private EmployeeMapper mapper;
+	
+	private TransactionTemplate readWrite;
+	
+	private TransactionTemplate readOnly;
+	
+	@Setup(Level.Trial)
+	public void setup(ApplicationState state) {
+		repository = state.getBean(EmployeeRepository.class);
+		mapper = state.getBean(EmployeeMapper.class);
+		
+		readWrite = new TransactionTemplate(state.getBean(PlatformTransactionManager.class));
+		readOnly = new TransactionTemplate(state.getBean(PlatformTransactionManager.class));
+		readOnly.setReadOnly(true);
+		
+		// test row is id=1
+		List<Object[]> args = new ArrayList<Object[]>(rows);
+		for (int i = 2; i <= rows; i++) {
+			args.add(new Object[] {i, "firstName" + i, "lastName" + i, "employee" + i + "@babinkuk.com"});
+		}
+		state.getBean(JdbcTemplate.class).batchUpdate("INSERT INTO employee(id,first_name,last_name,email) values(?,?,?,?)", args);
+	}
+	
+	@Benchmark
+	public EmployeeVO entityById() {
+		return readWrite.execute(status -> mapper.toVODetails(repository.findById(ApplicationState.EXISTING_ID).get()));
+	}
+	
+	@Benchmark
+	public EmployeeVO projectionById() {
+		return readOnly.execute(status -> repository.findVOById(ApplicationState.EXISTING_ID).get());
+	}
+	
+	@Benchmark
+	public EmployeeVO projectionByEmail() {
+		return readOnly.execute(status -> repository.findVOByEmail(ApplicationState.EXISTING_EMAIL).get());
+	}
+	
+	@Benchmark
+	public Iterable<EmployeeVO> entityList() {
+		return readWrite.execute(status -> mapper.toVO(repository.findAll()));
+	}
+	
+	@Benchmark
+	public Iterable<EmployeeVO> projectionList() {
+		return readOnly.execute(status -> repository.findAllVOs());
+	}
+}
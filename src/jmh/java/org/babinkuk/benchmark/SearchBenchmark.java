@@ -0,0 +1,121 @@
+package org.babinkuk.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.babinkuk.common.NgramIndex;
+import org.babinkuk.vo.EmployeeVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * employee search index (NgramIndex) query latency on generated employees
+ * the heap footprint of the built index is printed on setup (heap after gc, with and without the index)
+ *
+ * @author BabinKuk
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SearchBenchmark {
+	
+	private static final String[] SYLLABLES = {
+		"ana", "ba", "bi", "da", "do", "ja", "ko", "ku", "la", "le", "ma", "mi", "na", "ni", "pe",
+		"ra", "ri", "sa", "ti", "to", "va", "vi", "ze", "zu", "ic", "ov", "ak", "en", "ar", "in"
+	};
+	
+	private static final String[] DOMAINS = {"babinkuk.com", "example.com", "mail.hr", "company.org"};
+	
+	@Param({"1000000"})
+	private int entries;
+	
+	// prefix, word prefix, two words, typo
+	@Param({"kov", "kovi", "kovi maric", "kovvi"})
+	private String query;
+	
+	@Param({"10"})
+	private int limit;
+	
+	@Param({"0.5"})
+	private double minScore;
+	
+	private NgramIndex<EmployeeVO> index;
+	
+	private EmployeeVO updated;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(42);
+		
+		List<EmployeeVO> employees = new ArrayList<EmployeeVO>(entries);
+		for (int i = 1; i <= entries; i++) {
+			String firstName = name(random);
+			String lastName = name(random);
+			String email = firstName.toLowerCase() + "." + lastName.toLowerCase() + i + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+			employees.add(new EmployeeVO(i, firstName, lastName, email, 0));
+		}
+		
+		long withoutIndex = usedHeap();
+		long start = System.currentTimeMillis();
+		
+		index = new NgramIndex<EmployeeVO>();
+		index.putAll(employees, EmployeeVO::getId, employee -> new String[] {employee.getFirstName(), employee.getLastName(), employee.getEmail()});
+		
+		long built = System.currentTimeMillis() - start;
+		long withIndex = usedHeap();
+		
+		System.out.printf("%n%d entries, %d trigrams, %d postings, built in %d ms (%d processors)%n",
+			index.size(), index.getGramCount(), index.getPostingCount(), built, Runtime.getRuntime().availableProcessors());
+		System.out.printf("index heap: measured %d MB, estimated %d MB (employees not included)%n",
+			(withIndex - withoutIndex) >> 20, index.estimateBytes() >> 20);
+		
+		updated = employees.get(entries / 2);
+	}
+	
+	@Benchmark
+	public List<EmployeeVO> search() {
+		return index.search(query, limit, minScore);
+	}
+	
+	@Benchmark
+	public void update() {
+		// save of an existing employee (remove + put, a dead slot until compaction)
+		index.put(updated.getId(), updated, updated.getFirstName(), updated.getLastName(), updated.getEmail());
+	}
+	
+	private static String name(Random random) {
+		StringBuilder name = new StringBuilder();
+		int syllables = 2 + random.nextInt(2);
+		for (int i = 0; i < syllables; i++) {
+			name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		}
+		name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+		return name.toString();
+	}
+	
+	private static long usedHeap() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
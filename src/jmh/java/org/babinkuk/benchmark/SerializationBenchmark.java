@@ -0,0 +1,80 @@
+package org.babinkuk.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.babinkuk.common.ApiResponse;
+import org.babinkuk.vo.EmployeeVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Jackson stage, using the ObjectMapper configured by the application
+ * 
+ * @author BabinKuk
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+	
+	private ObjectMapper mapper;
+	
+	private EmployeeVO vo;
+	
+	private String voJson;
+	
+	private ApiResponse response;
+	
+	private ApiResponse errorResponse;
+	
+	@Setup(Level.Trial)
+	public void setup(ApplicationState state) throws Exception {
+		mapper = state.getBean(ObjectMapper.class);
+		
+		vo = new EmployeeVO("firstName", "lastName", "employee@babinkuk.com");
+		vo.setId(1);
+		voJson = mapper.writeValueAsString(vo);
+		
+		response = new ApiResponse(HttpStatus.OK, "Employee saving success.");
+		
+		errorResponse = new ApiResponse(HttpStatus.BAD_REQUEST, "Validation failed.");
+		errorResponse.setErrors(Arrays.asList("First name is empty.", "Last name is empty.", "Email is invalid."));
+	}
+	
+	@Benchmark
+	public String writeEmployeeVO() throws Exception {
+		return mapper.writeValueAsString(vo);
+	}
+	
+	@Benchmark
+	public EmployeeVO readEmployeeVO() throws Exception {
+		return mapper.readValue(voJson, EmployeeVO.class);
+	}
+	
+	@Benchmark
+	public String writeApiResponse() throws Exception {
+		return mapper.writeValueAsString(response);
+	}
+	
+	@Benchmark
+	public String writeApiResponseErrors() throws Exception {
+		return mapper.writeValueAsString(errorResponse);
+	}
+}
@@ -0,0 +1,123 @@
+package org.babinkuk.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.babinkuk.controller.Api;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * time to the first successful GET /employees of a new application process (test profile, H2)
+ * default, fast start (lazy initialization) and fast start with the app-cds archive
+ * runs the jar built by the faststart maven profile, build it first: mvn -Pdev,faststart clean package -DskipTests
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="StartupBenchmark"
+ *
+ * @author BabinKuk
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+	
+	private static final File FASTSTART = new File("target/faststart");
+	
+	private static final long TIMEOUT_SECONDS = 120;
+	
+	@Param({"default", "faststart", "faststart-cds"})
+	private String mode;
+	
+	private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+	
+	private Process process;
+	
+	@Benchmark
+	public int firstRequest() throws Exception {
+		int port = freePort();
+		process = new ProcessBuilder(command(port))
+			.directory(FASTSTART)
+			.redirectErrorStream(true)
+			.redirectOutput(ProcessBuilder.Redirect.appendTo(new File(FASTSTART, "startup-benchmark.log")))
+			.start();
+		
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + Api.ROOT + Api.EMPLOYEES))
+			.timeout(Duration.ofSeconds(10))
+			.GET()
+			.build();
+		
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+		while (System.nanoTime() < deadline) {
+			if (!process.isAlive()) {
+				throw new IllegalStateException("application exited with " + process.exitValue() + ", see " + FASTSTART + "/startup-benchmark.log");
+			}
+			try {
+				int status = client.send(request, BodyHandlers.discarding()).statusCode();
+				if (status == 200) {
+					return status;
+				}
+			} catch (ConnectException e) {
+				// not listening yet
+			}
+			TimeUnit.MILLISECONDS.sleep(5);
+		}
+		throw new IllegalStateException("no successful response in " + TIMEOUT_SECONDS + " s");
+	}
+	
+	// not measured
+	@TearDown(Level.Invocation)
+	public void stop() throws InterruptedException {
+		if (process != null) {
+			process.destroyForcibly().waitFor();
+			process = null;
+		}
+	}
+	
+	private List<String> command(int port) {
+		File[] jars = FASTSTART.listFiles((dir, name) -> name.endsWith("-faststart.jar"));
+		if (jars == null || jars.length != 1) {
+			throw new IllegalStateException("no faststart jar in " + FASTSTART.getAbsolutePath() + ", run mvn -Pdev,faststart clean package -DskipTests");
+		}
+		
+		List<String> command = new ArrayList<String>();
+		command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+		if ("faststart-cds".equals(mode)) {
+			command.add("-XX:SharedArchiveFile=app-cds.jsa");
+		}
+		command.add("-jar");
+		command.add(jars[0].getName());
+		command.add("--server.port=" + port);
+		command.add("--spring.jpa.show-sql=false");
+		command.add("--spring.profiles.active=" + ("default".equals(mode) ? "test" : "test,faststart"));
+		return command;
+	}
+	
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package org.babinkuk.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.babinkuk.exception.ObjectNotFoundException;
+import org.babinkuk.exception.ObjectValidationException;
+import org.babinkuk.validator.ActionType;
+import org.babinkuk.validator.BusinessValidator;
+import org.babinkuk.validator.ValidationResult;
+import org.babinkuk.validator.ValidatorCodes;
+import org.babinkuk.validator.ValidatorException;
+import org.babinkuk.validator.ValidatorHelper;
+import org.babinkuk.validator.ValidatorImpl;
+import org.babinkuk.validator.ValidatorType;
+import org.babinkuk.vo.EmployeeVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * validation stages: ValidatorImpl, ValidatorHelper and BusinessValidator,
+ * success path and exception-heavy failure path
+ * 
+ * @author BabinKuk
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+	
+	private ValidatorImpl validatorImpl;
+	
+	private ValidatorHelper validatorHelper;
+	
+	private BusinessValidator businessValidator;
+	
+	private EmployeeVO validVO;
+	
+	private EmployeeVO invalidVO;
+	
+	private EmployeeVO duplicateEmailVO;
+	
+	@Setup(Level.Trial)
+	public void setup(ApplicationState state) {
+		validatorImpl = state.getBean(ValidatorImpl.class);
+		validatorHelper = state.getBean(ValidatorHelper.class);
+		businessValidator = state.getBean(BusinessValidator.class);
+		
+		validVO = new EmployeeVO("firstName", "lastName", "new.employee@babinkuk.com");
+		invalidVO = new EmployeeVO("", "", "this is invalid email");
+		duplicateEmailVO = new EmployeeVO("firstName", "lastName", ApplicationState.EXISTING_EMAIL);
+	}
+	
+	@Benchmark
+	public EmployeeVO validatorImplCreateValid() {
+		return validatorImpl.validate(validVO, ActionType.CREATE, ValidatorType.EMPLOYEE);
+	}
+	
+	@Benchmark
+	public Object validatorImplCreateInvalid() {
+		try {
+			return validatorImpl.validate(invalidVO, ActionType.CREATE, ValidatorType.EMPLOYEE);
+		} catch (ObjectValidationException e) {
+			return e;
+		}
+	}
+	
+	@Benchmark
+	public Object validatorImplCreateEmailExists() {
+		try {
+			return validatorImpl.validate(duplicateEmailVO, ActionType.CREATE, ValidatorType.EMPLOYEE);
+		} catch (ObjectValidationException e) {
+			return e;
+		}
+	}
+	
+	@Benchmark
+	public Object validatorImplDeleteNotFound() {
+		try {
+			validatorImpl.validate(ApplicationState.MISSING_ID, ActionType.DELETE, ValidatorType.EMPLOYEE);
+			return null;
+		} catch (ObjectNotFoundException e) {
+			return e;
+		}
+	}
+	
+	@Benchmark
+	public ValidationResult validatorHelperValid() {
+		ValidationResult result = ValidationResult.current();
+		validatorHelper.validate(validVO, ActionType.CREATE, ValidatorType.EMPLOYEE, result);
+		return result;
+	}
+	
+	@Benchmark
+	public ValidationResult validatorHelperInvalid() {
+		ValidationResult result = ValidationResult.current();
+		validatorHelper.validate(invalidVO, ActionType.CREATE, ValidatorType.EMPLOYEE, result);
+		return result;
+	}
+	
+	@Benchmark
+	public ValidatorCodes emailFormatValid() {
+		return businessValidator.checkEmailFormat(validVO.getEmail(), ValidatorCodes.ERROR_CODE_EMAIL_INVALID);
+	}
+	
+	@Benchmark
+	public ValidatorCodes emailFormatInvalid() {
+		return businessValidator.checkEmailFormat(invalidVO.getEmail(), ValidatorCodes.ERROR_CODE_EMAIL_INVALID);
+	}
+	
+	@Benchmark
+	public Object emailFormatInvalidException() {
+		try {
+			businessValidator.validateEmailFormat(invalidVO.getEmail(), ValidatorCodes.ERROR_CODE_EMAIL_INVALID);
+			return invalidVO;
+		} catch (ValidatorException e) {
+			return e;
+		}
+	}
+}
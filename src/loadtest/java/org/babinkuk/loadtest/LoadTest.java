@@ -0,0 +1,212 @@
+package org.babinkuk.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.Application;
+import org.babinkuk.controller.Api;
+import org.babinkuk.service.EmployeeService;
+import org.babinkuk.vo.EmployeeVO;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * load test of the whole stack (http, controller, validation, service, hibernate, H2)
+ * boots the application on the test profile (random port), seeds employees and sends the
+ * operation mix at a fixed arrival rate (open model: requests are sent on schedule, whether or
+ * not earlier ones completed), the result is written as json (see OperationStats)
+ *
+ * mvn -Ploadtest test-compile exec:exec [-Dloadtest.args="--rate=500 --duration=60s --label=build-123"]
+ *
+ * @author BabinKuk
+ *
+ */
+public class LoadTest {
+	
+	private static final Logger log = LogManager.getLogger(LoadTest.class);
+	
+	private static final int SEED_BATCH = 1000;
+	
+	private final LoadTestOptions options;
+	
+	private final ConfigurableApplicationContext context;
+	
+	private final HttpClient client;
+	
+	private final URI employees;
+	
+	public LoadTest(LoadTestOptions options, ConfigurableApplicationContext context) {
+		this.options = options;
+		this.context = context;
+		this.client = HttpClient.newBuilder().connectTimeout(options.getTimeout()).build();
+		this.employees = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + Api.ROOT + Api.EMPLOYEES);
+	}
+	
+	public static void main(String[] args) throws Exception {
+		LoadTestOptions options;
+		try {
+			options = LoadTestOptions.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(LoadTestOptions.USAGE);
+			System.exit(2);
+			return;
+		}
+		
+		// devtools would restart the main thread (read before the command line arguments)
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		
+		ConfigurableApplicationContext context = new SpringApplicationBuilder()
+				.main(Application.class).sources(Application.class)
+				.run("--spring.profiles.active=test",
+					"--server.port=0",
+					"--spring.jpa.show-sql=false",
+					"--spring.h2.console.enabled=false",
+					"--logging.level.root=WARN",
+					"--logging.level.org.babinkuk.loadtest=INFO",
+					"--employee.logging.sample-rate.default=0",
+					"--employee.logging.sample-rate.getEmployee=0",
+					"--employee.logging.sample-rate.getAllEmployees=0");
+		try {
+			new LoadTest(options, context).run();
+		} finally {
+			context.close();
+		}
+	}
+	
+	/**
+	 * seed, warm up, measure and write the result
+	 *
+	 * @throws IOException
+	 */
+	public void run() throws IOException {
+		ObjectMapper mapper = context.getBean(ObjectMapper.class);
+		
+		List<EmployeeVO> seeded = seed();
+		Workload workload = new Workload(employees, seeded, options, mapper);
+		
+		log.info("warmup {} at {} requests/s", options.getWarmup(), options.getRate());
+		phase(workload, options.getWarmup());
+		
+		log.info("measuring {} at {} requests/s", options.getDuration(), options.getRate());
+		Map<Operation, OperationStats> stats = phase(workload, options.getDuration());
+		double seconds = options.getDuration().toMillis() / 1000.0;
+		
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		result.put("label", options.getLabel());
+		result.put("timestamp", Instant.now().toString());
+		result.put("version", context.getEnvironment().getProperty("spring.application.version"));
+		result.put("java", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+		result.put("processors", Runtime.getRuntime().availableProcessors());
+		result.put("maxHeapMb", Runtime.getRuntime().maxMemory() >> 20);
+		result.put("options", options.describe());
+		result.put("seconds", seconds);
+		result.put("total", OperationStats.report(stats.values(), seconds));
+		
+		Map<String, Object> operations = new LinkedHashMap<String, Object>();
+		stats.forEach((operation, operationStats) -> operations.put(operation.name().toLowerCase(Locale.ROOT), operationStats.report(seconds)));
+		result.put("operations", operations);
+		result.put("seededNotDeleted", workload.getLiveCount());
+		
+		File output = new File(options.getOutput());
+		if (output.getAbsoluteFile().getParentFile() != null) {
+			output.getAbsoluteFile().getParentFile().mkdirs();
+		}
+		mapper.writerWithDefaultPrettyPrinter().writeValue(output, result);
+		
+		System.out.println(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(result.get("total")));
+		log.info("result written to {}", output.getAbsolutePath());
+	}
+	
+	// employees through the service (generated ids from the sequence), in batches
+	private List<EmployeeVO> seed() {
+		long start = System.currentTimeMillis();
+		EmployeeService employeeService = context.getBean(EmployeeService.class);
+		
+		List<EmployeeVO> generated = Workload.generate(options.getEmployees(), new Random(options.getSeed()));
+		List<EmployeeVO> seeded = new ArrayList<EmployeeVO>(generated.size());
+		for (int from = 0; from < generated.size(); from += SEED_BATCH) {
+			seeded.addAll(employeeService.saveAll(generated.subList(from, Math.min(generated.size(), from + SEED_BATCH))));
+		}
+		
+		log.info("seeded {} employees in {} ms", seeded.size(), System.currentTimeMillis() - start);
+		return seeded;
+	}
+	
+	/**
+	 * sends requests on schedule for a duration and waits for the ones in flight
+	 *
+	 * @param workload
+	 * @param duration
+	 * @return stats per operation
+	 */
+	private Map<Operation, OperationStats> phase(Workload workload, Duration duration) {
+		Map<Operation, OperationStats> stats = new EnumMap<Operation, OperationStats>(Operation.class);
+		options.getMix().keySet().forEach(operation -> stats.put(operation, new OperationStats()));
+		
+		AtomicInteger inFlight = new AtomicInteger();
+		double interval = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+		long start = System.nanoTime();
+		long end = start + duration.toNanos();
+		
+		for (long i = 0; ; i++) {
+			long scheduled = start + (long) (i * interval);
+			if (scheduled >= end) {
+				break;
+			}
+			long wait = scheduled - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			
+			Operation operation = workload.next();
+			OperationStats operationStats = stats.get(operation);
+			
+			HttpRequest request = workload.request(operation);
+			if (request == null) {
+				operationStats.record(OperationStats.SKIPPED, 0);
+				continue;
+			}
+			// saturated, a late request is not queued (it would only shift the schedule)
+			if (inFlight.get() >= options.getMaxInFlight()) {
+				operationStats.record(OperationStats.DROPPED, 0);
+				continue;
+			}
+			
+			inFlight.incrementAndGet();
+			client.sendAsync(request, BodyHandlers.discarding()).whenComplete((response, failure) -> {
+				inFlight.decrementAndGet();
+				operationStats.record(failure == null ? String.valueOf(response.statusCode()) : OperationStats.FAILED, System.nanoTime() - scheduled);
+			});
+		}
+		
+		long deadline = System.nanoTime() + options.getTimeout().toNanos() + TimeUnit.SECONDS.toNanos(1);
+		while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+		if (inFlight.get() > 0) {
+			log.warn("{} requests still in flight", inFlight.get());
+		}
+		return stats;
+	}
+}
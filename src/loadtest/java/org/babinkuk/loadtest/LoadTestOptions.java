@@ -0,0 +1,187 @@
+package org.babinkuk.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * load test options (--name=value)
+ *
+ * @author BabinKuk
+ *
+ */
+public class LoadTestOptions {
+	
+	public static final String USAGE = "options: --rate=<requests per second> --duration=<30s> --warmup=<10s> --employees=<rows>"
+		+ " --mix=<get=60,list=10,search=10,post=10,put=7,delete=3> --max-in-flight=<requests> --timeout=<5s>"
+		+ " --output=<file> --label=<build label> --seed=<random seed>";
+	
+	// arrivals per second (open model, independent of response times)
+	private double rate = 200;
+	
+	private Duration duration = Duration.ofSeconds(30);
+	
+	// not recorded (jit, caches, connection pools)
+	private Duration warmup = Duration.ofSeconds(10);
+	
+	// seeded rows
+	private int employees = 10000;
+	
+	// relative weights
+	private Map<Operation, Integer> mix = new EnumMap<Operation, Integer>(Operation.class);
+	
+	// arrivals above this count fail right away (dropped) instead of queueing without bounds
+	private int maxInFlight = 2000;
+	
+	private Duration timeout = Duration.ofSeconds(5);
+	
+	private String output = "target/loadtest-result.json";
+	
+	private String label = "";
+	
+	private long seed = 42;
+	
+	public LoadTestOptions() {
+		mix.put(Operation.GET, 60);
+		mix.put(Operation.LIST, 10);
+		mix.put(Operation.SEARCH, 10);
+		mix.put(Operation.POST, 10);
+		mix.put(Operation.PUT, 7);
+		mix.put(Operation.DELETE, 3);
+	}
+	
+	/**
+	 * @param args
+	 * @return options
+	 * @throws IllegalArgumentException on unknown or invalid options
+	 */
+	public static LoadTestOptions parse(String[] args) {
+		LoadTestOptions options = new LoadTestOptions();
+		
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (!arg.startsWith("--") || separator < 0) {
+				throw new IllegalArgumentException("invalid option " + arg);
+			}
+			String name = arg.substring(2, separator);
+			String value = arg.substring(separator + 1);
+			
+			switch (name) {
+			case "rate":
+				options.rate = Double.parseDouble(value);
+				break;
+			case "duration":
+				options.duration = DurationStyle.detectAndParse(value);
+				break;
+			case "warmup":
+				options.warmup = DurationStyle.detectAndParse(value);
+				break;
+			case "employees":
+				options.employees = Integer.parseInt(value);
+				break;
+			case "mix":
+				options.mix = parseMix(value);
+				break;
+			case "max-in-flight":
+				options.maxInFlight = Integer.parseInt(value);
+				break;
+			case "timeout":
+				options.timeout = DurationStyle.detectAndParse(value);
+				break;
+			case "output":
+				options.output = value;
+				break;
+			case "label":
+				options.label = value;
+				break;
+			case "seed":
+				options.seed = Long.parseLong(value);
+				break;
+			default:
+				throw new IllegalArgumentException("unknown option " + arg);
+			}
+		}
+		
+		if (options.rate <= 0 || options.employees < 1 || options.maxInFlight < 1 || options.duration.isZero()) {
+			throw new IllegalArgumentException("rate, employees, max-in-flight and duration must be positive");
+		}
+		return options;
+	}
+	
+	// get=60,post=10 (missing operations are not run)
+	private static Map<Operation, Integer> parseMix(String value) {
+		Map<Operation, Integer> mix = new EnumMap<Operation, Integer>(Operation.class);
+		
+		for (String part : value.split(",")) {
+			String[] weight = part.split("=");
+			if (weight.length != 2) {
+				throw new IllegalArgumentException("invalid mix " + value);
+			}
+			mix.put(Operation.valueOf(weight[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(weight[1].trim()));
+		}
+		if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+			throw new IllegalArgumentException("invalid mix " + value);
+		}
+		return mix;
+	}
+	
+	/**
+	 * @return options as reported
+	 */
+	public Map<String, Object> describe() {
+		Map<String, Object> details = new LinkedHashMap<String, Object>();
+		details.put("rate", rate);
+		details.put("durationSeconds", duration.getSeconds());
+		details.put("warmupSeconds", warmup.getSeconds());
+		details.put("employees", employees);
+		details.put("mix", mix);
+		details.put("maxInFlight", maxInFlight);
+		details.put("timeoutMillis", timeout.toMillis());
+		details.put("seed", seed);
+		return details;
+	}
+	
+	public double getRate() {
+		return rate;
+	}
+	
+	public Duration getDuration() {
+		return duration;
+	}
+	
+	public Duration getWarmup() {
+		return warmup;
+	}
+	
+	public int getEmployees() {
+		return employees;
+	}
+	
+	public Map<Operation, Integer> getMix() {
+		return mix;
+	}
+	
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+	
+	public Duration getTimeout() {
+		return timeout;
+	}
+	
+	public String getOutput() {
+		return output;
+	}
+	
+	public String getLabel() {
+		return label;
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+}
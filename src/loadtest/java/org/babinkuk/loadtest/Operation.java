@@ -0,0 +1,28 @@
+package org.babinkuk.loadtest;
+
+/**
+ * load test request types
+ *
+ * @author BabinKuk
+ *
+ */
+public enum Operation {
+	
+	// GET /employees/{id}
+	GET,
+	
+	// GET /employees (first page)
+	LIST,
+	
+	// GET /employees/search?q=
+	SEARCH,
+	
+	// POST /employees
+	POST,
+	
+	// PUT /employees
+	PUT,
+	
+	// DELETE /employees/{id}
+	DELETE
+}
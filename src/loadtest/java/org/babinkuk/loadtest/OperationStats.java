@@ -0,0 +1,138 @@
+package org.babinkuk.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * latencies (HdrHistogram) and outcomes of one operation
+ * latency is measured from the scheduled start, so a stalled server also delays the
+ * requests waiting behind it (no coordinated omission)
+ *
+ * @author BabinKuk
+ *
+ */
+public class OperationStats {
+	
+	// dropped (max in flight) and failed (timeout, connection) requests
+	public static final String DROPPED = "dropped";
+	public static final String FAILED = "failed";
+	
+	// not sent, no seeded employee left (neither an error nor a latency)
+	public static final String SKIPPED = "skipped";
+	
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+	private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+	
+	private final Recorder recorder = new Recorder(3);
+	
+	private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<String, LongAdder>();
+	
+	private final LongAdder errors = new LongAdder();
+	
+	// latencies recorded until the first report
+	private Histogram histogram;
+	
+	/**
+	 * @param status http status, DROPPED or FAILED
+	 * @param latencyNanos from the scheduled start
+	 */
+	public void record(String status, long latencyNanos) {
+		outcomes.computeIfAbsent(status, key -> new LongAdder()).increment();
+		if (SKIPPED.equals(status)) {
+			return;
+		}
+		if (isError(status)) {
+			errors.increment();
+		}
+		if (!DROPPED.equals(status)) {
+			recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(Math.max(0, latencyNanos)));
+		}
+	}
+	
+	/**
+	 * @param seconds measured time
+	 * @return count, errors, throughput, outcomes and latency percentiles (ms)
+	 */
+	public Map<String, Object> report(double seconds) {
+		return report(histogram(), total(), errors.sum(), outcomes(), seconds);
+	}
+	
+	/**
+	 * @param stats
+	 * @param seconds
+	 * @return all operations together
+	 */
+	public static Map<String, Object> report(Iterable<OperationStats> stats, double seconds) {
+		Histogram histogram = new Histogram(3);
+		long count = 0;
+		long errors = 0;
+		Map<String, Long> outcomes = new TreeMap<String, Long>();
+		
+		for (OperationStats operation : stats) {
+			histogram.add(operation.histogram());
+			count += operation.total();
+			errors += operation.errors.sum();
+			operation.outcomes().forEach((status, n) -> outcomes.merge(status, n, Long::sum));
+		}
+		return report(histogram, count, errors, outcomes, seconds);
+	}
+	
+	private static Map<String, Object> report(Histogram histogram, long count, long errors, Map<String, Long> outcomes, double seconds) {
+		Map<String, Object> report = new LinkedHashMap<String, Object>();
+		report.put("count", count);
+		report.put("errors", errors);
+		report.put("errorRate", count == 0 ? 0 : (double) errors / count);
+		report.put("throughput", (count - errors) / seconds);
+		report.put("outcomes", outcomes);
+		
+		Map<String, Object> latency = new LinkedHashMap<String, Object>();
+		if (histogram.getTotalCount() > 0) {
+			latency.put("min", millis(histogram.getMinValue()));
+			latency.put("mean", histogram.getMean() / 1000);
+			for (int i = 0; i < PERCENTILES.length; i++) {
+				latency.put(PERCENTILE_NAMES[i], millis(histogram.getValueAtPercentile(PERCENTILES[i])));
+			}
+			latency.put("max", millis(histogram.getMaxValue()));
+		}
+		report.put("latencyMillis", latency);
+		
+		return report;
+	}
+	
+	private synchronized Histogram histogram() {
+		if (histogram == null) {
+			histogram = recorder.getIntervalHistogram();
+		}
+		return histogram;
+	}
+	
+	// not 2xx (ObjectNotFoundException responses are 200)
+	private static boolean isError(String status) {
+		return !status.startsWith("2");
+	}
+	
+	// sent and dropped requests
+	private long total() {
+		return outcomes.entrySet().stream()
+			.filter(outcome -> !SKIPPED.equals(outcome.getKey()))
+			.mapToLong(outcome -> outcome.getValue().sum())
+			.sum();
+	}
+	
+	private Map<String, Long> outcomes() {
+		Map<String, Long> sums = new TreeMap<String, Long>();
+		outcomes.forEach((status, n) -> sums.put(status, n.sum()));
+		return sums;
+	}
+	
+	private static double millis(long micros) {
+		return micros / 1000.0;
+	}
+}
@@ -0,0 +1,191 @@
+package org.babinkuk.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.babinkuk.vo.EmployeeVO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * requests of the operation mix on the seeded employees
+ *
+ * GET, PUT and SEARCH use seeded employees, DELETE takes a seeded employee out of the pool before
+ * it is sent (no later request targets it), POST inserts new employees with unique emails
+ * not thread safe, requests are created by the single arrival thread
+ *
+ * @author BabinKuk
+ *
+ */
+public class Workload {
+	
+	private static final String[] FIRST_NAMES = {
+		"Ana", "Ivan", "Marija", "Luka", "Petra", "Josip", "Ivana", "Marko", "Maja", "Tomislav",
+		"Lucija", "Filip", "Sara", "Karlo", "Nika", "Matej", "Lana", "Ante", "Eva", "Dario"
+	};
+	
+	private static final String[] SYLLABLES = {
+		"ba", "bi", "da", "do", "ja", "ko", "ku", "la", "le", "ma", "mi", "na", "ni", "pe",
+		"ra", "ri", "sa", "ti", "to", "va", "vi", "ze", "zu", "ov", "ak", "en", "ar", "in"
+	};
+	
+	private final URI employees;
+	
+	private final Duration timeout;
+	
+	private final ObjectMapper mapper;
+	
+	private final Random random;
+	
+	// operation per weight unit
+	private final Operation[] wheel;
+	
+	private final List<EmployeeVO> seeded;
+	
+	// seeded employees deleted (or being deleted)
+	private final boolean[] deleted;
+	
+	private long sequence;
+	
+	/**
+	 * @param employees api url of the employees resource
+	 * @param seeded employees in the database
+	 * @param options
+	 * @param mapper
+	 */
+	public Workload(URI employees, List<EmployeeVO> seeded, LoadTestOptions options, ObjectMapper mapper) {
+		this.employees = employees;
+		this.seeded = seeded;
+		this.timeout = options.getTimeout();
+		this.mapper = mapper;
+		this.random = new Random(options.getSeed());
+		
+		List<Operation> units = new ArrayList<Operation>();
+		for (Map.Entry<Operation, Integer> weight : options.getMix().entrySet()) {
+			for (int i = 0; i < weight.getValue(); i++) {
+				units.add(weight.getKey());
+			}
+		}
+		wheel = units.toArray(new Operation[0]);
+		
+		deleted = new boolean[seeded.size()];
+	}
+	
+	/**
+	 * @param count
+	 * @param random
+	 * @return generated employees (unique emails)
+	 */
+	public static List<EmployeeVO> generate(int count, Random random) {
+		List<EmployeeVO> generated = new ArrayList<EmployeeVO>(count);
+		for (int i = 0; i < count; i++) {
+			generated.add(employee(random, "seed" + i));
+		}
+		return generated;
+	}
+	
+	/**
+	 * @return next operation of the mix
+	 */
+	public Operation next() {
+		return wheel[random.nextInt(wheel.length)];
+	}
+	
+	/**
+	 * @param operation
+	 * @return request, null if no seeded employee is left
+	 */
+	public HttpRequest request(Operation operation) {
+		switch (operation) {
+		case GET: {
+			EmployeeVO employee = pick(false);
+			return employee == null ? null : builder(employees + "/" + employee.getId()).GET().build();
+		}
+		case LIST:
+			return builder(employees + "?limit=20").GET().build();
+		case SEARCH: {
+			EmployeeVO employee = pick(false);
+			return employee == null ? null : builder(employees + "/search?q=" + employee.getLastName().substring(0, 3)).GET().build();
+		}
+		case POST:
+			return builder(employees.toString())
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.POST(BodyPublishers.ofString(json(employee(random, "post" + (++sequence)))))
+				.build();
+		case PUT: {
+			EmployeeVO employee = pick(false);
+			if (employee == null) {
+				return null;
+			}
+			EmployeeVO updated = new EmployeeVO(employee.getId(), FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+				employee.getLastName(), employee.getEmail(), employee.getVersion());
+			return builder(employees.toString())
+				.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+				.PUT(BodyPublishers.ofString(json(updated)))
+				.build();
+		}
+		case DELETE: {
+			EmployeeVO employee = pick(true);
+			return employee == null ? null : builder(employees + "/" + employee.getId()).DELETE().build();
+		}
+		default:
+			throw new IllegalArgumentException(String.valueOf(operation));
+		}
+	}
+	
+	/**
+	 * @return seeded employees not deleted yet
+	 */
+	public int getLiveCount() {
+		int count = 0;
+		for (boolean removed : deleted) {
+			count += removed ? 0 : 1;
+		}
+		return count;
+	}
+	
+	// random seeded employee not deleted (taken out of the pool for delete)
+	private EmployeeVO pick(boolean remove) {
+		for (int attempt = 0; attempt < 16; attempt++) {
+			int index = random.nextInt(seeded.size());
+			if (!deleted[index]) {
+				deleted[index] = remove;
+				return seeded.get(index);
+			}
+		}
+		return null;
+	}
+	
+	private HttpRequest.Builder builder(String uri) {
+		return HttpRequest.newBuilder(URI.create(uri)).timeout(timeout);
+	}
+	
+	private String json(EmployeeVO employee) {
+		try {
+			return mapper.writeValueAsString(employee);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static EmployeeVO employee(Random random, String key) {
+		StringBuilder lastName = new StringBuilder();
+		int syllables = 2 + random.nextInt(3);
+		for (int i = 0; i < syllables; i++) {
+			lastName.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		}
+		lastName.setCharAt(0, Character.toUpperCase(lastName.charAt(0)));
+		
+		String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+		return new EmployeeVO(firstName, lastName.toString(), key + "." + firstName.toLowerCase() + "@loadtest.com");
+	}
+}
@@ -5,6 +5,8 @@ import java.text.MessageFormat;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.babinkuk.config.StartupTimeline;
+import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -22,17 +24,26 @@ public class Application {
 	
 	public static final Logger log = LogManager.getLogger(Application.class);
 	
+	// app-cds training run (faststart maven profile), exits once started, classes loaded so far are archived
+	public static final String EXIT_ON_READY = "employee.startup.exit-on-ready";
+	
 	public static void main(String[] args) {
 		
+		final StartupTimeline timeline = new StartupTimeline();
+		
 		//SpringApplication.run(Application.class, args);
 		final ConfigurableApplicationContext context = new SpringApplicationBuilder()
 				.main(Application.class).sources(Application.class)
-				//.listeners(listeners)
+				.listeners(timeline)
 				.run(args);
-		logApplicationStartup(context);
+		logApplicationStartup(context, timeline);
+		
+		if (context.getEnvironment().getProperty(EXIT_ON_READY, Boolean.class, false)) {
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
-	private static void logApplicationStartup(EnvironmentCapable environmentCapable) {
+	private static void logApplicationStartup(EnvironmentCapable environmentCapable, StartupTimeline timeline) {
 		// TODO Auto-generated method stub
 		if (log.isInfoEnabled() && environmentCapable != null) {
 			Environment env = environmentCapable.getEnvironment();
@@ -52,6 +63,8 @@ public class Application {
 					"\nBuild on: {4}" +
 					"\n--------------------------------------------------------------------",
 					appName, profiles, version, author, buildTime));
+			
+			log.info(timeline.report(env.getProperty(StartupTimeline.TOP, Integer.class, 10)));
 		}
 	}
 }
\ No newline at end of file
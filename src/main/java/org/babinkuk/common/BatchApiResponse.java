@@ -0,0 +1,34 @@
+package org.babinkuk.common;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * batch response, one result per request item (in request order)
+ * 
+ * @author BabinKuk
+ *
+ */
+public class BatchApiResponse extends ApiResponse {
+	
+	private List<BatchItemResult> results;
+	
+	public BatchApiResponse() {
+		
+	}
+	
+	public BatchApiResponse(HttpStatus status, String message, List<BatchItemResult> results) {
+		super(status, message);
+		this.results = results;
+	}
+
+	public List<BatchItemResult> getResults() {
+		return results;
+	}
+
+	public void setResults(List<BatchItemResult> results) {
+		this.results = results;
+	}
+	
+}
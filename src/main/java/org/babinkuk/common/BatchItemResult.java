@@ -0,0 +1,70 @@
+package org.babinkuk.common;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * result of a single item in a batch request
+ * 
+ * @author BabinKuk
+ *
+ */
+@JsonInclude(value = Include.NON_EMPTY)
+public class BatchItemResult {
+	
+	private int index;
+	
+	private int id;
+	
+	private HttpStatus status;
+	
+	private List<String> errors;
+	
+	public BatchItemResult() {
+		
+	}
+	
+	public BatchItemResult(int index, int id, HttpStatus status, List<String> errors) {
+		this.index = index;
+		this.id = id;
+		this.status = status;
+		this.errors = errors;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public HttpStatus getStatus() {
+		return status;
+	}
+
+	public void setStatus(HttpStatus status) {
+		this.status = status;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	public void setErrors(List<String> errors) {
+		this.errors = errors;
+	}
+	
+}
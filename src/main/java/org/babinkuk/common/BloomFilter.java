@@ -0,0 +1,133 @@
+package org.babinkuk.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * thread safe bloom filter of strings
+ * mightContain false means the value was never added, true means it probably was
+ * (double hashing of a 64 bit FNV-1a hash, bits in an AtomicLongArray)
+ *
+ * @author BabinKuk
+ *
+ */
+public class BloomFilter {
+	
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	
+	private final AtomicLongArray bits;
+	
+	private final long bitCount;
+	
+	private final int hashCount;
+	
+	private final long capacity;
+	
+	private final AtomicLong insertions = new AtomicLong();
+	
+	/**
+	 * @param capacity expected number of values
+	 * @param fpp wanted false positive probability (at capacity)
+	 */
+	public BloomFilter(long capacity, double fpp) {
+		if (capacity < 1 || fpp <= 0 || fpp >= 1) {
+			throw new IllegalArgumentException("capacity=" + capacity + ", fpp=" + fpp);
+		}
+		
+		// m = -n ln(p) / ln(2)^2, k = m/n ln(2)
+		long m = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+		
+		this.capacity = capacity;
+		this.bits = new AtomicLongArray(words);
+		this.bitCount = (long) words * 64;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+	}
+	
+	/**
+	 * @param value
+	 */
+	public void put(String value) {
+		long hash = hash(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		
+		for (int i = 1; i <= hashCount; i++) {
+			long bit = index(h1 + i * h2);
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			
+			long current = bits.get(word);
+			while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+				current = bits.get(word);
+			}
+		}
+		insertions.incrementAndGet();
+	}
+	
+	/**
+	 * @param value
+	 * @return false if value was definitely never added
+	 */
+	public boolean mightContain(String value) {
+		long hash = hash(value);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		
+		for (int i = 1; i <= hashCount; i++) {
+			long bit = index(h1 + i * h2);
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return expected false positive probability for the current number of insertions
+	 */
+	public double expectedFpp() {
+		return Math.pow(1 - Math.exp(-hashCount * (double) insertions.get() / bitCount), hashCount);
+	}
+	
+	/**
+	 * @return number of put calls (duplicates included)
+	 */
+	public long getInsertions() {
+		return insertions.get();
+	}
+	
+	public long getCapacity() {
+		return capacity;
+	}
+	
+	public long getBitCount() {
+		return bitCount;
+	}
+	
+	public int getHashCount() {
+		return hashCount;
+	}
+	
+	private long index(int combined) {
+		// non negative index in [0, bitCount)
+		return (combined & 0x7fffffffL) % bitCount;
+	}
+	
+	private static long hash(String value) {
+		long hash = FNV_OFFSET;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+			hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+		}
+		// final mix (murmur3 fmix64) spreads the FNV bits over both halves
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb93e185a2d53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,53 @@
+package org.babinkuk.common;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * strong entity tags (ETag / If-Match / If-None-Match header values)
+ * 
+ * @author BabinKuk
+ *
+ */
+public final class EntityTags {
+	
+	private static final String ANY = "*";
+	
+	private EntityTags() {
+		// static only
+	}
+	
+	/**
+	 * @param value opaque value (version, collection state)
+	 * @return quoted entity tag
+	 */
+	public static String of(String value) {
+		return "\"" + value + "\"";
+	}
+	
+	/**
+	 * @param version entity version
+	 * @return quoted entity tag
+	 */
+	public static String of(int version) {
+		return of(String.valueOf(version));
+	}
+	
+	/**
+	 * strong comparison (weak tags never match), see RFC 7232 If-Match
+	 * 
+	 * @param header If-Match header value (list of tags or *)
+	 * @param version current entity version
+	 * @return true if any of the tags matches
+	 */
+	public static boolean matches(String header, int version) {
+		String current = of(version);
+		
+		for (String tag : StringUtils.split(header, ',')) {
+			tag = tag.trim();
+			if (ANY.equals(tag) || current.equals(tag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
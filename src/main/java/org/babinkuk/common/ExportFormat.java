@@ -0,0 +1,30 @@
+package org.babinkuk.common;
+
+import java.util.Arrays;
+
+import org.springframework.http.MediaType;
+
+public enum ExportFormat {
+	
+	// one json object per line
+	NDJSON("application/x-ndjson"),
+	// single streamed json array
+	JSON(MediaType.APPLICATION_JSON_VALUE);
+	
+	private MediaType mediaType;
+	
+	ExportFormat(String mediaType) {
+		this.mediaType = MediaType.parseMediaType(mediaType);
+	}
+	
+	public MediaType getMediaType() {
+		return mediaType;
+	}
+	
+	public static ExportFormat valueOfIgnoreCase(String str) {
+		return Arrays.stream(ExportFormat.values())
+				.filter(e -> e.name().equalsIgnoreCase(str))
+				.findAny()
+				.orElseThrow(() -> new IllegalArgumentException("Cannot find enum constant for " + str));
+	}
+}
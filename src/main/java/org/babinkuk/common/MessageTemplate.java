@@ -0,0 +1,100 @@
+package org.babinkuk.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * message with %s placeholders, split once into literal parts
+ * format(args) gives the same result as String.format for %s (surplus args are ignored)
+ * templates with other format specifiers are formatted with String.format
+ * 
+ * @author BabinKuk
+ *
+ */
+public final class MessageTemplate {
+	
+	private final String pattern;
+	
+	// literal parts around the placeholders (placeholders + 1), null if String.format is needed
+	private final String[] parts;
+	
+	private final int length;
+	
+	public MessageTemplate(String pattern) {
+		this.pattern = pattern;
+		this.parts = parse(pattern);
+		
+		int length = 0;
+		if (parts != null) {
+			for (String part : parts) {
+				length += part.length();
+			}
+		}
+		this.length = length;
+	}
+	
+	/**
+	 * @param args
+	 * @return formatted message
+	 */
+	public String format(Object... args) {
+		if (parts == null) {
+			return String.format(pattern, args);
+		}
+		if (parts.length == 1) {
+			// constant message
+			return parts[0];
+		}
+		if (args == null || args.length < parts.length - 1) {
+			// same error as String.format
+			return String.format(pattern, args);
+		}
+		
+		StringBuilder builder = new StringBuilder(length + 16 * (parts.length - 1));
+		builder.append(parts[0]);
+		for (int i = 1; i < parts.length; i++) {
+			builder.append(args[i - 1]).append(parts[i]);
+		}
+		return builder.toString();
+	}
+	
+	public String getPattern() {
+		return pattern;
+	}
+	
+	private static String[] parse(String pattern) {
+		List<String> parts = new ArrayList<String>(2);
+		StringBuilder part = new StringBuilder(pattern.length());
+		
+		for (int i = 0; i < pattern.length(); i++) {
+			char c = pattern.charAt(i);
+			if (c != '%') {
+				part.append(c);
+				continue;
+			}
+			if (i + 1 >= pattern.length()) {
+				return null;
+			}
+			char next = pattern.charAt(++i);
+			if (next == 's') {
+				parts.add(part.toString());
+				part.setLength(0);
+			} else if (next == '%') {
+				part.append('%');
+			} else if (next == 'n') {
+				part.append(System.lineSeparator());
+			} else {
+				// %d, %1$s, width ...
+				return null;
+			}
+		}
+		parts.add(part.toString());
+		
+		return parts.toArray(new String[0]);
+	}
+	
+	@Override
+	public String toString() {
+		return pattern;
+	}
+}
@@ -0,0 +1,535 @@
+package org.babinkuk.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * thread safe in-memory trigram (inverted) index of values with text fields
+ *
+ * fields are split into lowercase words (letters and digits), every word is padded like in
+ * postgres pg_trgm ("  word ") and each distinct trigram keeps a sorted posting list of slots
+ * a search counts matching query trigrams per value, typos and partial words still match
+ *
+ * removed values leave dead slots in the posting lists until they are compacted
+ *
+ * @author BabinKuk
+ *
+ * @param <T> indexed value
+ */
+public class NgramIndex<T> {
+	
+	private static final int N = 3;
+	
+	private static final char PAD = ' ';
+	
+	// dead slots are compacted from this count on (and a quarter of all slots)
+	private static final int COMPACT_MIN_DEAD = 1024;
+	
+	private static final int BUILD_CHUNK = 16384;
+	
+	// trigram (three chars packed in a long) -> slots
+	private final Map<Long, Postings> postings = new HashMap<Long, Postings>();
+	
+	// id -> slot of the live entry
+	private final Map<Integer, Integer> slots = new HashMap<Integer, Integer>();
+	
+	@SuppressWarnings("unchecked")
+	private Entry<T>[] entries = new Entry[16];
+	
+	// slot -> distinct trigrams of the entry, 0 if removed (scanned without loading entries)
+	private int[] sizes = new int[16];
+	
+	private int nextSlot;
+	
+	private int dead;
+	
+	private long postingCount;
+	
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	/**
+	 * adds values to the index, trigrams are extracted in parallel (common fork join pool)
+	 *
+	 * @param values
+	 * @param id unique id of a value
+	 * @param fields indexed text of a value
+	 */
+	public void putAll(List<T> values, ToIntFunction<T> id, Function<T, String[]> fields) {
+		int chunks = (values.size() + BUILD_CHUNK - 1) / BUILD_CHUNK;
+		
+		// per chunk trigram -> positions in the chunk (ascending)
+		List<Chunk> analysed = IntStream.range(0, chunks).parallel()
+			.mapToObj(chunk -> {
+				int from = chunk * BUILD_CHUNK;
+				Chunk local = new Chunk(Math.min(values.size(), from + BUILD_CHUNK) - from);
+				for (int i = 0; i < local.grams.length; i++) {
+					Set<Long> grams = grams(fields.apply(values.get(from + i)), true);
+					for (long gram : grams) {
+						local.postings.computeIfAbsent(gram, key -> new Postings()).add(i);
+					}
+					local.grams[i] = grams.size();
+				}
+				return local;
+			})
+			.collect(Collectors.toList());
+		
+		lock.writeLock().lock();
+		try {
+			int base = nextSlot;
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				int from = chunk * BUILD_CHUNK;
+				for (int i = 0; i < analysed.get(chunk).grams.length; i++) {
+					T value = values.get(from + i);
+					removeLocked(id.applyAsInt(value));
+					store(id.applyAsInt(value), value, analysed.get(chunk).grams[i]);
+				}
+			}
+			
+			// chunks are merged in order, appended slots stay sorted
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				int offset = base + chunk * BUILD_CHUNK;
+				for (Map.Entry<Long, Postings> gram : analysed.get(chunk).postings.entrySet()) {
+					Postings target = postings.computeIfAbsent(gram.getKey(), key -> new Postings());
+					Postings source = gram.getValue();
+					for (int i = 0; i < source.size; i++) {
+						target.add(offset + source.slots[i]);
+					}
+					postingCount += source.size;
+				}
+			}
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * adds or replaces a value
+	 *
+	 * @param id
+	 * @param value
+	 * @param fields indexed text
+	 */
+	public void put(int id, T value, String... fields) {
+		Set<Long> grams = grams(fields, true);
+		
+		lock.writeLock().lock();
+		try {
+			removeLocked(id);
+			
+			int slot = store(id, value, grams.size());
+			for (long gram : grams) {
+				postings.computeIfAbsent(gram, key -> new Postings()).add(slot);
+			}
+			postingCount += grams.size();
+			
+			compactIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * @param id
+	 * @return true if the value was indexed
+	 */
+	public boolean remove(int id) {
+		lock.writeLock().lock();
+		try {
+			boolean removed = removeLocked(id);
+			compactIfNeeded();
+			return removed;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * values ranked by the share of query trigrams they contain, then by the share of their own
+	 * trigrams matched (shorter, closer values first), then by id
+	 * the last query word is treated as a prefix (search as you type)
+	 *
+	 * @param query
+	 * @param limit maximum number of values
+	 * @param minScore minimum share of query trigrams (0..1]
+	 * @return best matches first
+	 */
+	public List<T> search(String query, int limit, double minScore) {
+		long[] grams = toArray(grams(new String[] {query}, false));
+		if (grams.length == 0 || limit < 1) {
+			return Collections.emptyList();
+		}
+		
+		int required = Math.max(1, (int) Math.ceil(minScore * grams.length));
+		
+		lock.readLock().lock();
+		try {
+			Postings[] lists = new Postings[grams.length];
+			for (int i = 0; i < grams.length; i++) {
+				lists[i] = postings.getOrDefault(grams[i], Postings.EMPTY);
+			}
+			// shortest lists first, a match with at least 'required' trigrams is in one of the first (n - required + 1)
+			Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+			int scanned = grams.length - required + 1;
+			
+			PriorityQueue<Hit<T>> top = new PriorityQueue<Hit<T>>(limit + 1, Hit.RANK);
+			
+			// merge of the scanned lists (slots ascending), longer lists are probed with forward cursors
+			int[] heads = new int[lists.length];
+			while (true) {
+				int slot = Integer.MAX_VALUE;
+				for (int i = 0; i < scanned; i++) {
+					if (heads[i] < lists[i].size && lists[i].slots[heads[i]] < slot) {
+						slot = lists[i].slots[heads[i]];
+					}
+				}
+				if (slot == Integer.MAX_VALUE) {
+					break;
+				}
+				
+				int matched = 0;
+				for (int i = 0; i < scanned; i++) {
+					if (heads[i] < lists[i].size && lists[i].slots[heads[i]] == slot) {
+						matched++;
+						heads[i]++;
+					}
+				}
+				
+				int size = sizes[slot];
+				if (size == 0) {
+					// removed
+					continue;
+				}
+				
+				for (int i = scanned; i < lists.length && matched + lists.length - i >= required; i++) {
+					heads[i] = lists[i].seek(heads[i], slot);
+					if (heads[i] < lists[i].size && lists[i].slots[heads[i]] == slot) {
+						matched++;
+					}
+				}
+				if (matched < required) {
+					continue;
+				}
+				
+				double score = (double) matched / grams.length;
+				double coverage = (double) matched / size;
+				
+				// not better than the worst of a full top-k (no allocation)
+				if (top.size() == limit && Hit.compare(score, coverage, entries[slot].id, top.peek()) <= 0) {
+					continue;
+				}
+				
+				top.add(new Hit<T>(entries[slot], score, coverage));
+				if (top.size() > limit) {
+					top.poll();
+				}
+				
+				// a full top-k raises the bar, fewer lists need to be scanned (the others are probed)
+				if (top.size() == limit) {
+					required = Math.max(required, (int) Math.round(top.peek().score * grams.length));
+					scanned = grams.length - required + 1;
+				}
+			}
+			
+			List<T> result = new ArrayList<T>(top.size());
+			while (!top.isEmpty()) {
+				result.add(top.poll().entry.value);
+			}
+			Collections.reverse(result);
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return number of indexed values
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return slots.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return number of distinct trigrams
+	 */
+	public int getGramCount() {
+		lock.readLock().lock();
+		try {
+			return postings.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * @return number of slots in all posting lists (dead ones included)
+	 */
+	public long getPostingCount() {
+		lock.readLock().lock();
+		try {
+			return postingCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * approximate heap size of the index structures (64 bit jvm, compressed oops)
+	 * the indexed values and their strings are not included
+	 *
+	 * @return bytes
+	 */
+	public long estimateBytes() {
+		lock.readLock().lock();
+		try {
+			// gram table: node (32), Long key (16), Postings (24), int[] header (16) + capacity, buckets (4)
+			long bytes = 0;
+			for (Postings list : postings.values()) {
+				bytes += 32 + 16 + 24 + 16 + 4L * list.slots.length + 4;
+			}
+			// id table: node (32), two Integers (2 x 16), buckets (4); entry and size arrays; Entry (24)
+			bytes += (32 + 32 + 4) * (long) slots.size();
+			bytes += 32 + 8L * entries.length;
+			bytes += 24L * slots.size();
+			return bytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	private int store(int id, T value, int grams) {
+		if (nextSlot == entries.length) {
+			entries = Arrays.copyOf(entries, entries.length + (entries.length >> 1));
+			sizes = Arrays.copyOf(sizes, entries.length);
+		}
+		int slot = nextSlot++;
+		entries[slot] = new Entry<T>(id, value);
+		sizes[slot] = Math.max(1, grams);
+		slots.put(id, slot);
+		return slot;
+	}
+	
+	private boolean removeLocked(int id) {
+		Integer slot = slots.remove(id);
+		if (slot == null) {
+			return false;
+		}
+		entries[slot] = null;
+		sizes[slot] = 0;
+		dead++;
+		return true;
+	}
+	
+	// posting lists without dead slots, live entries renumbered in the same order
+	private void compactIfNeeded() {
+		if (dead < COMPACT_MIN_DEAD || dead * 4 < nextSlot) {
+			return;
+		}
+		
+		int[] remap = new int[nextSlot];
+		int live = 0;
+		for (int slot = 0; slot < nextSlot; slot++) {
+			Entry<T> entry = entries[slot];
+			if (entry == null) {
+				remap[slot] = -1;
+			} else {
+				remap[slot] = live;
+				entries[live] = entry;
+				sizes[live] = sizes[slot];
+				slots.put(entry.id, live);
+				live++;
+			}
+		}
+		Arrays.fill(entries, live, nextSlot, null);
+		Arrays.fill(sizes, live, nextSlot, 0);
+		
+		postingCount = 0;
+		postings.values().removeIf(list -> {
+			int size = 0;
+			for (int i = 0; i < list.size; i++) {
+				int slot = remap[list.slots[i]];
+				if (slot >= 0) {
+					list.slots[size++] = slot;
+				}
+			}
+			list.size = size;
+			list.trim();
+			postingCount += size;
+			return size == 0;
+		});
+		
+		nextSlot = live;
+		dead = 0;
+	}
+	
+	/**
+	 * @param fields
+	 * @param complete false if the last word might be incomplete (no end padding)
+	 * @return distinct trigrams
+	 */
+	static Set<Long> grams(String[] fields, boolean complete) {
+		Set<Long> grams = new LinkedHashSet<Long>();
+		
+		for (int f = 0; f < fields.length; f++) {
+			if (fields[f] == null) {
+				continue;
+			}
+			String text = fields[f].toLowerCase(Locale.ROOT);
+			
+			int start = -1;
+			for (int i = 0; i <= text.length(); i++) {
+				boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+				if (wordChar && start < 0) {
+					start = i;
+				} else if (!wordChar && start >= 0) {
+					boolean last = f == fields.length - 1 && i == text.length();
+					addWord(grams, text, start, i, complete || !last);
+					start = -1;
+				}
+			}
+		}
+		return grams;
+	}
+	
+	private static void addWord(Set<Long> grams, String text, int start, int end, boolean padEnd) {
+		int length = end - start;
+		// "  word " or "  wor" (prefix)
+		char[] padded = new char[length + N - 1 + (padEnd ? 1 : 0)];
+		Arrays.fill(padded, PAD);
+		text.getChars(start, end, padded, N - 1);
+		
+		for (int i = 0; i + N <= padded.length; i++) {
+			grams.add(((long) padded[i] << 32) | ((long) padded[i + 1] << 16) | padded[i + 2]);
+		}
+	}
+	
+	private static long[] toArray(Set<Long> grams) {
+		long[] array = new long[grams.size()];
+		int i = 0;
+		for (long gram : grams) {
+			array[i++] = gram;
+		}
+		return array;
+	}
+	
+	// growable sorted int list
+	private static final class Postings {
+		
+		static final Postings EMPTY = new Postings();
+		
+		int[] slots = new int[4];
+		
+		int size;
+		
+		void add(int slot) {
+			if (size == slots.length) {
+				slots = Arrays.copyOf(slots, size + (size >> 1) + 1);
+			}
+			slots[size++] = slot;
+		}
+		
+		/**
+		 * galloping search forward from a position (probed slots are ascending)
+		 *
+		 * @param from
+		 * @param slot
+		 * @return first position with a slot >= slot (size if none)
+		 */
+		int seek(int from, int slot) {
+			int low = from;
+			int step = 1;
+			while (low + step < size && slots[low + step] < slot) {
+				low += step;
+				step <<= 1;
+			}
+			if (low >= size || slots[low] >= slot) {
+				return low;
+			}
+			int index = Arrays.binarySearch(slots, low + 1, Math.min(size, low + step + 1), slot);
+			return index >= 0 ? index : -index - 1;
+		}
+		
+		void trim() {
+			if (slots.length > size + 4) {
+				slots = Arrays.copyOf(slots, Math.max(size, 4));
+			}
+		}
+	}
+	
+	// trigrams of a part of the values (parallel build)
+	private static final class Chunk {
+		
+		final Map<Long, Postings> postings = new HashMap<Long, Postings>();
+		
+		final int[] grams;
+		
+		Chunk(int size) {
+			grams = new int[size];
+		}
+	}
+	
+	private static final class Entry<T> {
+		
+		final int id;
+		
+		final T value;
+		
+		Entry(int id, T value) {
+			this.id = id;
+			this.value = value;
+		}
+	}
+	
+	private static final class Hit<T> {
+		
+		// worst hit first (head of the top-k heap)
+		@SuppressWarnings("rawtypes")
+		static final Comparator<Hit> RANK = Comparator.<Hit>comparingDouble(hit -> hit.score)
+			.thenComparingDouble(hit -> hit.coverage)
+			.thenComparing(Comparator.<Hit>comparingInt(hit -> hit.entry.id).reversed());
+		
+		/**
+		 * @return same as RANK for a candidate and a hit
+		 */
+		static int compare(double score, double coverage, int id, Hit<?> hit) {
+			int result = Double.compare(score, hit.score);
+			if (result == 0) {
+				result = Double.compare(coverage, hit.coverage);
+			}
+			return result != 0 ? result : Integer.compare(hit.entry.id, id);
+		}
+		
+		final Entry<T> entry;
+		
+		// share of the query trigrams
+		final double score;
+		
+		// share of the value trigrams
+		final double coverage;
+		
+		Hit(Entry<T> entry, double score, double coverage) {
+			this.entry = entry;
+			this.score = score;
+			this.coverage = coverage;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package org.babinkuk.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.apache.commons.lang.StringUtils;
+import org.babinkuk.config.MessagePool;
+import org.babinkuk.exception.ObjectValidationException;
+
+/**
+ * opaque keyset pagination cursor
+ * sort column and direction of the page, last id and sort column value of the last row
+ * (a cursor is only valid for the sort it was issued for)
+ *
+ * @author BabinKuk
+ *
+ */
+public final class PageCursor {
+	
+	private static final String SEPARATOR = ":";
+	
+	private static final String ASC = "asc";
+	
+	private static final String DESC = "desc";
+	
+	// sort column value is prefixed, a null value is written without it (not as the string "null")
+	private static final String VALUE = "=";
+	
+	private static final String NULL = "null";
+	
+	private static final String CURSOR_INVALID = "error_code_cursor_invalid";
+	
+	private final String sort;
+	
+	private final boolean descending;
+	
+	private final int id;
+	
+	private final String value;
+	
+	private PageCursor(String sort, boolean descending, int id, String value) {
+		this.sort = sort;
+		this.descending = descending;
+		this.id = id;
+		this.value = value;
+	}
+	
+	/**
+	 * cursor of a page sorted on id
+	 *
+	 * @param sort sort column
+	 * @param descending
+	 * @param id last id of the current page
+	 * @return cursor token
+	 */
+	public static String encode(String sort, boolean descending, int id) {
+		return encode(sort + SEPARATOR + (descending ? DESC : ASC) + SEPARATOR + id);
+	}
+	
+	/**
+	 * cursor of a page sorted on another column (id is the tie breaker)
+	 *
+	 * @param sort sort column
+	 * @param descending
+	 * @param id last id of the current page
+	 * @param value sort column value of the last row (may be null)
+	 * @return cursor token
+	 */
+	public static String encode(String sort, boolean descending, int id, String value) {
+		return encode(sort + SEPARATOR + (descending ? DESC : ASC) + SEPARATOR + id + SEPARATOR + (value == null ? NULL : VALUE + value));
+	}
+	
+	private static String encode(String cursor) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * @param cursor cursor token
+	 * @return decoded cursor
+	 * @throws ObjectValidationException
+	 */
+	public static PageCursor decode(String cursor) throws ObjectValidationException {
+		try {
+			// sort:direction:id[:value]
+			String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, 4);
+			
+			if (parts.length >= 3 && !parts[0].isEmpty() && (ASC.equals(parts[1]) || DESC.equals(parts[1])) && StringUtils.isNumeric(parts[2])
+					&& (parts.length == 3 || parts[3].startsWith(VALUE) || NULL.equals(parts[3]))) {
+				String value = parts.length == 4 && parts[3].startsWith(VALUE) ? parts[3].substring(VALUE.length()) : null;
+				// id out of range fails here
+				return new PageCursor(parts[0], DESC.equals(parts[1]), Integer.parseInt(parts[2]), value);
+			}
+		} catch (IllegalArgumentException e) {
+			// invalid base64 or id out of range
+		}
+		
+		throw new ObjectValidationException(MessagePool.getMessage(CURSOR_INVALID));
+	}
+	
+	/**
+	 * @param sort
+	 * @param descending
+	 * @return true if the cursor was issued for this sort column and direction
+	 */
+	public boolean matches(String sort, boolean descending) {
+		return this.sort.equals(sort) && this.descending == descending;
+	}
+	
+	/**
+	 * @return sort column of the page
+	 */
+	public String getSort() {
+		return sort;
+	}
+	
+	public boolean isDescending() {
+		return descending;
+	}
+	
+	/**
+	 * @return last id of the previous page
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * @return sort column value of the previous page (null for id cursors, or a null value)
+	 */
+	public String getValue() {
+		return value;
+	}
+}
@@ -0,0 +1,62 @@
+package org.babinkuk.common;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * virtual threads by reflection (the code compiles and runs on java 8+, virtual threads need java 21+)
+ *
+ * @author BabinKuk
+ *
+ */
+public final class VirtualThreads {
+	
+	private VirtualThreads() {
+		// static only
+	}
+	
+	/**
+	 * @return true if the runtime supports virtual threads
+	 */
+	public static boolean isSupported() {
+		return factory("probe-") != null;
+	}
+	
+	/**
+	 * Thread.ofVirtual().name(prefix, 1).factory()
+	 *
+	 * @param prefix thread name prefix (numbered from 1)
+	 * @return virtual thread factory, null if not supported
+	 */
+	public static ThreadFactory factory(String prefix) {
+		try {
+			// methods of the public Thread.Builder interface, the builder class itself is internal
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			Method name = builderType.getMethod("name", String.class, long.class);
+			Method factory = builderType.getMethod("factory");
+			
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = name.invoke(builder, prefix, 1L);
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// not supported (or preview not enabled)
+			return null;
+		}
+	}
+	
+	/**
+	 * unbounded, one new virtual thread per task (same as Executors.newVirtualThreadPerTaskExecutor)
+	 * concurrency is limited where the threads wait for a resource (see DatabaseBulkhead)
+	 *
+	 * @param prefix thread name prefix
+	 * @return executor, null if not supported
+	 */
+	public static Executor perTaskExecutor(String prefix) {
+		ThreadFactory threadFactory = factory(prefix);
+		if (threadFactory == null) {
+			return null;
+		}
+		return command -> threadFactory.newThread(command).start();
+	}
+}
@@ -0,0 +1,20 @@
+package org.babinkuk.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * enables cache auto-configuration (caffeine, see spring.cache in application.yml)
+ * cache statistics are published as cache.* metrics
+ * 
+ * @author BabinKuk
+ *
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+	
+	public static final String EMPLOYEES = "employees";
+	public static final String EMPLOYEE_EMAILS = "employeeEmails";
+	
+}
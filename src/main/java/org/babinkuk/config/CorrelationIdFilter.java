@@ -0,0 +1,53 @@
+package org.babinkuk.config;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.logging.log4j.ThreadContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * request correlation id in the log context (%X{correlationId}) and the response header
+ * taken from the request header when well formed, generated otherwise
+ * 
+ * @author BabinKuk
+ *
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CorrelationIdFilter extends OncePerRequestFilter {
+	
+	public static final String HEADER = "X-Correlation-Id";
+	
+	public static final String KEY = "correlationId";
+	
+	// no log injection through the header
+	private static final Pattern VALID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+	
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		
+		String correlationId = request.getHeader(HEADER);
+		if (correlationId == null || !VALID.matcher(correlationId).matches()) {
+			correlationId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+		}
+		
+		ThreadContext.put(KEY, correlationId);
+		response.setHeader(HEADER, correlationId);
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			ThreadContext.remove(KEY);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package org.babinkuk.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.babinkuk.common.ApiResponse;
+import org.babinkuk.controller.Api;
+import org.babinkuk.validator.ValidationPlan;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * limits concurrent api requests to the number of database connections
+ * (open session in view: a request holds at most one connection until it completes,
+ * with parallel validation also one per concurrent lookup: permits = connections / connections per request)
+ *
+ * with virtual threads there is no worker pool limit, waiting requests park here (a semaphore,
+ * no carrier thread is pinned) instead of in the connection pool, and are rejected with 503
+ * after employee.bulkhead.timeout instead of failing on the pool connection-timeout
+ *
+ * async requests (export) keep the permit until the async request completes, the connection
+ * is held by the streaming thread after the request thread returns
+ *
+ * @author BabinKuk
+ *
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "employee.bulkhead.enabled", havingValue = "true")
+public class DatabaseBulkhead extends OncePerRequestFilter {
+	
+	public static final String METRIC_NAME = "employee.bulkhead";
+	
+	private static final String SERVICE_BUSY = "error_code_service_busy";
+	
+	private final int size;
+	
+	private final Semaphore permits;
+	
+	private final long timeoutMillis;
+	
+	private final MessageCatalog messageCatalog;
+	
+	private final ObjectMapper mapper;
+	
+	private final Counter rejected;
+	
+	@Autowired
+	public DatabaseBulkhead(
+			@Value("${employee.bulkhead.connections:10}") int connections,
+			@Value("${employee.validation.parallel.enabled:false}") boolean parallelValidation,
+			@Value("${employee.bulkhead.timeout:2s}") Duration timeout,
+			MessageCatalog messageCatalog,
+			ObjectMapper mapper,
+			MeterRegistry meterRegistry) {
+		// request thread and the lookups of parallel validation (ValidationPlan) at the same time
+		int connectionsPerRequest = parallelValidation ? 1 + ValidationPlan.maxWorkerSteps() : 1;
+		this.size = connections / connectionsPerRequest;
+		if (size < 1) {
+			// a single request could wait for its own connections
+			throw new IllegalStateException("employee.bulkhead.connections " + connections + " below " + connectionsPerRequest
+				+ " connections of a request with employee.validation.parallel.enabled");
+		}
+		// fair, waiting requests are served in arrival order
+		this.permits = new Semaphore(size, true);
+		this.timeoutMillis = timeout.toMillis();
+		this.messageCatalog = messageCatalog;
+		this.mapper = mapper;
+		
+		rejected = meterRegistry.counter(METRIC_NAME + ".rejected");
+		Gauge.builder(METRIC_NAME + ".available", this.permits, Semaphore::availablePermits)
+			.register(meterRegistry);
+		Gauge.builder(METRIC_NAME + ".waiting", this.permits, Semaphore::getQueueLength)
+			.register(meterRegistry);
+	}
+	
+	/**
+	 * @return concurrent api requests
+	 */
+	public int getPermits() {
+		return size;
+	}
+	
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		// api requests only (actuator stays available)
+		return !request.getRequestURI().startsWith(request.getContextPath() + Api.ROOT);
+	}
+	
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		
+		boolean acquired;
+		try {
+			acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			acquired = false;
+		}
+		
+		if (!acquired) {
+			rejected.increment();
+			
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+			response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+			response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			mapper.writeValue(response.getOutputStream(), new ApiResponse(HttpStatus.SERVICE_UNAVAILABLE, messageCatalog.get(SERVICE_BUSY)));
+			return;
+		}
+		
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			if (request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(new PermitRelease());
+			} else {
+				permits.release();
+			}
+		}
+	}
+	
+	/**
+	 * releases the permit of an async request once it completes (also after an error or a timeout)
+	 */
+	private class PermitRelease implements AsyncListener {
+		
+		private final AtomicBoolean released = new AtomicBoolean();
+		
+		@Override
+		public void onComplete(AsyncEvent event) {
+			if (released.compareAndSet(false, true)) {
+				permits.release();
+			}
+		}
+		
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			// followed by onComplete
+		}
+		
+		@Override
+		public void onError(AsyncEvent event) {
+			// followed by onComplete
+		}
+		
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			// async restarted by a dispatch, listeners have to register again
+			event.getAsyncContext().addListener(this);
+		}
+	}
+}
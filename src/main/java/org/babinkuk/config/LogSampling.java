@@ -0,0 +1,87 @@
+package org.babinkuk.config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.logging.log4j.ThreadContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * per endpoint sampling of request logs (employee.logging.sample-rate.<handler method name>)
+ * the decision is made once per request and kept in the log context, see isSampled()
+ * async requests (export) keep it for their async dispatch, the request thread is cleared when it returns
+ * 
+ * @author BabinKuk
+ *
+ */
+@Component
+public class LogSampling implements AsyncHandlerInterceptor {
+	
+	public static final String KEY = "sampled";
+	
+	// decision of the request, reused by its async dispatch
+	private static final String ATTRIBUTE = LogSampling.class.getName() + "." + KEY;
+	
+	private static final String RATE = "employee.logging.sample-rate.";
+	
+	@Autowired
+	private Environment environment;
+	
+	// rate per handler method, resolved once
+	private final Map<Method, Double> rates = new ConcurrentHashMap<Method, Double>();
+	
+	/**
+	 * @return true if request logs (payloads) of the current request are written
+	 */
+	public static boolean isSampled() {
+		return ThreadContext.containsKey(KEY);
+	}
+	
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (handler instanceof HandlerMethod) {
+			Boolean sampled = (Boolean) request.getAttribute(ATTRIBUTE);
+			
+			if (sampled == null) {
+				Method method = ((HandlerMethod) handler).getMethod();
+				double rate = rates.computeIfAbsent(method, this::rate);
+				
+				sampled = rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+				request.setAttribute(ATTRIBUTE, sampled);
+			}
+			
+			if (sampled) {
+				ThreadContext.put(KEY, "true");
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		ThreadContext.remove(KEY);
+	}
+	
+	/**
+	 * instead of afterCompletion when the handler started async processing,
+	 * the thread goes back to the pool (next request) before the async dispatch
+	 */
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		ThreadContext.remove(KEY);
+	}
+	
+	private double rate(Method method) {
+		return environment.getProperty(RATE + method.getName(), Double.class,
+			environment.getProperty(RATE + "default", Double.class, 1.0));
+	}
+}
@@ -0,0 +1,25 @@
+package org.babinkuk.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * request logging: correlation id (CorrelationIdFilter) and sampling (LogSampling)
+ * appenders and async loggers are configured in log4j2-spring.xml
+ * 
+ * @author BabinKuk
+ *
+ */
+@Configuration
+public class LoggingConfig implements WebMvcConfigurer {
+	
+	@Autowired
+	private LogSampling logSampling;
+	
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(logSampling);
+	}
+}
@@ -0,0 +1,190 @@
+package org.babinkuk.config;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.common.MessageTemplate;
+import org.babinkuk.validator.ValidatorCodes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * messages resolved once per supported locale (validator codes in an EnumMap, all keys of the
+ * base bundle as pre-parsed templates), so responses render without MessageSource lookups
+ * 
+ * unsupported locales use the table of the first supported locale,
+ * reload() drops the tables, they are resolved again from the MessageSource
+ * (bundle files are re-read when spring.messages.cache-duration is set)
+ * 
+ * @author BabinKuk
+ *
+ */
+@Component
+public class MessageCatalog {
+	
+	private final Logger log = LogManager.getLogger(getClass());
+	
+	private final MessageSource messageSource;
+	
+	private final String basename;
+	
+	private final List<Locale> locales;
+	
+	private final Map<Locale, Table> tables = new ConcurrentHashMap<Locale, Table>();
+	
+	// keys of the base bundle
+	private volatile Set<String> keys;
+	
+	public MessageCatalog(MessageSource messageSource,
+			@Value("${spring.messages.basename:messages}") String basename,
+			@Value("${employee.messages.locales:en}") List<String> locales) {
+		this.messageSource = messageSource;
+		this.basename = basename.split(",")[0].trim();
+		this.locales = locales.stream().map(Locale::forLanguageTag).collect(Collectors.toList());
+	}
+	
+	/**
+	 * @param code
+	 * @return message in the current locale
+	 */
+	public String get(ValidatorCodes code) {
+		Locale locale = LocaleContextHolder.getLocale();
+		String message = table(locale).codes.get(code);
+		
+		// not in the bundle (same exception as before)
+		return message != null ? message : messageSource.getMessage(code.getMessage(), null, locale);
+	}
+	
+	/**
+	 * @param key
+	 * @return message in the current locale
+	 * @throws NoSuchMessageException
+	 */
+	public String get(String key) {
+		return template(key, LocaleContextHolder.getLocale()).format();
+	}
+	
+	/**
+	 * @param key
+	 * @param args %s arguments
+	 * @return formatted message in the current locale
+	 * @throws NoSuchMessageException
+	 */
+	public String format(String key, Object... args) {
+		return template(key, LocaleContextHolder.getLocale()).format(args);
+	}
+	
+	/**
+	 * @param key
+	 * @param locale
+	 * @return template
+	 * @throws NoSuchMessageException
+	 */
+	public MessageTemplate template(String key, Locale locale) {
+		MessageTemplate template = table(locale).templates.get(key);
+		
+		if (template == null) {
+			// not in the base bundle (same exception as before if unknown)
+			template = new MessageTemplate(messageSource.getMessage(key, null, locale));
+		}
+		
+		return template;
+	}
+	
+	/**
+	 * drop resolved tables, they are rebuilt on next use
+	 * 
+	 * @return number of dropped tables
+	 */
+	public int reload() {
+		if (messageSource instanceof ReloadableResourceBundleMessageSource) {
+			((ReloadableResourceBundleMessageSource) messageSource).clearCacheIncludingAncestors();
+		}
+		
+		int size = tables.size();
+		keys = null;
+		tables.clear();
+		
+		log.info("message catalog reloaded ({} tables dropped)", size);
+		
+		return size;
+	}
+	
+	public List<Locale> getLocales() {
+		return Collections.unmodifiableList(locales);
+	}
+	
+	private Table table(Locale locale) {
+		Table table = tables.get(locale);
+		
+		if (table == null) {
+			Locale supported = locales.contains(locale) ? locale : locales.get(0);
+			table = tables.computeIfAbsent(supported, this::resolve);
+		}
+		
+		return table;
+	}
+	
+	private Table resolve(Locale locale) {
+		Table table = new Table();
+		
+		for (ValidatorCodes code : ValidatorCodes.values()) {
+			try {
+				table.codes.put(code, messageSource.getMessage(code.getMessage(), null, locale));
+			} catch (NoSuchMessageException e) {
+				// code without message (not used by the validators)
+				log.debug("no message for {}", code);
+			}
+		}
+		
+		for (String key : keys()) {
+			table.templates.put(key, new MessageTemplate(messageSource.getMessage(key, null, locale)));
+		}
+		
+		log.info("message catalog resolved for {} ({} keys)", locale, table.templates.size());
+		
+		return table;
+	}
+	
+	private Set<String> keys() {
+		Set<String> keys = this.keys;
+		
+		if (keys == null) {
+			try {
+				Properties properties = PropertiesLoaderUtils.loadProperties(new ClassPathResource(basename + ".properties"));
+				keys = properties.stringPropertyNames();
+			} catch (IOException e) {
+				log.warn("message bundle {} not readable ({}), messages are resolved on use", basename, e.toString());
+				keys = Collections.emptySet();
+			}
+			this.keys = keys;
+		}
+		
+		return keys;
+	}
+	
+	private static class Table {
+		
+		private final Map<ValidatorCodes, String> codes = new EnumMap<ValidatorCodes, String>(ValidatorCodes.class);
+		
+		private final Map<String, MessageTemplate> templates = new HashMap<String, MessageTemplate>();
+	}
+	
+}
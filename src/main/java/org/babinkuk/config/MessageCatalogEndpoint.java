@@ -0,0 +1,41 @@
+package org.babinkuk.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * actuator endpoint for the message catalog
+ * GET /actuator/messages - supported locales
+ * POST /actuator/messages - drop resolved messages (hot reload)
+ * 
+ * @author BabinKuk
+ *
+ */
+@Component
+@Endpoint(id = "messages")
+public class MessageCatalogEndpoint {
+	
+	@Autowired
+	private MessageCatalog messageCatalog;
+	
+	@ReadOperation
+	public Map<String, Object> messages() {
+		Map<String, Object> details = new LinkedHashMap<String, Object>();
+		details.put("locales", messageCatalog.getLocales());
+		return details;
+	}
+	
+	@WriteOperation
+	public Map<String, Object> reload() {
+		Map<String, Object> details = new LinkedHashMap<String, Object>();
+		details.put("dropped", messageCatalog.reload());
+		return details;
+	}
+	
+}
@@ -11,12 +11,28 @@ public class MessagePool {
 	
 	private static MessageSource messages;
 	
+	private static MessageCatalog catalog;
+	
 	@Autowired
-	public MessagePool(MessageSource messageSource) {
+	public MessagePool(MessageSource messageSource, MessageCatalog messageCatalog) {
 		messages = messages == null ? messageSource : messages;
+		catalog = catalog == null ? messageCatalog : catalog;
 	}
 	
 	public static String getMessage(final String key, final Object...arguments) {
+		if (arguments.length == 0) {
+			// resolved once (message catalog)
+			return catalog.template(key, Locale.getDefault()).format();
+		}
 		return messages.getMessage(key, arguments, Locale.getDefault());
 	}
+	
+	/**
+	 * @param key
+	 * @param arguments %s arguments
+	 * @return formatted message
+	 */
+	public static String format(final String key, final Object...arguments) {
+		return catalog.template(key, Locale.getDefault()).format(arguments);
+	}
 }
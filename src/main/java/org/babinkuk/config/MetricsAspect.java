@@ -0,0 +1,112 @@
+package org.babinkuk.config;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.babinkuk.service.EmployeeWarmUp;
+import org.babinkuk.validator.ValidatorImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * timers for the request stages below the controller (http.server.requests):
+ * validator, business rules, service and repository calls
+ *
+ * tags are method names only (bounded), timers are created once per method
+ * calls of the jit warm-up are not recorded
+ * percentile histograms are configured in management.metrics.distribution
+ *
+ * @author BabinKuk
+ *
+ */
+@Aspect
+@Component
+public class MetricsAspect {
+	
+	public static final String VALIDATOR = "employee.validator";
+	public static final String RULE = "employee.validator.rule";
+	public static final String SERVICE = "employee.service";
+	public static final String REPOSITORY = "employee.repository";
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	private final Map<Method, Timer> timers = new ConcurrentHashMap<Method, Timer>();
+	
+	@Around("execution(public * org.babinkuk.validator.ValidatorImpl.validate(..))")
+	public Object timeValidator(ProceedingJoinPoint joinPoint) throws Throwable {
+		return time(joinPoint, VALIDATOR);
+	}
+	
+	@Around("execution(public org.babinkuk.validator.ValidatorCodes org.babinkuk.validator.BusinessValidator.check*(..))")
+	public Object timeRule(ProceedingJoinPoint joinPoint) throws Throwable {
+		return time(joinPoint, RULE);
+	}
+	
+	@Around("execution(public * org.babinkuk.service.EmployeeServiceImpl.*(..))")
+	public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+		return time(joinPoint, SERVICE);
+	}
+	
+	// spring data proxy (the target is SimpleJpaRepository)
+	@Around("this(org.babinkuk.dao.EmployeeRepository)")
+	public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+		return time(joinPoint, REPOSITORY);
+	}
+	
+	private Object time(ProceedingJoinPoint joinPoint, String name) throws Throwable {
+		Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+		
+		Timer timer = timers.get(method);
+		if (timer == null) {
+			timer = timers.computeIfAbsent(method, m -> register(name, m));
+		}
+		
+		if (EmployeeWarmUp.isWarmingUp()) {
+			return joinPoint.proceed();
+		}
+		
+		long start = System.nanoTime();
+		try {
+			return joinPoint.proceed();
+		} finally {
+			timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+	
+	private Timer register(String name, Method method) {
+		return Timer.builder(name)
+			.tag("method", method.getName() + variant(method))
+			.register(meterRegistry);
+	}
+	
+	// overloads of validate (single object, id, batch, changed fields)
+	private String variant(Method method) {
+		if (method.getDeclaringClass() != ValidatorImpl.class || method.getParameterCount() < 2) {
+			return "";
+		}
+		Class<?> first = method.getParameterTypes()[0];
+		if (first == int.class) {
+			return "_id";
+		}
+		if (List.class.isAssignableFrom(first)) {
+			return "_batch";
+		}
+		if (Set.class.isAssignableFrom(method.getParameterTypes()[1])) {
+			return "_fields";
+		}
+		return "";
+	}
+
+}
@@ -0,0 +1,29 @@
+package org.babinkuk.config;
+
+import org.babinkuk.mapper.EmployeeMapper;
+import org.babinkuk.validator.BusinessValidator;
+import org.babinkuk.validator.Validator;
+import org.babinkuk.validator.ValidatorFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * fast start (faststart profile, spring.main.lazy-initialization)
+ * beans are created on first use, except for the ones on the request path listed here,
+ * they would otherwise be created (with their message catalog and metrics) by the first request
+ * 
+ * @author BabinKuk
+ *
+ */
+@Configuration
+public class StartupConfig {
+	
+	// static, read by boot's lazy initialization post processor before the other beans exist
+	@Bean
+	public static LazyInitializationExcludeFilter eagerRequestPathBeans() {
+		return LazyInitializationExcludeFilter.forBeanTypes(Validator.class, ValidatorFactory.class, BusinessValidator.class,
+			EmployeeMapper.class, MessageCatalog.class);
+	}
+	
+}
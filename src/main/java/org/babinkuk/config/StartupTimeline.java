@@ -0,0 +1,156 @@
+package org.babinkuk.config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationContextInitializedEvent;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+
+/**
+ * startup timeline: phases of SpringApplication.run (ms since the jvm start) and the slowest beans
+ * bean times are self times (instantiation, injection and init callbacks, without the beans created
+ * on the way), registered as a listener in Application.main and reported with the startup banner
+ *
+ * @author BabinKuk
+ *
+ */
+public class StartupTimeline implements ApplicationListener<ApplicationEvent>, Ordered {
+	
+	// per bean times (phases are always recorded)
+	public static final String ENABLED = "employee.startup.timeline.enabled";
+	
+	// reported beans
+	public static final String TOP = "employee.startup.timeline.top";
+	
+	// event -> jvm uptime (ms), a phase ends with its event (singletons and the web server: webServerInitialized)
+	private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+	
+	// bean name -> self time (ns)
+	private final Map<String, Long> beans = new ConcurrentHashMap<String, Long>();
+	
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		if (event instanceof ApplicationStartingEvent) {
+			phase("starting");
+		} else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+			phase("environmentPrepared");
+		} else if (event instanceof ApplicationContextInitializedEvent) {
+			phase("contextInitialized");
+		} else if (event instanceof ApplicationPreparedEvent) {
+			phase("prepared");
+			ApplicationPreparedEvent prepared = (ApplicationPreparedEvent) event;
+			if (prepared.getApplicationContext().getEnvironment().getProperty(ENABLED, Boolean.class, true)) {
+				prepared.getApplicationContext().getBeanFactory().addBeanPostProcessor(new BeanTimer());
+			}
+		} else if (event instanceof ContextRefreshedEvent) {
+			phase("contextRefreshed");
+		} else if (event instanceof WebServerInitializedEvent) {
+			phase("webServerInitialized");
+		} else if (event instanceof ApplicationStartedEvent) {
+			phase("started");
+		} else if (event instanceof ApplicationReadyEvent) {
+			phase("ready");
+		}
+	}
+	
+	// before the other listeners of an event (ready: index rebuilds), their time is in the next phase
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+	
+	private synchronized void phase(String name) {
+		phases.put(name, ManagementFactory.getRuntimeMXBean().getUptime());
+	}
+	
+	/**
+	 * @param top number of beans reported
+	 * @return phases (since the previous event and since the jvm start) and the slowest beans
+	 */
+	public synchronized String report(int top) {
+		phase("readyListeners");
+		
+		StringBuilder report = new StringBuilder("\nstartup timeline (ms, since previous event / since jvm start)");
+		long previous = 0;
+		for (Map.Entry<String, Long> phase : phases.entrySet()) {
+			report.append(String.format("%n  %-22s %7d %7d", phase.getKey(), phase.getValue() - previous, phase.getValue()));
+			previous = phase.getValue();
+		}
+		
+		if (!beans.isEmpty()) {
+			report.append(String.format("%nslowest beans (ms, self time) of %d", beans.size()));
+			beans.entrySet().stream()
+				.sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+				.limit(top)
+				.forEach(bean -> report.append(String.format("%n  %7d  %s", TimeUnit.NANOSECONDS.toMillis(bean.getValue()), bean.getKey())));
+		}
+		return report.toString();
+	}
+	
+	/**
+	 * times bean creation, from before instantiation to after initialization
+	 * beans created while creating another one are on a stack (per thread), their time is
+	 * taken out of the outer bean's time
+	 */
+	private class BeanTimer implements InstantiationAwareBeanPostProcessor {
+		
+		private final ThreadLocal<Deque<Frame>> creating = ThreadLocal.withInitial(ArrayDeque::new);
+		
+		@Override
+		public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
+			creating.get().push(new Frame(beanName));
+			return null;
+		}
+		
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+			Deque<Frame> stack = creating.get();
+			
+			// factory bean products are not instantiated here, frames of failed creations are dropped
+			if (stack.stream().noneMatch(frame -> frame.name.equals(beanName))) {
+				return bean;
+			}
+			Frame frame;
+			while (!(frame = stack.pop()).name.equals(beanName)) {
+				// abandoned
+			}
+			
+			long elapsed = System.nanoTime() - frame.start;
+			beans.merge(beanName, elapsed - frame.children, Long::sum);
+			if (!stack.isEmpty()) {
+				stack.peek().children += elapsed;
+			}
+			return bean;
+		}
+	}
+	
+	private static class Frame {
+		
+		private final String name;
+		
+		private final long start = System.nanoTime();
+		
+		// time of the beans created inside
+		private long children;
+		
+		Frame(String name) {
+			this.name = name;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package org.babinkuk.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.common.VirtualThreads;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * executor for concurrent validation lookups (employee.validation.parallel)
+ * bounded pool, threads are virtual when the runtime supports them (java 21+)
+ * 
+ * @author BabinKuk
+ *
+ */
+@Configuration
+public class ValidationConfig {
+	
+	private final Logger log = LogManager.getLogger(getClass());
+	
+	public static final String VALIDATION_EXECUTOR = "validationExecutor";
+	
+	@Bean(name = VALIDATION_EXECUTOR, destroyMethod = "shutdownNow")
+	@ConditionalOnProperty(name = "employee.validation.parallel.enabled", havingValue = "true")
+	public ThreadPoolExecutor validationExecutor(
+			@Value("${employee.validation.parallel.pool-size:8}") int poolSize,
+			@Value("${employee.validation.parallel.queue-size:100}") int queueSize) {
+		
+		ThreadFactory threadFactory = VirtualThreads.factory("validation-");
+		boolean virtual = threadFactory != null;
+		if (!virtual) {
+			AtomicInteger count = new AtomicInteger();
+			threadFactory = runnable -> {
+				Thread thread = new Thread(runnable, "validation-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			};
+		}
+		
+		// full queue runs the lookup on the caller thread (degrades to serial)
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<Runnable>(queueSize), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		
+		log.info("validation executor: {} threads, {} queued, virtual={}", poolSize, queueSize, virtual);
+		
+		return executor;
+	}
+	
+}
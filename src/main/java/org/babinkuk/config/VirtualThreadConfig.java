@@ -0,0 +1,73 @@
+package org.babinkuk.config;
+
+import java.util.concurrent.Executor;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.common.VirtualThreads;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * opt-in (employee.virtual-threads.enabled) request handling on virtual threads, needs java 21+
+ * tomcat requests and mvc async requests (export) run on one new virtual thread each,
+ * database concurrency is bounded by DatabaseBulkhead instead of the thread pool size
+ *
+ * @author BabinKuk
+ *
+ */
+@Configuration
+@Conditional(VirtualThreadConfig.OnVirtualThreads.class)
+public class VirtualThreadConfig {
+	
+	private final Logger log = LogManager.getLogger(getClass());
+	
+	public static final String ENABLED = "employee.virtual-threads.enabled";
+	
+	@Bean
+	public TomcatProtocolHandlerCustomizer<AbstractProtocol<?>> virtualThreadProtocolHandlerCustomizer() {
+		Executor executor = VirtualThreads.perTaskExecutor("http-vt-");
+		log.info("tomcat requests run on virtual threads");
+		
+		// replaces the tomcat worker pool (server.tomcat.threads.max no longer applies)
+		return protocolHandler -> protocolHandler.setExecutor(executor);
+	}
+	
+	// same name as boot's executor, used for mvc async requests (StreamingResponseBody)
+	@Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+	public AsyncTaskExecutor applicationTaskExecutor() {
+		return new TaskExecutorAdapter(VirtualThreads.perTaskExecutor("task-vt-"));
+	}
+	
+	/**
+	 * property is set and the runtime supports virtual threads
+	 */
+	static class OnVirtualThreads extends SpringBootCondition {
+		
+		private final Logger log = LogManager.getLogger(getClass());
+		
+		@Override
+		public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			if (!context.getEnvironment().getProperty(ENABLED, Boolean.class, false)) {
+				return ConditionOutcome.noMatch(ENABLED + " is not set");
+			}
+			if (!VirtualThreads.isSupported()) {
+				// opt-in without effect, keep running on platform threads
+				log.warn("{} is set, but java {} has no virtual threads (java 21+ required)", ENABLED, System.getProperty("java.version"));
+				return ConditionOutcome.noMatch("virtual threads are not supported by java " + System.getProperty("java.version"));
+			}
+			return ConditionOutcome.match("virtual threads enabled");
+		}
+	}
+
+}
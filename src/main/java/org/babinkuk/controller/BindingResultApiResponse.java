@@ -10,7 +10,7 @@ import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.babinkuk.common.ApiResponse;
-import org.springframework.context.MessageSource;
+import org.babinkuk.config.MessageCatalog;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.util.Assert;
 import org.springframework.validation.BindingResult;
@@ -31,16 +31,16 @@ public class BindingResultApiResponse extends ApiResponse implements Serializabl
 	
 	private final Logger log = LogManager.getLogger(getClass());
 	
-	private transient MessageSource messageSource;
+	private transient MessageCatalog messageCatalog;
 	
 	private transient BindingResult bindingResult;
 	
-	public BindingResultApiResponse(BindingResult bindingResult, MessageSource messageSource) {
+	public BindingResultApiResponse(BindingResult bindingResult, MessageCatalog messageCatalog) {
 		super();
 		Assert.notNull(bindingResult, "BindingResult must not be null");
-		Assert.notNull(messageSource, "MessageSource must not be null");
+		Assert.notNull(messageCatalog, "MessageCatalog must not be null");
 		this.bindingResult = bindingResult;
-		this.messageSource = messageSource;
+		this.messageCatalog = messageCatalog;
 	}
 	
 	public int getErrorCount() {
@@ -51,7 +51,7 @@ public class BindingResultApiResponse extends ApiResponse implements Serializabl
 		Locale locale = LocaleContextHolder.getLocale();
 		return this.bindingResult.getGlobalErrors().stream()
 			.map(e -> {
-				return messageSource.getMessage(e.getDefaultMessage(), new Object[] {}, locale);
+				return messageCatalog.template(e.getDefaultMessage(), locale).format();
 			}).collect(Collectors.toList());
 	}
 	
@@ -59,7 +59,7 @@ public class BindingResultApiResponse extends ApiResponse implements Serializabl
 		Locale locale = LocaleContextHolder.getLocale();
 		return this.bindingResult.getFieldErrors().stream()
 			.map(e -> {
-				return messageSource.getMessage(e.getDefaultMessage(), new Object[] {}, locale);
+				return messageCatalog.template(e.getDefaultMessage(), locale).format();
 			}).collect(Collectors.toList());
 	}
 	
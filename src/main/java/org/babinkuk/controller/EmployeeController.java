@@ -2,6 +2,7 @@ package org.babinkuk.controller;
 
 
 import org.babinkuk.service.EmployeeService;
+import org.babinkuk.service.EmployeeServiceImpl;
 import org.babinkuk.validator.ActionType;
 import org.babinkuk.validator.ValidatorFactory;
 import org.babinkuk.validator.ValidatorType;
@@ -9,29 +10,57 @@ import org.babinkuk.vo.EmployeeVO;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.babinkuk.common.ApiResponse;
+import org.babinkuk.common.BatchApiResponse;
+import org.babinkuk.common.BatchItemResult;
+import org.babinkuk.common.EntityTags;
+import org.babinkuk.common.ExportFormat;
+import org.babinkuk.common.PageCursor;
+import org.babinkuk.config.LogSampling;
+import org.babinkuk.config.MessagePool;
+import org.babinkuk.dao.EmployeeQuery;
+import org.babinkuk.dao.EmployeeSpecifications;
 import org.babinkuk.exception.ObjectException;
 import org.babinkuk.exception.ObjectNotFoundException;
 import org.babinkuk.exception.ObjectValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import javax.validation.Valid;
 
@@ -44,6 +73,27 @@ public class EmployeeController {
 	
 	private final Logger log = LogManager.getLogger(getClass());
 	
+	public static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
+	public static final String HEADER_PAGE_SIZE = "X-Page-Size";
+	public static final String HEADER_TOTAL_ESTIMATE = "X-Total-Estimate";
+	
+	public static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+	
+	private static final String VERSION_MISMATCH = "error_code_employee_version_mismatch";
+	
+	private static final String PATCH_INVALID = "error_code_patch_invalid";
+	
+	private static final String CURSOR_INVALID = "error_code_cursor_invalid";
+	
+	private static final String SORT_INVALID = "error_code_sort_invalid";
+	
+	private static final String ID_RANGE_INVALID = "error_code_id_range_invalid";
+	
+	private static final String SEARCH_QUERY_INVALID = "error_code_search_query_invalid";
+	
+	// patchable EmployeeVO properties
+	private static final Set<String> PATCH_FIELDS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("firstName", "lastName", "email")));
+	
 	// service
 	private EmployeeService employeeService;
 	
@@ -53,6 +103,21 @@ public class EmployeeController {
 	@Autowired
 	private ObjectMapper mapper;
 	
+	@Value("${employee.page.default-size:20}")
+	private int defaultPageSize;
+	
+	@Value("${employee.page.max-size:100}")
+	private int maxPageSize;
+	
+	@Value("${employee.batch.max-size:1000}")
+	private int maxBatchSize;
+	
+	@Value("${employee.search.default-size:10}")
+	private int defaultSearchSize;
+	
+	@Value("${employee.search.max-query-length:100}")
+	private int maxQueryLength;
+	
 	public EmployeeController() {
 		// TODO Auto-generated constructor stub
 	}
@@ -64,16 +129,184 @@ public class EmployeeController {
 
 	/**
 	 * expose GET "/employees"
-	 * get employee list
+	 * get employee page (keyset on the sort column and id)
+	 * next page cursor is returned in X-Next-Cursor header (absent on last page)
+	 * filters and sort columns are served by indexes, see EmployeeSpecifications
 	 *
-	 * @param 
-	 * @return ResponseEntity
+	 * @param after last id of the previous page (id sort only)
+	 * @param cursor opaque cursor from X-Next-Cursor (takes precedence over after, same sort only)
+	 * @param limit page size (capped at employee.page.max-size)
+	 * @param estimateTotal add X-Total-Estimate header
+	 * @param firstName first name prefix
+	 * @param lastName last name prefix
+	 * @param emailDomain email domain (part after @)
+	 * @param minId lowest id (inclusive)
+	 * @param maxId highest id (inclusive)
+	 * @param sort column[,asc|desc], one of id, firstName, lastName, email
+	 * @param request
+	 * @return ResponseEntity (304 if If-None-Match matches the collection ETag)
 	 */
 	@GetMapping("")
-	public ResponseEntity<Iterable<EmployeeVO>> getAllEmployees() {
-		log.info("Called EmployeeController.getAllEmployees");
-
-		return ResponseEntity.of(Optional.ofNullable(employeeService.getAllEmployees()));
+	public ResponseEntity<Iterable<EmployeeVO>> getAllEmployees(
+			@RequestParam(name = "after", required = false, defaultValue = "0") int after,
+			@RequestParam(name = "cursor", required = false) String cursor,
+			@RequestParam(name = "limit", required = false) Integer limit,
+			@RequestParam(name = "estimateTotal", required = false, defaultValue = "false") boolean estimateTotal,
+			@RequestParam(name = "firstName", required = false) String firstName,
+			@RequestParam(name = "lastName", required = false) String lastName,
+			@RequestParam(name = "emailDomain", required = false) String emailDomain,
+			@RequestParam(name = "minId", required = false) Integer minId,
+			@RequestParam(name = "maxId", required = false) Integer maxId,
+			@RequestParam(name = "sort", required = false) String sort,
+			WebRequest request) {
+		if (LogSampling.isSampled()) {
+			log.info("Called EmployeeController.getAllEmployees(after={}, limit={}, sort={})", after, limit, sort);
+		}
+		
+		// unchanged since the client's copy, nothing is loaded
+		String etag = employeeService.getCollectionTag();
+		if (request.checkNotModified(etag)) {
+			return null;
+		}
+		
+		EmployeeQuery query = new EmployeeQuery();
+		query.setFirstName(firstName);
+		query.setLastName(lastName);
+		query.setEmailDomain(emailDomain);
+		query.setMinId(minId);
+		query.setMaxId(maxId);
+		query.setAfterId(after);
+		setSort(query, sort);
+		
+		if (minId != null && maxId != null && minId > maxId) {
+			throw new ObjectValidationException(MessagePool.format(ID_RANGE_INVALID, minId, maxId));
+		}
+		
+		if (cursor != null) {
+			PageCursor pageCursor = PageCursor.decode(cursor);
+			
+			// cursor of a page with another sort column or direction
+			if (!pageCursor.matches(query.getSort(), query.isDescending())) {
+				throw new ObjectValidationException(MessagePool.getMessage(CURSOR_INVALID));
+			}
+			
+			query.setAfterId(pageCursor.getId());
+			query.setAfterValue(pageCursor.getValue());
+		} else if (after > 0 && !EmployeeQuery.ID.equals(query.getSort())) {
+			// after is an id keyset, other sort columns continue with the cursor
+			throw new ObjectValidationException(MessagePool.getMessage(CURSOR_INVALID));
+		}
+		
+		int pageSize = (limit == null || limit < 1) ? defaultPageSize : Math.min(limit, maxPageSize);
+		query.setLimit(pageSize);
+		
+		Iterable<EmployeeVO> page = employeeService.findEmployees(query);
+		
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HEADER_PAGE_SIZE, String.valueOf(pageSize));
+		
+		EmployeeVO last = null;
+		int size = 0;
+		for (EmployeeVO employeeVO : page) {
+			last = employeeVO;
+			size++;
+		}
+		
+		if (size == pageSize) {
+			headers.set(HEADER_NEXT_CURSOR, nextCursor(last, query));
+		}
+		
+		if (estimateTotal) {
+			headers.set(HEADER_TOTAL_ESTIMATE, String.valueOf(employeeService.estimateEmployeeCount()));
+		}
+		
+		return ResponseEntity.ok().headers(headers).eTag(etag).body(page);
+	}
+	
+	// column[,asc|desc] on a whitelisted (indexed) column
+	private void setSort(EmployeeQuery query, String sort) {
+		if (sort == null) {
+			return;
+		}
+		
+		String[] parts = sort.split(",");
+		String direction = parts.length > 1 ? parts[1].trim() : "asc";
+		
+		if (parts.length > 2 || !EmployeeSpecifications.SORTABLE.contains(parts[0].trim())
+				|| !("asc".equalsIgnoreCase(direction) || "desc".equalsIgnoreCase(direction))) {
+			throw new ObjectValidationException(MessagePool.format(SORT_INVALID, sort));
+		}
+		
+		query.setSort(parts[0].trim());
+		query.setDescending("desc".equalsIgnoreCase(direction));
+	}
+	
+	private String nextCursor(EmployeeVO last, EmployeeQuery query) {
+		String sort = query.getSort();
+		boolean descending = query.isDescending();
+		
+		switch (sort) {
+		case EmployeeSpecifications.FIRST_NAME:
+			return PageCursor.encode(sort, descending, last.getId(), last.getFirstName());
+		case EmployeeSpecifications.LAST_NAME:
+			return PageCursor.encode(sort, descending, last.getId(), last.getLastName());
+		case EmployeeSpecifications.EMAIL:
+			return PageCursor.encode(sort, descending, last.getId(), last.getEmail());
+		default:
+			return PageCursor.encode(sort, descending, last.getId());
+		}
+	}
+	
+	/**
+	 * expose GET "/employees/search"
+	 * fuzzy search on first name, last name and email (search as you type)
+	 * served by the in-memory search index, see EmployeeSearchIndex
+	 *
+	 * @param q search text, the last word might be incomplete
+	 * @param limit number of results (capped at employee.page.max-size)
+	 * @return ResponseEntity best matches first
+	 */
+	@GetMapping("/search")
+	public ResponseEntity<Iterable<EmployeeVO>> searchEmployees(
+			@RequestParam(name = "q", required = false) String q,
+			@RequestParam(name = "limit", required = false) Integer limit) {
+		if (LogSampling.isSampled()) {
+			log.info("Called EmployeeController.searchEmployees(q={}, limit={})", q, limit);
+		}
+		
+		if (q == null || q.trim().isEmpty() || q.length() > maxQueryLength) {
+			throw new ObjectValidationException(MessagePool.format(SEARCH_QUERY_INVALID, maxQueryLength));
+		}
+		
+		int size = (limit == null || limit < 1) ? defaultSearchSize : Math.min(limit, maxPageSize);
+		
+		return ResponseEntity.ok(employeeService.searchEmployees(q, size));
+	}
+	
+	/**
+	 * expose GET "/employees/export"
+	 * stream all employees (NDJSON or JSON array), written as rows are read
+	 *
+	 * @param format NDJSON (default) or JSON
+	 * @return ResponseEntity
+	 */
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exportEmployees(
+			@RequestParam(name = "format", required = false, defaultValue = "ndjson") String format) {
+		if (LogSampling.isSampled()) {
+			log.info("Called EmployeeController.exportEmployees(format={})", format);
+		}
+		
+		ExportFormat exportFormat;
+		try {
+			exportFormat = ExportFormat.valueOfIgnoreCase(format);
+		} catch (IllegalArgumentException e) {
+			throw new ObjectValidationException(MessagePool.format("error_code_export_format_invalid", format));
+		}
+		
+		StreamingResponseBody body = outputStream -> employeeService.exportEmployees(outputStream, exportFormat);
+		
+		return ResponseEntity.ok().contentType(exportFormat.getMediaType()).body(body);
 	}
 	
 	/**
@@ -81,13 +314,18 @@ public class EmployeeController {
 	 * get employee
 	 * 			
 	 * @param employeeId
-	 * @return
+	 * @return ResponseEntity with version ETag (304 if If-None-Match matches)
 	 */
 	@GetMapping("/{employeeId}")
 	public ResponseEntity<EmployeeVO> getEmployee(@PathVariable int employeeId) {
-		log.info("Called EmployeeController.getEmployee(employeeId={})", employeeId);
+		if (LogSampling.isSampled()) {
+			log.info("Called EmployeeController.getEmployee(employeeId={})", employeeId);
+		}
 		
-		return ResponseEntity.of(Optional.ofNullable(employeeService.findById(employeeId)));
+		// If-None-Match is checked on the returned entity (body is not written on 304)
+		return Optional.ofNullable(employeeService.findById(employeeId))
+			.map(employeeVO -> ResponseEntity.ok().eTag(EntityTags.of(employeeVO.getVersion())).body(employeeVO))
+			.orElseGet(() -> ResponseEntity.notFound().build());
 	}
 	
 	/**
@@ -96,12 +334,13 @@ public class EmployeeController {
 	 * 
 	 * @param employeeVO
 	 * @return
-	 * @throws JsonProcessingException
 	 */
 	@PostMapping("")
 	public ResponseEntity<ApiResponse> addEmployee(
-			@Valid @RequestBody EmployeeVO employeeVO) throws JsonProcessingException {
-		log.info("Called EmployeeController.addEmployee({})", mapper.writeValueAsString(employeeVO));
+			@Valid @RequestBody EmployeeVO employeeVO) {
+		if (LogSampling.isSampled()) {
+			log.info("Called EmployeeController.addEmployee({})", () -> json(employeeVO));
+		}
 		
 		// in case id is passed in json, set to 0
 		// this is to force a save of new item ... instead of update
@@ -112,24 +351,139 @@ public class EmployeeController {
 		return ResponseEntity.of(Optional.ofNullable(employeeService.save(employeeVO)));
 	}
 	
+	/**
+	 * expose POST "/employees/batch"
+	 * add/update employees (id 0 inserts, otherwise updates), validated as a set
+	 * valid items are saved in one transaction, invalid items are reported per index
+	 * 
+	 * @param employeeVOs
+	 * @return
+	 */
+	@PostMapping("/batch")
+	public ResponseEntity<BatchApiResponse> saveEmployees(
+			@RequestBody List<EmployeeVO> employeeVOs) {
+		if (LogSampling.isSampled()) {
+			log.info("Called EmployeeController.saveEmployees(size={})", employeeVOs.size());
+		}
+		
+		if (employeeVOs.isEmpty() || employeeVOs.size() > maxBatchSize) {
+			throw new ObjectValidationException(MessagePool.format("error_code_batch_size_invalid", maxBatchSize));
+		}
+		
+		Map<Integer, List<String>> errors = validatorFactory.getValidator().validate(employeeVOs, ValidatorType.EMPLOYEE);
+		
+		List<EmployeeVO> validVOs = new ArrayList<EmployeeVO>(employeeVOs.size() - errors.size());
+		for (int i = 0; i < employeeVOs.size(); i++) {
+			if (!errors.containsKey(i)) {
+				validVOs.add(employeeVOs.get(i));
+			}
+		}
+		
+		Iterator<EmployeeVO> saved = (validVOs.isEmpty() ? validVOs : employeeService.saveAll(validVOs)).iterator();
+		
+		// per item results in request order
+		List<BatchItemResult> results = new ArrayList<BatchItemResult>(employeeVOs.size());
+		for (int i = 0; i < employeeVOs.size(); i++) {
+			if (errors.containsKey(i)) {
+				EmployeeVO invalidVO = employeeVOs.get(i);
+				results.add(new BatchItemResult(i, invalidVO == null ? 0 : invalidVO.getId(), HttpStatus.BAD_REQUEST, errors.get(i)));
+			} else {
+				results.add(new BatchItemResult(i, saved.next().getId(), HttpStatus.OK, null));
+			}
+		}
+		
+		BatchApiResponse response = new BatchApiResponse(HttpStatus.OK, MessagePool.getMessage(EmployeeServiceImpl.BATCH_SUCCESS), results);
+		Map<String, Object> details = new HashMap<String, Object>();
+		details.put("saved", validVOs.size());
+		details.put("failed", errors.size());
+		response.setAdditionalDetails(details);
+		
+		return ResponseEntity.ok(response);
+	}
+	
 	/**
 	 * expose PUT "/employees"
 	 * update employee
+	 * with If-Match only if the stored version matches (412 otherwise)
 	 * 
 	 * @param employeeVO
+	 * @param ifMatch
 	 * @return
-	 * @throws JsonProcessingException
 	 */
 	@PutMapping("")
 	public ResponseEntity<ApiResponse> updateEmployee(
-			@Valid @RequestBody EmployeeVO employeeVO) throws JsonProcessingException {
-		log.info("Called EmployeeController.updateEmployee({})", mapper.writeValueAsString(employeeVO));
+			@Valid @RequestBody EmployeeVO employeeVO,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		if (LogSampling.isSampled()) {
+			log.info("Called EmployeeController.updateEmployee({})", () -> json(employeeVO));
+		}
+		
+		if (ifMatch != null) {
+			// same row as used by validation and save (unit of work), a concurrent commit
+			// after this check fails the versioned update (ObjectOptimisticLockingFailureException)
+			EmployeeVO current = employeeService.loadForUpdate(employeeVO.getId());
+			
+			if (!EntityTags.matches(ifMatch, current.getVersion())) {
+				return new ApiResponse(HttpStatus.PRECONDITION_FAILED, MessagePool.format(VERSION_MISMATCH, employeeVO.getId())).toEntity();
+			}
+		}
 		
 		validatorFactory.getValidator().validate(employeeVO, ActionType.UPDATE, ValidatorType.EMPLOYEE);
 		
 		return ResponseEntity.of(Optional.ofNullable(employeeService.save(employeeVO)));
 	}
 	
+	/**
+	 * expose PATCH "/employees/{employeeId}"
+	 * partial update (JSON merge patch, RFC 7396)
+	 * only the fields in the patch are validated, only changed columns are updated
+	 * 
+	 * @param employeeId
+	 * @param patch
+	 * @param ifMatch
+	 * @return
+	 */
+	@PatchMapping(path = "/{employeeId}", consumes = {MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity<ApiResponse> patchEmployee(
+			@PathVariable int employeeId,
+			@RequestBody JsonNode patch,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		if (LogSampling.isSampled()) {
+			log.info("Called EmployeeController.patchEmployee(employeeId={}, {})", employeeId, patch);
+		}
+		
+		if (!patch.isObject()) {
+			throw new ObjectValidationException(MessagePool.getMessage(PATCH_INVALID));
+		}
+		
+		// stored employee (unit of work, reused by validation and save)
+		EmployeeVO employeeVO = employeeService.loadForUpdate(employeeId);
+		
+		if (ifMatch != null && !EntityTags.matches(ifMatch, employeeVO.getVersion())) {
+			return new ApiResponse(HttpStatus.PRECONDITION_FAILED, MessagePool.format(VERSION_MISMATCH, employeeId)).toEntity();
+		}
+		
+		// members present in the patch replace the stored values (null clears, fails validation)
+		Set<String> fields = new HashSet<String>();
+		patch.fieldNames().forEachRemaining(field -> {
+			if (PATCH_FIELDS.contains(field)) {
+				fields.add(field);
+			}
+		});
+		
+		try {
+			employeeVO = mapper.readerForUpdating(employeeVO).readValue(patch);
+		} catch (IOException e) {
+			// member of wrong type
+			throw new ObjectValidationException(MessagePool.getMessage(PATCH_INVALID));
+		}
+		employeeVO.setId(employeeId);
+		
+		validatorFactory.getValidator().validate(employeeVO, fields, ActionType.PATCH, ValidatorType.EMPLOYEE);
+		
+		return ResponseEntity.of(Optional.ofNullable(employeeService.save(employeeVO)));
+	}
+	
 	/**
 	 * expose DELETE "/{employeeId}"
 	 * 
@@ -140,13 +494,24 @@ public class EmployeeController {
 	@DeleteMapping("/{employeeId}")
 	public ResponseEntity<ApiResponse> deleteEmployee(
 			@PathVariable int employeeId) {
-		log.info("Called EmployeeController.deleteEmployee(employeeId={})", employeeId);
+		if (LogSampling.isSampled()) {
+			log.info("Called EmployeeController.deleteEmployee(employeeId={})", employeeId);
+		}
 		
 		validatorFactory.getValidator().validate(employeeId, ActionType.DELETE, ValidatorType.EMPLOYEE);
 		
 		return ResponseEntity.of(Optional.ofNullable(employeeService.delete(employeeId)));
 	}
 
+	// log payload (supplier argument, rendered only if the event is logged)
+	private String json(Object value) {
+		try {
+			return mapper.writeValueAsString(value);
+		} catch (JsonProcessingException e) {
+			return String.valueOf(value);
+		}
+	}
+	
 //	@ExceptionHandler
 //	public ResponseEntity<ApiResponse> handleException(Exception exc) {
 //		log.error("error 1");
@@ -159,6 +524,14 @@ public class EmployeeController {
 		return new ApiResponse(HttpStatus.INTERNAL_SERVER_ERROR, exc.getMessage()).toEntity();
 	}
 
+	@ExceptionHandler
+	public ResponseEntity<ApiResponse> handleException(ObjectOptimisticLockingFailureException exc, WebRequest request) {
+		
+		// concurrent update committed first (412 for conditional requests)
+		HttpStatus status = request.getHeader(HttpHeaders.IF_MATCH) != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+		return new ApiResponse(status, MessagePool.format(VERSION_MISMATCH, exc.getIdentifier())).toEntity();
+	}
+	
 	@ExceptionHandler
 	public ResponseEntity<ApiResponse> handleException(ObjectNotFoundException exc) {
 		
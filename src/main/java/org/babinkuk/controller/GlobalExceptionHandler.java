@@ -2,9 +2,8 @@ package org.babinkuk.controller;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.babinkuk.config.MessageCatalog;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.MessageSource;
-import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,7 +18,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 	private final Logger log = LogManager.getLogger(getClass());
 	
 	@Autowired
-	private MessageSource messageSource;
+	private MessageCatalog messageCatalog;
 	
 	@Override
 	protected ResponseEntity<Object> handleMethodArgumentNotValid(
@@ -29,8 +28,8 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 			WebRequest request) {
 		
 		log.warn("Handling MethodArgumentNotValidException", exception);
-		BindingResultApiResponse apiResponse = new BindingResultApiResponse(exception.getBindingResult(), messageSource);
-		apiResponse.setMessage(messageSource.getMessage("validation_failed", new Object[] {}, LocaleContextHolder.getLocale()));
+		BindingResultApiResponse apiResponse = new BindingResultApiResponse(exception.getBindingResult(), messageCatalog);
+		apiResponse.setMessage(messageCatalog.get("validation_failed"));
 		apiResponse.setStatus(status);
 		
 		return handleExceptionInternal(exception, apiResponse, headers, status, request);
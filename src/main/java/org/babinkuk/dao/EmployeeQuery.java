@@ -0,0 +1,134 @@
+package org.babinkuk.dao;
+
+/**
+ * filtered and sorted employee list (GET /employees), one keyset page
+ * all filters are optional, see EmployeeSpecifications
+ *
+ * @author BabinKuk
+ *
+ */
+public class EmployeeQuery {
+	
+	public static final String ID = "id";
+	
+	private String firstName;
+	
+	private String lastName;
+	
+	private String emailDomain;
+	
+	private Integer minId;
+	
+	private Integer maxId;
+	
+	// one of EmployeeSpecifications.SORTABLE
+	private String sort = ID;
+	
+	private boolean descending;
+	
+	// keyset of the previous page (id, and sort column value if not sorted by id, null values included)
+	private int afterId;
+	
+	private String afterValue;
+	
+	private int limit;
+	
+	public EmployeeQuery() {
+		// all rows, sorted by id
+	}
+	
+	/**
+	 * @return true if only the primary key is used (plain keyset page)
+	 */
+	public boolean isIdPage() {
+		return firstName == null && lastName == null && emailDomain == null
+			&& minId == null && maxId == null && ID.equals(sort) && !descending;
+	}
+	
+	public String getFirstName() {
+		return firstName;
+	}
+	
+	public void setFirstName(String firstName) {
+		this.firstName = firstName;
+	}
+	
+	public String getLastName() {
+		return lastName;
+	}
+	
+	public void setLastName(String lastName) {
+		this.lastName = lastName;
+	}
+	
+	public String getEmailDomain() {
+		return emailDomain;
+	}
+	
+	public void setEmailDomain(String emailDomain) {
+		this.emailDomain = emailDomain;
+	}
+	
+	public Integer getMinId() {
+		return minId;
+	}
+	
+	public void setMinId(Integer minId) {
+		this.minId = minId;
+	}
+	
+	public Integer getMaxId() {
+		return maxId;
+	}
+	
+	public void setMaxId(Integer maxId) {
+		this.maxId = maxId;
+	}
+	
+	public String getSort() {
+		return sort;
+	}
+	
+	public void setSort(String sort) {
+		this.sort = sort;
+	}
+	
+	public boolean isDescending() {
+		return descending;
+	}
+	
+	public void setDescending(boolean descending) {
+		this.descending = descending;
+	}
+	
+	public int getAfterId() {
+		return afterId;
+	}
+	
+	public void setAfterId(int afterId) {
+		this.afterId = afterId;
+	}
+	
+	public String getAfterValue() {
+		return afterValue;
+	}
+	
+	public void setAfterValue(String afterValue) {
+		this.afterValue = afterValue;
+	}
+	
+	public int getLimit() {
+		return limit;
+	}
+	
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+	
+	@Override
+	public String toString() {
+		return "EmployeeQuery [firstName=" + firstName + ", lastName=" + lastName + ", emailDomain=" + emailDomain
+			+ ", minId=" + minId + ", maxId=" + maxId + ", sort=" + sort + (descending ? " desc" : "")
+			+ ", afterId=" + afterId + ", afterValue=" + afterValue + ", limit=" + limit + "]";
+	}
+}
@@ -1,12 +1,73 @@
 package org.babinkuk.dao;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 import org.babinkuk.entity.Employee;
-import org.springframework.data.repository.CrudRepository;
+import org.babinkuk.vo.EmployeeVO;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
-public interface EmployeeRepository extends CrudRepository<Employee, Integer> {
+public interface EmployeeRepository extends PagingAndSortingRepository<Employee, Integer>, EmployeeRepositoryCustom {
+	
+	public static final String EXPORT_FETCH_SIZE = "500";
+	
+	// read-only DTO projection, selected straight into EmployeeVO
+	// (no managed entities, no dirty checking snapshots, no mapping)
+	public static final String VO = "new org.babinkuk.vo.EmployeeVO(e.id, e.firstName, e.lastName, e.email, e.version)";
+	
+	@Query("select " + VO + " from Employee e where e.id = :id")
+	public Optional<EmployeeVO> findVOById(@Param("id") int id);
+	
+	@Query("select " + VO + " from Employee e where e.email = :email")
+	public Optional<EmployeeVO> findVOByEmail(@Param("email") String email);
+	
+	// set lookups (batch validation)
+	@Query("select " + VO + " from Employee e where e.email in :emails")
+	public List<EmployeeVO> findVOByEmailIn(@Param("emails") Collection<String> emails);
+	
+	@Query("select " + VO + " from Employee e where e.id in :ids")
+	public List<EmployeeVO> findVOByIdIn(@Param("ids") Collection<Integer> ids);
+	
+	@Query("select " + VO + " from Employee e order by e.id")
+	public List<EmployeeVO> findAllVOs();
+	
+	// keyset (seek) page on the primary key index
+	@Query("select " + VO + " from Employee e where e.id > :id order by e.id")
+	public List<EmployeeVO> findVOPage(@Param("id") int after, Pageable pageable);
+	
+	// forward-only streamed read for export (must be consumed inside a transaction)
+	@QueryHints({
+		@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+		@QueryHint(name = HINT_CACHEABLE, value = "false")
+	})
+	@Query("select " + VO + " from Employee e order by e.id")
+	public Stream<EmployeeVO> streamVOs();
+	
+	// streamed email column only (email filter rebuild, must be consumed inside a transaction)
+	@QueryHints({
+		@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+		@QueryHint(name = HINT_CACHEABLE, value = "false")
+	})
+	@Query("select e.email from Employee e where e.email is not null")
+	public Stream<String> streamEmails();
+	
+	// estimated row count from the primary key range (index only, no full COUNT(*))
+	@Query("select coalesce(max(e.id) - min(e.id) + 1, 0) from Employee e")
+	public long estimateCount();
 	
-	// optional
-	public Optional<Employee> findByEmail(String email);
+	// collection state (row count, highest id, sum of versions) in one aggregate, no rows are transferred
+	// inserts, deletes and versioned updates change it, also when made by another instance or application
+	@Query("select concat(count(e), '-', coalesce(max(e.id), 0), '-', coalesce(sum(e.version), 0)) from Employee e")
+	public String collectionState();
 }
@@ -0,0 +1,27 @@
+package org.babinkuk.dao;
+
+import java.util.List;
+
+import org.babinkuk.entity.Employee;
+import org.babinkuk.vo.EmployeeVO;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * criteria queries of EmployeeRepository (implemented in EmployeeRepositoryImpl)
+ *
+ * @author BabinKuk
+ *
+ */
+public interface EmployeeRepositoryCustom {
+	
+	/**
+	 * same projection as the @Query methods (EmployeeRepository.VO)
+	 *
+	 * @param specification filter, null for all rows
+	 * @param sort
+	 * @param limit maximum number of rows
+	 * @return List<EmployeeVO>
+	 */
+	public List<EmployeeVO> findVOs(Specification<Employee> specification, Sort sort, int limit);
+}
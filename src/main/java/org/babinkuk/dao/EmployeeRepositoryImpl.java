@@ -0,0 +1,49 @@
+package org.babinkuk.dao;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.babinkuk.entity.Employee;
+import org.babinkuk.vo.EmployeeVO;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+/**
+ * EmployeeRepository fragment (found by the Impl suffix)
+ *
+ * @author BabinKuk
+ *
+ */
+public class EmployeeRepositoryImpl implements EmployeeRepositoryCustom {
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	@Override
+	public List<EmployeeVO> findVOs(Specification<Employee> specification, Sort sort, int limit) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<EmployeeVO> query = cb.createQuery(EmployeeVO.class);
+		Root<Employee> root = query.from(Employee.class);
+		
+		// read-only DTO projection, no managed entities
+		query.select(cb.construct(EmployeeVO.class,
+			root.get("id"), root.get("firstName"), root.get("lastName"), root.get("email"), root.get("version")));
+		
+		if (specification != null) {
+			Predicate predicate = specification.toPredicate(root, query, cb);
+			if (predicate != null) {
+				query.where(predicate);
+			}
+		}
+		query.orderBy(QueryUtils.toOrders(sort, root, cb));
+		
+		return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+	}
+}
@@ -0,0 +1,148 @@
+package org.babinkuk.dao;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+
+import org.babinkuk.entity.Employee;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * employee list filters, every predicate can be served by an index
+ * (prefix LIKE on first_name/last_name, equality on email_domain, range on the primary key)
+ * there is no contains/suffix match, it would scan the whole table
+ *
+ * @author BabinKuk
+ *
+ */
+public final class EmployeeSpecifications {
+	
+	public static final String FIRST_NAME = "firstName";
+	public static final String LAST_NAME = "lastName";
+	public static final String EMAIL = "email";
+	public static final String EMAIL_DOMAIN = "emailDomain";
+	
+	// indexed columns only (ORDER BY ... LIMIT reads the index instead of sorting all rows)
+	public static final Set<String> SORTABLE = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(EmployeeQuery.ID, FIRST_NAME, LAST_NAME, EMAIL)));
+	
+	private static final char ESCAPE = '\\';
+	
+	private EmployeeSpecifications() {
+		// static only
+	}
+	
+	/**
+	 * @param query
+	 * @return all filters and the keyset of the previous page
+	 */
+	public static Specification<Employee> of(EmployeeQuery query) {
+		return Specification.where(startsWith(FIRST_NAME, query.getFirstName()))
+			.and(startsWith(LAST_NAME, query.getLastName()))
+			.and(emailDomain(query.getEmailDomain()))
+			.and(idBetween(query.getMinId(), query.getMaxId()))
+			.and(after(query));
+	}
+	
+	/**
+	 * @param query
+	 * @return sort column, id as tie breaker (same direction)
+	 */
+	public static Sort sort(EmployeeQuery query) {
+		Sort.Direction direction = query.isDescending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+		
+		if (EmployeeQuery.ID.equals(query.getSort())) {
+			return Sort.by(direction, EmployeeQuery.ID);
+		}
+		return Sort.by(direction, query.getSort(), EmployeeQuery.ID);
+	}
+	
+	/**
+	 * @param attribute
+	 * @param prefix
+	 * @return attribute LIKE 'prefix%', null (no filter) for empty prefix
+	 */
+	public static Specification<Employee> startsWith(String attribute, String prefix) {
+		if (prefix == null || prefix.isEmpty()) {
+			return null;
+		}
+		// wildcards in the value are matched literally
+		String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+		return (root, query, cb) -> cb.like(root.get(attribute), pattern, ESCAPE);
+	}
+	
+	/**
+	 * @param domain
+	 * @return email_domain = domain (case insensitive)
+	 */
+	public static Specification<Employee> emailDomain(String domain) {
+		if (domain == null || domain.isEmpty()) {
+			return null;
+		}
+		String value = Employee.domainOf("@" + domain);
+		return (root, query, cb) -> cb.equal(root.get(EMAIL_DOMAIN), value);
+	}
+	
+	/**
+	 * @param min inclusive, null for open
+	 * @param max inclusive, null for open
+	 * @return id range
+	 */
+	public static Specification<Employee> idBetween(Integer min, Integer max) {
+		if (min == null && max == null) {
+			return null;
+		}
+		return (root, query, cb) -> {
+			Path<Integer> id = root.get(EmployeeQuery.ID);
+			if (min == null) {
+				return cb.le(id, max);
+			}
+			if (max == null) {
+				return cb.ge(id, min);
+			}
+			return cb.between(id, min, max);
+		};
+	}
+	
+	/**
+	 * rows after the last row of the previous page in sort order
+	 * (sort column, id) > (value, afterId), or < for descending
+	 * null values sort low (mysql and h2): first ascending, last descending
+	 *
+	 * @param query
+	 * @return keyset predicate, null for the first page
+	 */
+	public static Specification<Employee> after(EmployeeQuery query) {
+		if (query.getAfterId() <= 0) {
+			return null;
+		}
+		
+		boolean descending = query.isDescending();
+		int afterId = query.getAfterId();
+		
+		if (EmployeeQuery.ID.equals(query.getSort())) {
+			return (root, q, cb) -> descending
+				? cb.lessThan(root.get(EmployeeQuery.ID), afterId)
+				: cb.greaterThan(root.get(EmployeeQuery.ID), afterId);
+		}
+		
+		String sort = query.getSort();
+		String value = query.getAfterValue();
+		return (root, q, cb) -> {
+			Path<String> column = root.get(sort);
+			Path<Integer> id = root.get(EmployeeQuery.ID);
+			if (value == null) {
+				// last row had no value: rest of the nulls, then (ascending) all values
+				Predicate nulls = cb.and(cb.isNull(column), descending ? cb.lessThan(id, afterId) : cb.greaterThan(id, afterId));
+				return descending ? nulls : cb.or(nulls, cb.isNotNull(column));
+			}
+			return descending
+				? cb.or(cb.lessThan(column, value), cb.and(cb.equal(column, value), cb.lessThan(id, afterId)), cb.isNull(column))
+				: cb.or(cb.greaterThan(column, value), cb.and(cb.equal(column, value), cb.greaterThan(id, afterId)));
+		};
+	}
+}
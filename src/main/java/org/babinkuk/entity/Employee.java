@@ -1,18 +1,44 @@
 package org.babinkuk.entity;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
+// update statements set only the changed columns (PATCH)
+// indexes serve the list filters and sort columns (GET /employees), the email index is the unique constraint
+// existing MySQL databases: db/employee-email-domain-mysql.sql
+// second-level cache by id for the entity loads of writes (EmployeeUnitOfWork), reads are projections
+// jcache region, see application.conf, unique constraint: db/employee-email-unique-mysql.sql
 @Entity
-@Table(name="employee")
+@Table(name="employee", indexes = {
+	@Index(name = "idx_employee_first_name", columnList = "first_name"),
+	@Index(name = "idx_employee_last_name", columnList = "last_name"),
+	@Index(name = "idx_employee_email_domain", columnList = "email_domain")
+}, uniqueConstraints = {
+	@UniqueConstraint(name = "uk_employee_email", columnNames = "email")
+})
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "employee")
 public class Employee {
 	
+	// pooled sequence (table emulated on MySQL) instead of IDENTITY, so that inserts can be JDBC batched
+	// existing MySQL databases: db/employee-seq-mysql.sql
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_seq")
+	@SequenceGenerator(name = "employee_seq", sequenceName = "employee_seq", allocationSize = 50)
 	@Column(name = "id")
 	private int id;
 	
@@ -25,6 +51,17 @@ public class Employee {
 	@Column(name = "email")
 	private String email;
 	
+	// lower case part after the last @, derived by the database (a suffix LIKE on email can not use an index)
+	// never written, also set for rows inserted with plain sql, only read by the list filter
+	@Column(name = "email_domain", insertable = false, updatable = false,
+		columnDefinition = "varchar(255) as (lower(regexp_replace(email, '^.*@', '')))")
+	private String emailDomain;
+	
+	// optimistic locking, also the ETag of the employee (rows inserted without version start at 0)
+	@Version
+	@Column(name = "version", nullable = false, columnDefinition = "integer default 0")
+	private int version;
+	
 	public Employee() {
 		// TODO Auto-generated constructor stub
 	}
@@ -32,7 +69,7 @@ public class Employee {
 	public Employee(String firstName, String lastName, String email) {
 		this.firstName = firstName;
 		this.lastName = lastName;
-		this.email = email;
+		setEmail(email);
 	}
 
 	public int getId() {
@@ -67,6 +104,23 @@ public class Employee {
 		this.email = email;
 	}
 
+	public int getVersion() {
+		return version;
+	}
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
+	/**
+	 * @param email
+	 * @return lower case domain (as the email_domain column), null if email has no @
+	 */
+	public static String domainOf(String email) {
+		int at = email == null ? -1 : email.lastIndexOf('@');
+		return at < 0 ? null : email.substring(at + 1).trim().toLowerCase();
+	}
+
 	@Override
 	public String toString() {
 		return "Employee [firstName=" + firstName + ", lastName=" + lastName + ", email=" + email + "]";
@@ -15,4 +15,8 @@ public class ApplicationServiceException extends RuntimeException {
     public ApplicationServiceException(Throwable cause) {
         super(cause);
     }
+    
+    public ApplicationServiceException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }    
\ No newline at end of file
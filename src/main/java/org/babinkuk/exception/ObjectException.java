@@ -15,4 +15,8 @@ public class ObjectException extends ApplicationServiceException {
     public ObjectException(Throwable cause) {
         super(cause);
     }
+    
+    public ObjectException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
 }
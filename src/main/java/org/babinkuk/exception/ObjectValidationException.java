@@ -16,6 +16,17 @@ public class ObjectValidationException extends ObjectException {
     public ObjectValidationException(String message, Throwable cause) {
         super(message, cause);
     }
+    
+    /**
+     * validation result for the client, no stack trace needed
+     * 
+     * @param message
+     * @param validationErrors
+     */
+    public ObjectValidationException(String message, List<String> validationErrors) {
+        super(message, null, false, false);
+        this.validationErorrs = validationErrors;
+    }
 
     public boolean hasErrors()  {
     	return getValidationErrors().size() > 0;
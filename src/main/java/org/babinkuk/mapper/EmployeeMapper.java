@@ -48,11 +48,13 @@ public interface EmployeeMapper {
 	// for insert
 	@Named("toEntity")
 	//@Mapping(source = "email", target = "email")
+	@Mapping(target = "version", ignore = true)
 	Employee toEntity(EmployeeVO employeeVO);
 	
-	// for update
+	// for update (version is managed by hibernate)
 	@Named("toEntity")
 	//@Mapping(source = "email", target = "email")
+	@Mapping(target = "version", ignore = true)
 	Employee toEntity(EmployeeVO employeeVO, @MappingTarget Employee entity);
 	
 	@Named("toVO")
@@ -63,6 +65,16 @@ public interface EmployeeMapper {
 	@Mapping(source = "email", target = "email")
 	EmployeeVO toVODetails(Employee employee);
 	
+	@Named("copy")
+	EmployeeVO copy(EmployeeVO employeeVO);
+	
+	// update would not change the entity
+	default boolean isUnchanged(EmployeeVO employeeVO, Employee entity) {
+		return Objects.equals(employeeVO.getFirstName(), entity.getFirstName())
+			&& Objects.equals(employeeVO.getLastName(), entity.getLastName())
+			&& Objects.equals(employeeVO.getEmail(), entity.getEmail());
+	}
+	
 	@IterableMapping(qualifiedByName = "toEntity")
 	@BeanMapping(ignoreByDefault = true)
 	Iterable<Employee> toEntity(Iterable<EmployeeVO> employeeList);
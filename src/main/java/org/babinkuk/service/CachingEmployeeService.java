@@ -0,0 +1,228 @@
+package org.babinkuk.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.common.ApiResponse;
+import org.babinkuk.common.ExportFormat;
+import org.babinkuk.config.CacheConfig;
+import org.babinkuk.dao.EmployeeQuery;
+import org.babinkuk.exception.ObjectException;
+import org.babinkuk.exception.ObjectNotFoundException;
+import org.babinkuk.mapper.EmployeeMapper;
+import org.babinkuk.vo.EmployeeVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * read-through cache in front of EmployeeServiceImpl
+ * employees are cached by id, emails are cached as email -> id
+ * entries are evicted after the changing transaction commits
+ *
+ * a value read before a commit is not put after that commit's eviction (generation check),
+ * missing emails are never cached: a stale "email is free" would let a duplicate pass validation
+ * (changes made by other instances or plain sql are never evicted here)
+ *
+ * @author BabinKuk
+ *
+ */
+@Service
+@Primary
+public class CachingEmployeeService implements EmployeeService {
+	
+	private final Logger log = LogManager.getLogger(getClass());
+	
+	private final EmployeeService employeeService;
+	
+	private final EmployeeMapper employeeMapper;
+	
+	private final Cache employees;
+	
+	private final Cache employeeEmails;
+	
+	// incremented by every eviction, reads started before it do not fill the cache
+	private final AtomicLong generation = new AtomicLong();
+	
+	@Autowired
+	public CachingEmployeeService(EmployeeServiceImpl employeeService, EmployeeMapper employeeMapper, CacheManager cacheManager) {
+		this.employeeService = employeeService;
+		this.employeeMapper = employeeMapper;
+		this.employees = cacheManager.getCache(CacheConfig.EMPLOYEES);
+		this.employeeEmails = cacheManager.getCache(CacheConfig.EMPLOYEE_EMAILS);
+	}
+	
+	@Override
+	public EmployeeVO findById(int id) throws ObjectNotFoundException {
+		
+		if (!isCacheable()) {
+			return employeeService.findById(id);
+		}
+		
+		EmployeeVO employeeVO = employees.get(id, EmployeeVO.class);
+		
+		if (employeeVO == null) {
+			// not found is not cached, ObjectNotFoundException is thrown on every call
+			long readGeneration = generation.get();
+			employeeVO = employeeService.findById(id);
+			putIfCurrent(readGeneration, employees, id, employeeVO);
+		}
+		
+		// callers get their own copy, cached entry must stay unchanged
+		return employeeMapper.copy(employeeVO);
+	}
+	
+	@Override
+	public EmployeeVO findByEmail(String email) throws ObjectNotFoundException {
+		
+		if (email == null || !isCacheable()) {
+			return employeeService.findByEmail(email);
+		}
+		
+		Integer id = employeeEmails.get(email, Integer.class);
+		
+		if (id != null) {
+			EmployeeVO employeeVO = employees.get(id, EmployeeVO.class);
+			if (employeeVO != null && email.equals(employeeVO.getEmail())) {
+				return employeeMapper.copy(employeeVO);
+			}
+		}
+		
+		long readGeneration = generation.get();
+		EmployeeVO employeeVO = employeeService.findByEmail(email);
+		
+		if (employeeVO == null) {
+			// free, asked again on every call
+			return null;
+		}
+		
+		putIfCurrent(readGeneration, employees, employeeVO.getId(), employeeVO);
+		putIfCurrent(readGeneration, employeeEmails, email, employeeVO.getId());
+		
+		return employeeMapper.copy(employeeVO);
+	}
+	
+	/**
+	 * puts a value read in the given generation, unless an eviction happened since the read
+	 * the generation is checked again after the put: an eviction that started before the put is seen
+	 * there, one that starts after it removes the value itself (generation first, then evict)
+	 */
+	private void putIfCurrent(long readGeneration, Cache cache, Object key, Object value) {
+		if (generation.get() != readGeneration) {
+			return;
+		}
+		cache.put(key, value);
+		if (generation.get() != readGeneration) {
+			cache.evict(key);
+		}
+	}
+	
+	/**
+	 * evict changed employee after commit
+	 * (or right away when changed outside of transaction)
+	 *
+	 * @param event
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onEmployeeChanged(EmployeeChangedEvent event) {
+		log.debug("evict {}", event);
+		
+		EmployeeVO employeeVO = event.getEmployee();
+		
+		// before evicting, reads in flight must not put their values back
+		generation.incrementAndGet();
+		employees.evict(employeeVO.getId());
+		employeeEmails.evict(employeeVO.getEmail());
+		if (event.getPreviousEmail() != null) {
+			employeeEmails.evict(event.getPreviousEmail());
+		}
+	}
+	
+	/**
+	 * cache is bypassed inside read-write transaction
+	 * (it might read its own uncommitted changes)
+	 *
+	 * @return
+	 */
+	private boolean isCacheable() {
+		return !TransactionSynchronizationManager.isActualTransactionActive()
+				|| TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+	
+	@Override
+	public EmployeeVO loadForUpdate(int id) throws ObjectNotFoundException {
+		// write path reads the current row
+		return employeeService.loadForUpdate(id);
+	}
+	
+	@Override
+	public Iterable<EmployeeVO> getAllEmployees() {
+		return employeeService.getAllEmployees();
+	}
+	
+	@Override
+	public void exportEmployees(OutputStream outputStream, ExportFormat format) throws IOException {
+		employeeService.exportEmployees(outputStream, format);
+	}
+	
+	@Override
+	public Iterable<EmployeeVO> getEmployees(int after, int limit) {
+		return employeeService.getEmployees(after, limit);
+	}
+	
+	@Override
+	public Iterable<EmployeeVO> findEmployees(EmployeeQuery query) {
+		return employeeService.findEmployees(query);
+	}
+	
+	@Override
+	public Iterable<EmployeeVO> searchEmployees(String query, int limit) {
+		return employeeService.searchEmployees(query, limit);
+	}
+	
+	@Override
+	public long estimateEmployeeCount() {
+		return employeeService.estimateEmployeeCount();
+	}
+	
+	@Override
+	public String getCollectionTag() {
+		// not cached, writes of other instances must change it
+		return employeeService.getCollectionTag();
+	}
+	
+	@Override
+	public Iterable<EmployeeVO> findByEmails(Collection<String> emails) {
+		return employeeService.findByEmails(emails);
+	}
+	
+	@Override
+	public Iterable<EmployeeVO> findByIds(Collection<Integer> ids) {
+		return employeeService.findByIds(ids);
+	}
+	
+	@Override
+	public List<EmployeeVO> saveAll(List<EmployeeVO> employeeVOs) throws ObjectException {
+		return employeeService.saveAll(employeeVOs);
+	}
+	
+	@Override
+	public ApiResponse save(EmployeeVO employeeVO) throws ObjectException {
+		return employeeService.save(employeeVO);
+	}
+	
+	@Override
+	public ApiResponse delete(int id) throws ObjectNotFoundException {
+		return employeeService.delete(id);
+	}
+
+}
@@ -0,0 +1,37 @@
+package org.babinkuk.service;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * actuator endpoint for the email filter
+ * GET /actuator/emailfilter - filter state and hit statistics
+ * POST /actuator/emailfilter - rebuild from the database (drops deleted emails)
+ * 
+ * @author BabinKuk
+ *
+ */
+@Component
+@Endpoint(id = "emailfilter")
+public class EmailFilterEndpoint {
+	
+	@Autowired
+	private EmployeeEmailIndex employeeEmailIndex;
+	
+	@ReadOperation
+	public Map<String, Object> emailFilter() {
+		return employeeEmailIndex.describe();
+	}
+	
+	@WriteOperation
+	public Map<String, Object> rebuild() {
+		employeeEmailIndex.rebuild();
+		return employeeEmailIndex.describe();
+	}
+	
+}
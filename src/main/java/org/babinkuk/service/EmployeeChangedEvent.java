@@ -0,0 +1,49 @@
+package org.babinkuk.service;
+
+import org.babinkuk.vo.EmployeeVO;
+
+/**
+ * published by the employee service after an employee is saved or deleted
+ * (listeners interested in committed state use @TransactionalEventListener)
+ * 
+ * @author BabinKuk
+ *
+ */
+public class EmployeeChangedEvent {
+	
+	private final EmployeeVO employee;
+	
+	private final String previousEmail;
+	
+	private final boolean deleted;
+	
+	public EmployeeChangedEvent(EmployeeVO employee, String previousEmail, boolean deleted) {
+		this.employee = employee;
+		this.previousEmail = previousEmail;
+		this.deleted = deleted;
+	}
+	
+	/**
+	 * @return employee state after save (state before delete)
+	 */
+	public EmployeeVO getEmployee() {
+		return employee;
+	}
+	
+	/**
+	 * @return email before update (null on insert)
+	 */
+	public String getPreviousEmail() {
+		return previousEmail;
+	}
+	
+	public boolean isDeleted() {
+		return deleted;
+	}
+
+	@Override
+	public String toString() {
+		return "EmployeeChangedEvent [employee=" + employee + ", previousEmail=" + previousEmail + ", deleted=" + deleted + "]";
+	}
+	
+}
@@ -0,0 +1,273 @@
+package org.babinkuk.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.common.BloomFilter;
+import org.babinkuk.dao.EmployeeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * in-memory bloom filter of existing employee emails
+ * a hit must be confirmed in the database, a miss means the email is free only if every write goes
+ * through this instance (employee.email-filter.single-instance), otherwise it is confirmed as well
+ * (rows of other instances or plain sql are not in the filter, the unique constraint stays the backstop)
+ *
+ * built on startup, emails are added on save, deleted emails stay in the filter
+ * (only false positives) until the next rebuild (see EmailFilterEndpoint)
+ *
+ * @author BabinKuk
+ *
+ */
+@Component
+public class EmployeeEmailIndex {
+	
+	private final Logger log = LogManager.getLogger(getClass());
+	
+	public static final String METRIC_NAME = "employee.email.filter";
+	
+	@Autowired
+	private EmployeeRepository employeeRepository;
+	
+	@Value("${employee.email-filter.enabled:true}")
+	private boolean enabled;
+	
+	@Value("${employee.email-filter.min-capacity:10000}")
+	private long minCapacity;
+	
+	@Value("${employee.email-filter.fpp:0.01}")
+	private double fpp;
+	
+	@Value("${employee.email-filter.single-instance:false}")
+	private boolean singleInstance;
+	
+	private final TransactionTemplate readOnlyTransaction;
+	
+	private final Counter negatives;
+	private final Counter positives;
+	private final Counter falsePositives;
+	private final Counter falseNegatives;
+	private final Counter rebuilds;
+	
+	// null until built (everything is checked in the database)
+	private volatile BloomFilter filter;
+	
+	// emails saved while a rebuild is reading the table
+	private List<String> pending;
+	
+	// lock instead of a monitor, a virtual thread waiting for it does not pin its carrier thread
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	@Autowired
+	public EmployeeEmailIndex(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+		readOnlyTransaction = new TransactionTemplate(transactionManager);
+		readOnlyTransaction.setReadOnly(true);
+		
+		negatives = meterRegistry.counter(METRIC_NAME, "result", "negative");
+		positives = meterRegistry.counter(METRIC_NAME, "result", "positive");
+		falsePositives = meterRegistry.counter(METRIC_NAME, "result", "false_positive");
+		falseNegatives = meterRegistry.counter(METRIC_NAME, "result", "false_negative");
+		rebuilds = meterRegistry.counter(METRIC_NAME + ".rebuilds");
+		
+		Gauge.builder(METRIC_NAME + ".expected.fpp", this, index -> index.filter == null ? 1 : index.filter.expectedFpp())
+			.description("expected false positive probability")
+			.register(meterRegistry);
+		Gauge.builder(METRIC_NAME + ".observed.fpp", this, EmployeeEmailIndex::observedFpp)
+			.description("false positives per lookup of a free email")
+			.register(meterRegistry);
+		Gauge.builder(METRIC_NAME + ".insertions", this, index -> index.filter == null ? 0 : index.filter.getInsertions())
+			.register(meterRegistry);
+	}
+	
+	// built before the warm-up
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(EmployeeWarmUp.ORDER - 1)
+	public void onApplicationReady() {
+		if (enabled) {
+			rebuild();
+		}
+	}
+	
+	/**
+	 * (re)build filter from the employee table, sized to the current row count
+	 *
+	 * @return number of emails loaded
+	 */
+	public long rebuild() {
+		long start = System.currentTimeMillis();
+		
+		lock.lock();
+		try {
+			if (pending != null) {
+				log.warn("email filter rebuild already running");
+				return 0;
+			}
+			pending = new ArrayList<String>();
+		} finally {
+			lock.unlock();
+		}
+		
+		BloomFilter rebuilt;
+		try {
+			rebuilt = readOnlyTransaction.execute(status -> {
+				long capacity = Math.max(minCapacity, 2 * employeeRepository.count());
+				BloomFilter bloomFilter = new BloomFilter(capacity, fpp);
+				
+				try (Stream<String> emails = employeeRepository.streamEmails()) {
+					emails.forEach(email -> bloomFilter.put(key(email)));
+				}
+				return bloomFilter;
+			});
+		} catch (RuntimeException e) {
+			lock.lock();
+			try {
+				pending = null;
+			} finally {
+				lock.unlock();
+			}
+			throw e;
+		}
+		
+		lock.lock();
+		try {
+			pending.forEach(rebuilt::put);
+			pending = null;
+			filter = rebuilt;
+		} finally {
+			lock.unlock();
+		}
+		rebuilds.increment();
+		
+		log.info("email filter rebuilt, {} emails, {} bits, {} hashes in {} ms",
+			rebuilt.getInsertions(), rebuilt.getBitCount(), rebuilt.getHashCount(), System.currentTimeMillis() - start);
+		
+		return rebuilt.getInsertions();
+	}
+	
+	/**
+	 * @param email
+	 * @return false if email is not in the filter (not in the database, on a single instance)
+	 */
+	public boolean mightExist(String email) {
+		BloomFilter bloomFilter = filter;
+		
+		// inside read-write transaction the filter might miss own uncommitted changes
+		if (email == null || bloomFilter == null || !enabled
+				|| (TransactionSynchronizationManager.isActualTransactionActive() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+			return true;
+		}
+		
+		if (bloomFilter.mightContain(key(email))) {
+			positives.increment();
+			return true;
+		}
+		
+		negatives.increment();
+		return false;
+	}
+	
+	/**
+	 * @return true if a filter miss may skip the database lookup
+	 */
+	public boolean isSingleInstance() {
+		return singleInstance;
+	}
+	
+	/**
+	 * filter hit was not confirmed by the database
+	 */
+	public void falsePositive() {
+		falsePositives.increment();
+	}
+	
+	/**
+	 * filter miss was found in the database (written by another instance or plain sql)
+	 */
+	public void falseNegative() {
+		falseNegatives.increment();
+	}
+	
+	/**
+	 * email is added before commit (a rolled back insert only leaves a false positive)
+	 *
+	 * @param event
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+	public void onEmployeeChanged(EmployeeChangedEvent event) {
+		if (event.isDeleted() || event.getEmployee().getEmail() == null) {
+			return;
+		}
+		
+		String key = key(event.getEmployee().getEmail());
+		
+		lock.lock();
+		try {
+			if (pending != null) {
+				pending.add(key);
+			}
+			if (filter != null) {
+				filter.put(key);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return filter state (actuator)
+	 */
+	public Map<String, Object> describe() {
+		Map<String, Object> details = new LinkedHashMap<String, Object>();
+		BloomFilter bloomFilter = filter;
+		
+		details.put("enabled", enabled);
+		details.put("singleInstance", singleInstance);
+		details.put("built", bloomFilter != null);
+		if (bloomFilter != null) {
+			details.put("capacity", bloomFilter.getCapacity());
+			details.put("insertions", bloomFilter.getInsertions());
+			details.put("bits", bloomFilter.getBitCount());
+			details.put("hashes", bloomFilter.getHashCount());
+			details.put("expectedFpp", bloomFilter.expectedFpp());
+		}
+		details.put("negatives", negatives.count());
+		details.put("positives", positives.count());
+		details.put("falsePositives", falsePositives.count());
+		details.put("falseNegatives", falseNegatives.count());
+		details.put("observedFpp", observedFpp());
+		
+		return details;
+	}
+	
+	private double observedFpp() {
+		// free emails are the negatives plus the false positives
+		double free = negatives.count() + falsePositives.count();
+		return free == 0 ? 0 : falsePositives.count() / free;
+	}
+	
+	// superset of the database comparison (mysql collations ignore case and trailing spaces)
+	private static String key(String email) {
+		return email.trim().toLowerCase(Locale.ROOT);
+	}
+}
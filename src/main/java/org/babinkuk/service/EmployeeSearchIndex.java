@@ -0,0 +1,213 @@
+package org.babinkuk.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.common.NgramIndex;
+import org.babinkuk.dao.EmployeeRepository;
+import org.babinkuk.vo.EmployeeVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * in-memory trigram index of employee first name, last name and email (GET /employees/search)
+ * search as you type without LIKE '%...%' table scans
+ *
+ * built on startup (trigrams extracted in parallel), saved and deleted employees are
+ * applied after commit, so search results might lag behind a running transaction
+ *
+ * @author BabinKuk
+ *
+ */
+@Component
+public class EmployeeSearchIndex {
+	
+	private final Logger log = LogManager.getLogger(getClass());
+	
+	public static final String METRIC_NAME = "employee.search.index";
+	
+	@Autowired
+	private EmployeeRepository employeeRepository;
+	
+	@Value("${employee.search.enabled:true}")
+	private boolean enabled;
+	
+	@Value("${employee.search.min-score:0.5}")
+	private double minScore;
+	
+	private final TransactionTemplate readOnlyTransaction;
+	
+	private final Timer searches;
+	
+	// null until built (search falls back to the database)
+	private volatile NgramIndex<EmployeeVO> index;
+	
+	// changes committed while a rebuild is reading the table
+	private List<EmployeeChangedEvent> pending;
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	@Autowired
+	public EmployeeSearchIndex(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+		readOnlyTransaction = new TransactionTemplate(transactionManager);
+		readOnlyTransaction.setReadOnly(true);
+		
+		searches = meterRegistry.timer(METRIC_NAME + ".searches");
+		
+		Gauge.builder(METRIC_NAME + ".entries", this, index -> index.index == null ? 0 : index.index.size())
+			.register(meterRegistry);
+		Gauge.builder(METRIC_NAME + ".bytes", this, index -> index.index == null ? 0 : index.index.estimateBytes())
+			.description("estimated heap size of the index structures (without employee values)")
+			.register(meterRegistry);
+	}
+	
+	// built before the warm-up
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(EmployeeWarmUp.ORDER - 1)
+	public void onApplicationReady() {
+		if (enabled) {
+			rebuild();
+		}
+	}
+	
+	/**
+	 * (re)build index from the employee table
+	 *
+	 * @return number of employees indexed
+	 */
+	public int rebuild() {
+		long start = System.currentTimeMillis();
+		
+		lock.lock();
+		try {
+			if (pending != null) {
+				log.warn("search index rebuild already running");
+				return 0;
+			}
+			pending = new ArrayList<EmployeeChangedEvent>();
+		} finally {
+			lock.unlock();
+		}
+		
+		NgramIndex<EmployeeVO> rebuilt = new NgramIndex<EmployeeVO>();
+		try {
+			List<EmployeeVO> employees = readOnlyTransaction.execute(status -> {
+				try (Stream<EmployeeVO> stream = employeeRepository.streamVOs()) {
+					return stream.collect(Collectors.toList());
+				}
+			});
+			rebuilt.putAll(employees, EmployeeVO::getId, EmployeeSearchIndex::fields);
+		} catch (RuntimeException e) {
+			lock.lock();
+			try {
+				pending = null;
+			} finally {
+				lock.unlock();
+			}
+			throw e;
+		}
+		
+		lock.lock();
+		try {
+			pending.forEach(event -> apply(rebuilt, event));
+			pending = null;
+			index = rebuilt;
+		} finally {
+			lock.unlock();
+		}
+		
+		log.info("search index rebuilt, {} employees, {} trigrams, {} postings, ~{} bytes in {} ms",
+			rebuilt.size(), rebuilt.getGramCount(), rebuilt.getPostingCount(), rebuilt.estimateBytes(), System.currentTimeMillis() - start);
+		
+		return rebuilt.size();
+	}
+	
+	/**
+	 * @param query
+	 * @param limit
+	 * @return best matches first, null if the index is not built
+	 */
+	public List<EmployeeVO> search(String query, int limit) {
+		NgramIndex<EmployeeVO> current = index;
+		if (current == null || !enabled) {
+			return null;
+		}
+		return searches.record(() -> current.search(query, limit, minScore));
+	}
+	
+	/**
+	 * committed changes only (a rolled back save must not be found)
+	 *
+	 * @param event
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+	public void onEmployeeChanged(EmployeeChangedEvent event) {
+		lock.lock();
+		try {
+			if (pending != null) {
+				pending.add(event);
+			}
+			NgramIndex<EmployeeVO> current = index;
+			if (current != null) {
+				apply(current, event);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return index state (actuator)
+	 */
+	public Map<String, Object> describe() {
+		Map<String, Object> details = new LinkedHashMap<String, Object>();
+		NgramIndex<EmployeeVO> current = index;
+		
+		details.put("enabled", enabled);
+		details.put("built", current != null);
+		if (current != null) {
+			details.put("entries", current.size());
+			details.put("trigrams", current.getGramCount());
+			details.put("postings", current.getPostingCount());
+			details.put("estimatedBytes", current.estimateBytes());
+		}
+		details.put("minScore", minScore);
+		details.put("searches", searches.count());
+		
+		return details;
+	}
+	
+	private static void apply(NgramIndex<EmployeeVO> index, EmployeeChangedEvent event) {
+		EmployeeVO employeeVO = event.getEmployee();
+		if (event.isDeleted()) {
+			index.remove(employeeVO.getId());
+		} else {
+			// own copy, the event value is returned to the caller of save
+			EmployeeVO indexed = new EmployeeVO(employeeVO.getId(), employeeVO.getFirstName(), employeeVO.getLastName(), employeeVO.getEmail(), employeeVO.getVersion());
+			index.put(indexed.getId(), indexed, fields(indexed));
+		}
+	}
+	
+	private static String[] fields(EmployeeVO employeeVO) {
+		return new String[] {employeeVO.getFirstName(), employeeVO.getLastName(), employeeVO.getEmail()};
+	}
+}
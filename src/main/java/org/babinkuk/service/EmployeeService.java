@@ -1,6 +1,13 @@
 package org.babinkuk.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+
 import org.babinkuk.common.ApiResponse;
+import org.babinkuk.common.ExportFormat;
+import org.babinkuk.dao.EmployeeQuery;
 import org.babinkuk.exception.ObjectException;
 import org.babinkuk.exception.ObjectNotFoundException;
 import org.babinkuk.vo.EmployeeVO;
@@ -14,6 +21,57 @@ public interface EmployeeService {
 	 */
 	public Iterable<EmployeeVO> getAllEmployees();
 	
+	/**
+	 * export all employees, each row is mapped and written as it is read
+	 * 
+	 * @param outputStream
+	 * @param format
+	 * @throws IOException
+	 */
+	public void exportEmployees(OutputStream outputStream, ExportFormat format) throws IOException;
+	
+	/**
+	 * get employee page (keyset on id)
+	 * 
+	 * @param after last id of the previous page (0 for the first page)
+	 * @param limit page size
+	 * @return Iterable<EmployeeVO>
+	 */
+	public Iterable<EmployeeVO> getEmployees(int after, int limit);
+	
+	/**
+	 * get filtered and sorted employee page (keyset on sort column and id)
+	 * 
+	 * @param query
+	 * @return Iterable<EmployeeVO>
+	 */
+	public Iterable<EmployeeVO> findEmployees(EmployeeQuery query);
+	
+	/**
+	 * fuzzy search on first name, last name and email (search as you type)
+	 * results come from the in-memory search index (committed changes only)
+	 * 
+	 * @param query
+	 * @param limit maximum number of results
+	 * @return Iterable<EmployeeVO> best matches first
+	 */
+	public Iterable<EmployeeVO> searchEmployees(String query, int limit);
+	
+	/**
+	 * get estimated employee count (from the id range, without a full count)
+	 * 
+	 * @return long
+	 */
+	public long estimateEmployeeCount();
+	
+	/**
+	 * get collection ETag (GET /employees), from the database state of all employees
+	 * must be read before the list is loaded (a change committed in between only makes the next request a 200)
+	 * 
+	 * @return String
+	 */
+	public String getCollectionTag();
+	
 	/**
 	 * get student (by id)
 	 * 
@@ -23,6 +81,15 @@ public interface EmployeeService {
 	 */
 	public EmployeeVO findById(int id) throws ObjectNotFoundException;
 	
+	/**
+	 * get employee for update or delete (not cached, entity is reused by save/delete in the same request)
+	 * 
+	 * @param id
+	 * @return EmployeeVO
+	 * @throws ObjectNotFoundException
+	 */
+	public EmployeeVO loadForUpdate(int id) throws ObjectNotFoundException;
+	
 	/**
 	 * get student (by email)
 	 * 
@@ -32,6 +99,32 @@ public interface EmployeeService {
 	 */
 	public EmployeeVO findByEmail(String email) throws ObjectNotFoundException;
 	
+	/**
+	 * get employees (by email), single query
+	 * 
+	 * @param emails
+	 * @return Iterable<EmployeeVO>
+	 */
+	public Iterable<EmployeeVO> findByEmails(Collection<String> emails);
+	
+	/**
+	 * get employees (by id), single query
+	 * 
+	 * @param ids
+	 * @return Iterable<EmployeeVO>
+	 */
+	public Iterable<EmployeeVO> findByIds(Collection<Integer> ids);
+	
+	/**
+	 * save employees (on insert/update) in a single transaction using JDBC batching
+	 * items must be validated
+	 * 
+	 * @param employeeVOs
+	 * @return saved employees (with generated ids) in request order
+	 * @throws ObjectException
+	 */
+	public List<EmployeeVO> saveAll(List<EmployeeVO> employeeVOs) throws ObjectException;
+	
 	/**
 	 * save student (on insert/update)
 	 * 
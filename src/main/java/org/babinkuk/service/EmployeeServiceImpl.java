@@ -1,23 +1,44 @@
 package org.babinkuk.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.babinkuk.common.ApiResponse;
+import org.babinkuk.common.EntityTags;
+import org.babinkuk.common.ExportFormat;
+import org.babinkuk.config.MessageCatalog;
+import org.babinkuk.dao.EmployeeQuery;
 import org.babinkuk.dao.EmployeeRepository;
+import org.babinkuk.dao.EmployeeSpecifications;
 import org.babinkuk.entity.Employee;
 import org.babinkuk.exception.ObjectException;
 import org.babinkuk.exception.ObjectNotFoundException;
 import org.babinkuk.mapper.EmployeeMapper;
 import org.babinkuk.vo.EmployeeVO;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.MessageSource;
-import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 @Service
 public class EmployeeServiceImpl implements EmployeeService {
@@ -26,6 +47,7 @@ public class EmployeeServiceImpl implements EmployeeService {
 	
 	public static String SAVE_SUCCESS = "employee_save_success";
 	public static String DELETE_SUCCESS = "employee_delete_success";
+	public static String BATCH_SUCCESS = "employee_batch_success";
 	
 	@Autowired
 	private EmployeeRepository employeeRepository;
@@ -37,7 +59,16 @@ public class EmployeeServiceImpl implements EmployeeService {
 	private EmployeeMapper employeeMapper;
 	
 	@Autowired
-	private MessageSource messageSource;
+	private MessageCatalog messageCatalog;
+	
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
+	@Autowired
+	private EmployeeUnitOfWork unitOfWork;
+	
+	@Autowired
+	private EmployeeSearchIndex employeeSearchIndex;
 	
 	@Autowired
 	public EmployeeServiceImpl(EmployeeRepository studentRepository) {
@@ -49,51 +80,58 @@ public class EmployeeServiceImpl implements EmployeeService {
 	}
 	
 	private String getMessage(String str) {
-		return messageSource.getMessage(str, new Object[] {}, LocaleContextHolder.getLocale());
+		return messageCatalog.get(str);
 	}
 	
 	@Override
+	@Transactional(readOnly = true)
 	public EmployeeVO findById(int id) throws ObjectNotFoundException {
 		
-		Optional<Employee> result = employeeRepository.findById(id);
-		
-		Employee employee = null;
-		EmployeeVO employeeVO = null;
+		// projection, no entity is loaded
+		Optional<EmployeeVO> result = employeeRepository.findVOById(id);
 		
 		if (result.isPresent()) {
-			employee = result.get();
-			log.info("employee ({})", employee);
-			
-			// mapping
-			employeeVO = employeeMapper.toVODetails(employee);
-			log.info("employeeVO ({})", employeeVO);
+			log.debug("employeeVO ({})", result.get());
 			
-			return employeeVO;
+			return result.get();
 		} else {
 			// not found
-			String message = String.format(getMessage("error_code_employee_id_not_found"), id);
+			String message = messageCatalog.format("error_code_employee_id_not_found", id);
 			log.warn(message);
 			throw new ObjectNotFoundException(message);
 		}
 	}
 	
 	@Override
+	public EmployeeVO loadForUpdate(int id) throws ObjectNotFoundException {
+		
+		Optional<Employee> result = unitOfWork.load(id);
+		
+		if (result.isPresent()) {
+			return employeeMapper.toVODetails(result.get());
+		} else {
+			// not found
+			String message = messageCatalog.format("error_code_employee_id_not_found", id);
+			log.warn(message);
+			throw new ObjectNotFoundException(message);
+		}
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
 	public EmployeeVO findByEmail(String email) {
 		
-		Optional<Employee> result = employeeRepository.findByEmail(email);
+		// projection, no entity is loaded
+		Optional<EmployeeVO> result = employeeRepository.findVOByEmail(email);
 		
-		Employee employee = null;
 		EmployeeVO employeeVO = null;
 		
 		if (result.isPresent()) {
-			employee = result.get();
-			
-			// mapping
-			employeeVO = employeeMapper.toVO(employee);
-			log.info("employeeVO ({})", employeeVO);
+			employeeVO = result.get();
+			log.debug("employeeVO ({})", employeeVO);
 		} else {
 			// not found
-			String message = String.format(getMessage("error_code_employee_email_not_found"), email);
+			String message = messageCatalog.format("error_code_employee_email_not_found", email);
 			log.warn(message);
 		}
 
@@ -101,6 +139,7 @@ public class EmployeeServiceImpl implements EmployeeService {
 	}
 		
 	@Override
+	@Transactional
 	public ApiResponse save(EmployeeVO employeeVO) throws ObjectException {
 		
 		ApiResponse response = new ApiResponse();
@@ -108,14 +147,23 @@ public class EmployeeServiceImpl implements EmployeeService {
 		response.setStatus(HttpStatus.OK);
 		response.setMessage(getMessage(SAVE_SUCCESS));
 		
-		Optional<Employee> entity = employeeRepository.findById(employeeVO.getId());
+		// same entity as loaded by validation (loadForUpdate)
+		Optional<Employee> entity = unitOfWork.load(employeeVO.getId());
 		
 		Employee employee = null;
+		String previousEmail = null;
 		
 		if (entity.isPresent()) {
 			employee = entity.get();
+			previousEmail = employee.getEmail();
 			//log.info("mapping for update");
 			
+			if (employeeMapper.isUnchanged(employeeVO, employee)) {
+				// nothing to update
+				log.debug("employee ({}) unchanged", employee);
+				return response;
+			}
+			
 			// mapping
 			employee = employeeMapper.toEntity(employeeVO, employee);
 		} else {
@@ -126,14 +174,75 @@ public class EmployeeServiceImpl implements EmployeeService {
 			employee = employeeMapper.toEntity(employeeVO);
 		}
 
-		log.info("employee ({})", employee);
+		log.debug("employee ({})", employee);
 		
-		employeeRepository.save(employee);
+		employee = employeeRepository.save(employee);
+		
+		eventPublisher.publishEvent(new EmployeeChangedEvent(employeeMapper.toVO(employee), previousEmail, false));
 		
 		return response;
 	}
 	
 	@Override
+	@Transactional(readOnly = true)
+	public Iterable<EmployeeVO> findByEmails(Collection<String> emails) {
+		return employeeRepository.findVOByEmailIn(emails);
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Iterable<EmployeeVO> findByIds(Collection<Integer> ids) {
+		return employeeRepository.findVOByIdIn(ids);
+	}
+	
+	@Override
+	@Transactional
+	public List<EmployeeVO> saveAll(List<EmployeeVO> employeeVOs) throws ObjectException {
+		
+		// load all updated employees with one query
+		Map<Integer, Employee> existing = new HashMap<Integer, Employee>();
+		List<Integer> ids = employeeVOs.stream().map(EmployeeVO::getId).filter(id -> id > 0).collect(Collectors.toList());
+		
+		if (!ids.isEmpty()) {
+			for (Employee employee : employeeRepository.findAllById(ids)) {
+				existing.put(employee.getId(), employee);
+			}
+		}
+		
+		List<Employee> employees = new ArrayList<Employee>(employeeVOs.size());
+		List<String> previousEmails = new ArrayList<String>(employeeVOs.size());
+		
+		for (EmployeeVO employeeVO : employeeVOs) {
+			Employee employee = existing.get(employeeVO.getId());
+			
+			// mapping
+			if (employee != null) {
+				previousEmails.add(employee.getEmail());
+				employees.add(employeeMapper.toEntity(employeeVO, employee));
+			} else {
+				// unknown id is inserted, the request object is left as it is
+				EmployeeVO insertVO = employeeMapper.copy(employeeVO);
+				insertVO.setId(0);
+				previousEmails.add(null);
+				employees.add(employeeMapper.toEntity(insertVO));
+			}
+		}
+		
+		log.debug("saving {} employees", employees.size());
+		
+		// inserts and updates are flushed as JDBC batches on commit
+		List<EmployeeVO> result = new ArrayList<EmployeeVO>(employees.size());
+		for (Employee employee : employeeRepository.saveAll(employees)) {
+			EmployeeVO savedVO = employeeMapper.toVO(employee);
+			eventPublisher.publishEvent(new EmployeeChangedEvent(savedVO, previousEmails.get(result.size()), false));
+			result.add(savedVO);
+		}
+		
+		return result;
+	}
+	
+	@Override
+	@Transactional
 	public ApiResponse delete(int id) throws ObjectNotFoundException {
 		
 		ApiResponse response = new ApiResponse();
@@ -141,13 +250,102 @@ public class EmployeeServiceImpl implements EmployeeService {
 		response.setStatus(HttpStatus.OK);
 		response.setMessage(getMessage(DELETE_SUCCESS));
 		
-		employeeRepository.deleteById(id);
+		// same as deleteById, but the deleted state is needed for the event
+		Employee employee = unitOfWork.load(id).orElseThrow(() -> 
+			new EmptyResultDataAccessException(String.format("No %s entity with id %s exists!", Employee.class, id), 1));
+		
+		employeeRepository.delete(employee);
+		unitOfWork.remove(id);
+		
+		eventPublisher.publishEvent(new EmployeeChangedEvent(employeeMapper.toVO(employee), employee.getEmail(), true));
 		
 		return response;
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public Iterable<EmployeeVO> getAllEmployees() {
-		return employeeMapper.toVO(employeeRepository.findAll());
+		return employeeRepository.findAllVOs();
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public void exportEmployees(OutputStream outputStream, ExportFormat format) throws IOException {
+		
+		ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		
+		try (Stream<EmployeeVO> stream = employeeRepository.streamVOs();
+				JsonGenerator generator = mapper.getFactory().createGenerator(outputStream)) {
+			
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			generator.setRootValueSeparator(null);
+			
+			if (format == ExportFormat.JSON) {
+				generator.writeStartArray();
+			}
+			
+			// projection rows are not kept in the persistence context
+			Iterator<EmployeeVO> iterator = stream.iterator();
+			while (iterator.hasNext()) {
+				writer.writeValue(generator, iterator.next());
+				
+				if (format == ExportFormat.NDJSON) {
+					generator.writeRaw('\n');
+				}
+			}
+			
+			if (format == ExportFormat.JSON) {
+				generator.writeEndArray();
+			}
+		}
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Iterable<EmployeeVO> getEmployees(int after, int limit) {
+		return employeeRepository.findVOPage(after, PageRequest.of(0, limit));
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Iterable<EmployeeVO> findEmployees(EmployeeQuery query) {
+		log.debug("findEmployees ({})", query);
+		
+		if (query.isIdPage()) {
+			// no filter, same as getEmployees
+			return employeeRepository.findVOPage(query.getAfterId(), PageRequest.of(0, query.getLimit()));
+		}
+		
+		return employeeRepository.findVOs(EmployeeSpecifications.of(query), EmployeeSpecifications.sort(query), query.getLimit());
+	}
+	
+	@Override
+	public Iterable<EmployeeVO> searchEmployees(String query, int limit) {
+		List<EmployeeVO> found = employeeSearchIndex.search(query, limit);
+		
+		if (found != null) {
+			// indexed values stay unchanged
+			return found.stream().map(employeeMapper::copy).collect(Collectors.toList());
+		}
+		
+		// index not built yet (or disabled), last name prefix on the index of the column
+		log.debug("search index not available, searching last names ({})", query);
+		
+		String prefix = query.trim().split("\\s+")[0];
+		return employeeRepository.findVOs(
+			EmployeeSpecifications.startsWith(EmployeeSpecifications.LAST_NAME, prefix),
+			Sort.by(EmployeeSpecifications.LAST_NAME, EmployeeQuery.ID),
+			limit);
+	}
+	
+	@Override
+	public long estimateEmployeeCount() {
+		return employeeRepository.estimateCount();
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public String getCollectionTag() {
+		return EntityTags.of(employeeRepository.collectionState());
 	}
 }
\ No newline at end of file
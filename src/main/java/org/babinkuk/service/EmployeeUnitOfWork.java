@@ -0,0 +1,88 @@
+package org.babinkuk.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.dao.EmployeeRepository;
+import org.babinkuk.entity.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * employee entities loaded for a write, kept for the current request
+ * (validation loads the row, save maps into the same entity)
+ * 
+ * with open-in-view the entity stays managed until the save transaction,
+ * outside of a request (or on other threads) every load goes to the repository
+ * 
+ * @author BabinKuk
+ *
+ */
+@Component
+public class EmployeeUnitOfWork {
+	
+	private final Logger log = LogManager.getLogger(getClass());
+	
+	private static final String ATTRIBUTE = EmployeeUnitOfWork.class.getName() + ".entities";
+	
+	@Autowired
+	private EmployeeRepository employeeRepository;
+	
+	/**
+	 * @param id
+	 * @return entity, loaded once per request
+	 */
+	public Optional<Employee> load(int id) {
+		Map<Integer, Employee> entities = entities();
+		
+		if (entities == null) {
+			return employeeRepository.findById(id);
+		}
+		
+		Employee employee = entities.get(id);
+		if (employee == null) {
+			employee = employeeRepository.findById(id).orElse(null);
+			if (employee != null) {
+				entities.put(id, employee);
+			}
+		} else {
+			log.debug("employee {} loaded in this request", id);
+		}
+		
+		return Optional.ofNullable(employee);
+	}
+	
+	/**
+	 * @param id deleted employee
+	 */
+	public void remove(int id) {
+		Map<Integer, Employee> entities = entities();
+		
+		if (entities != null) {
+			entities.remove(id);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Map<Integer, Employee> entities() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		
+		if (attributes == null) {
+			return null;
+		}
+		
+		Map<Integer, Employee> entities = (Map<Integer, Employee>) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		if (entities == null) {
+			entities = new HashMap<Integer, Employee>(4);
+			attributes.setAttribute(ATTRIBUTE, entities, RequestAttributes.SCOPE_REQUEST);
+		}
+		
+		return entities;
+	}
+	
+}
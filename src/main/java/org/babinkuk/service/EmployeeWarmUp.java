@@ -0,0 +1,208 @@
+package org.babinkuk.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.common.ApiResponse;
+import org.babinkuk.entity.Employee;
+import org.babinkuk.mapper.EmployeeMapper;
+import org.babinkuk.validator.ActionType;
+import org.babinkuk.validator.BusinessValidator;
+import org.babinkuk.validator.Validator;
+import org.babinkuk.validator.ValidatorType;
+import org.babinkuk.vo.EmployeeVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * jit warm-up before the instance takes traffic: synthetic employees through the validation chain
+ * (bean validation, ValidatorImpl, BusinessValidator), EmployeeMapper and json (EmployeeVO, ApiResponse, pages)
+ * nothing is written or read: emails are in a reserved domain and the uniqueness check skips the email
+ * filter and the database on the warm-up thread (see isWarmingUp), the stage timers of MetricsAspect
+ * and the employee.validation timers of ValidatorHelper
+ * do not record it, valid input only through ValidatorImpl (error metrics stay clean)
+ *
+ * runs in the ready event after the index builds (ORDER), boot reports readiness (ACCEPTING_TRAFFIC)
+ * after it, the health indicator (readiness group) is OUT_OF_SERVICE until it ends, after the iterations or the timeout
+ *
+ * @author BabinKuk
+ *
+ */
+@Component
+public class EmployeeWarmUp implements HealthIndicator {
+	
+	private final Logger log = LogManager.getLogger(getClass());
+	
+	// last of the ready event listeners, indexes are built before (ORDER - 1)
+	public static final int ORDER = Ordered.LOWEST_PRECEDENCE;
+	
+	// set on the thread running the warm-up
+	private static final ThreadLocal<Boolean> WARMING_UP = new ThreadLocal<Boolean>();
+	
+	// reserved top level domain (rfc 2606), never a real employee
+	private static final String DOMAIN = "@warmup.invalid";
+	
+	private static final String[] NAMES = {"Ana", "Ivan", "Marija", "Luka", "Petra", "Josip", "Kovacic", "Horvat", "Babic", "Maric"};
+	
+	// list page serialized per iteration (GET /employees)
+	private static final int PAGE_SIZE = 20;
+	
+	@Autowired
+	private Validator validator;
+	
+	@Autowired
+	private BusinessValidator businessValidator;
+	
+	@Autowired
+	private javax.validation.Validator beanValidator;
+	
+	@Autowired
+	private EmployeeMapper employeeMapper;
+	
+	@Autowired
+	private ObjectMapper mapper;
+	
+	@Autowired
+	private ApplicationEventPublisher publisher;
+	
+	@Value("${employee.warm-up.enabled:true}")
+	private boolean enabled;
+	
+	@Value("${employee.warm-up.iterations:20000}")
+	private int iterations;
+	
+	@Value("${employee.warm-up.timeout:30s}")
+	private Duration timeout;
+	
+	// null until the warm-up ended
+	private volatile Map<String, Object> result;
+	
+	private volatile boolean running;
+	
+	// consumed results, keeps the warmed code from being optimized away
+	private volatile long checksum;
+	
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(ORDER)
+	public void onApplicationReady() {
+		if (enabled) {
+			run(iterations, timeout);
+		}
+	}
+	
+	/**
+	 * @param iterations synthetic employees
+	 * @param timeout ends the warm-up earlier
+	 * @return iterations run, duration and whether the timeout ended it
+	 */
+	public Map<String, Object> run(int iterations, Duration timeout) {
+		running = true;
+		result = null;
+		AvailabilityChangeEvent.publish(publisher, this, ReadinessState.REFUSING_TRAFFIC);
+		
+		long start = System.nanoTime();
+		long deadline = start + timeout.toNanos();
+		long sum = 0;
+		int done = 0;
+		WARMING_UP.set(Boolean.TRUE);
+		try {
+			JavaType pageType = mapper.getTypeFactory().constructCollectionType(List.class, EmployeeVO.class);
+			List<EmployeeVO> page = new ArrayList<EmployeeVO>(PAGE_SIZE);
+			
+			for (; done < iterations && System.nanoTime() < deadline; done++) {
+				EmployeeVO vo = employee(done);
+				
+				// validation chain (valid input, the uniqueness check is skipped on this thread)
+				sum += beanValidator.validate(vo).size();
+				sum += validator.validate(vo, ActionType.CREATE, ValidatorType.EMPLOYEE).getEmail().length();
+				
+				// rule failures without the error metrics
+				EmployeeVO invalid = new EmployeeVO(done % 2 == 0 ? " " : vo.getFirstName(), vo.getLastName(), vo.getFirstName());
+				sum += beanValidator.validate(invalid).size();
+				sum += businessValidator.checkFirstName(invalid.getFirstName()) == null ? 0 : 1;
+				sum += businessValidator.checkEmailSyntax(invalid.getEmail()) == null ? 0 : 1;
+				
+				// mapper (entities are never persisted)
+				Employee entity = employeeMapper.toEntity(vo);
+				entity.setId(done + 1);
+				EmployeeVO mapped = employeeMapper.toVO(entity);
+				sum += employeeMapper.isUnchanged(employeeMapper.copy(mapped), employeeMapper.toEntity(vo, entity)) ? 1 : 0;
+				
+				// json of requests and responses
+				byte[] json = mapper.writeValueAsBytes(mapped);
+				sum += mapper.readValue(json, EmployeeVO.class).getId();
+				sum += mapper.writeValueAsBytes(new ApiResponse(HttpStatus.OK, vo.getEmail())).length;
+				
+				page.add(mapped);
+				if (page.size() == PAGE_SIZE) {
+					sum += mapper.<List<EmployeeVO>>readValue(mapper.writeValueAsBytes(page), pageType).size();
+					page.clear();
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// a failed warm-up must not keep the instance out of service
+			log.warn("warm-up failed after {} iterations: {}", done, e.toString());
+		} finally {
+			WARMING_UP.remove();
+			checksum += sum;
+			
+			long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			Map<String, Object> details = new LinkedHashMap<String, Object>();
+			details.put("iterations", done);
+			details.put("millis", millis);
+			details.put("timedOut", done < iterations && System.nanoTime() >= deadline);
+			result = details;
+			running = false;
+			
+			log.info("warm-up: {} of {} iterations in {} ms", done, iterations, millis);
+		}
+		
+		AvailabilityChangeEvent.publish(publisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+		return result;
+	}
+	
+	/**
+	 * synthetic employees are not timed (MetricsAspect) and not looked up (BusinessValidator)
+	 *
+	 * @return true on the thread running the warm-up
+	 */
+	public static boolean isWarmingUp() {
+		return WARMING_UP.get() != null;
+	}
+	
+	@Override
+	public Health health() {
+		if (result != null) {
+			return Health.up().withDetails(result).build();
+		}
+		// not started yet (ready event) or running
+		return enabled || running ? Health.outOfService().build() : Health.up().withDetail("enabled", false).build();
+	}
+	
+	private static EmployeeVO employee(int i) {
+		String firstName = NAMES[i % NAMES.length];
+		String lastName = NAMES[(i / NAMES.length) % NAMES.length] + (char) ('a' + i % 26);
+		return new EmployeeVO(firstName, lastName, "warmup" + i + "." + firstName.toLowerCase() + DOMAIN);
+	}
+}
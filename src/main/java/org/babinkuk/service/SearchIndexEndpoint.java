@@ -0,0 +1,37 @@
+package org.babinkuk.service;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * actuator endpoint for the employee search index
+ * GET /actuator/searchindex - index size and estimated footprint
+ * POST /actuator/searchindex - rebuild from the database
+ * 
+ * @author BabinKuk
+ *
+ */
+@Component
+@Endpoint(id = "searchindex")
+public class SearchIndexEndpoint {
+	
+	@Autowired
+	private EmployeeSearchIndex employeeSearchIndex;
+	
+	@ReadOperation
+	public Map<String, Object> searchIndex() {
+		return employeeSearchIndex.describe();
+	}
+	
+	@WriteOperation
+	public Map<String, Object> rebuild() {
+		employeeSearchIndex.rebuild();
+		return employeeSearchIndex.describe();
+	}
+	
+}
@@ -7,6 +7,7 @@ public enum ActionType {
 	CREATE,
 	READ,
 	UPDATE,
+	PATCH,
 	DELETE,
 	ENROLL,
 	WITHDRAW;
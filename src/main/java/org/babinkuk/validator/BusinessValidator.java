@@ -1,12 +1,21 @@
 package org.babinkuk.validator;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.babinkuk.config.MessagePool;
 import org.babinkuk.exception.ObjectNotFoundException;
+import org.babinkuk.service.EmployeeEmailIndex;
+import org.babinkuk.service.EmployeeWarmUp;
 import org.babinkuk.service.EmployeeService;
 import org.babinkuk.vo.EmployeeVO;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,15 +32,58 @@ public class BusinessValidator {
 	
 	private final Logger log = LogManager.getLogger(getClass());
 	
+	private static final String EMPLOYEE_ID_NOT_FOUND = "error_code_employee_id_not_found";
+	
+	private static final Pattern EMAIL_PATTERN = Pattern.compile("^(.+)@(\\S+)$");
+	
 	@Autowired
 	private EmployeeService employeeService;
 	
+	@Autowired
+	private EmployeeEmailIndex employeeEmailIndex;
+	
+	/**
+	 * @param name
+	 * @return error code, null if valid
+	 */
+	public ValidatorCodes checkFirstName(String name) {
+		return checkStringIsBlank(name, ValidatorCodes.ERROR_CODE_FIRST_NAME_EMPTY);
+	}
+	
+	/**
+	 * @param name
+	 * @return error code, null if valid
+	 */
+	public ValidatorCodes checkLastName(String name) {
+		return checkStringIsBlank(name, ValidatorCodes.ERROR_CODE_LAST_NAME_EMPTY);
+	}
+	
+	/**
+	 * email checks without db access
+	 * 
+	 * @param email
+	 * @return error code, null if valid
+	 */
+	public ValidatorCodes checkEmailSyntax(String email) {
+		ValidatorCodes code = checkStringIsBlank(email, ValidatorCodes.ERROR_CODE_EMAIL_EMPTY);
+		return code != null ? code : checkEmailFormat(email, ValidatorCodes.ERROR_CODE_EMAIL_INVALID);
+	}
+	
+	/**
+	 * @param email
+	 * @param errorCode
+	 * @return errorCode if invalid, null if valid
+	 */
+	public ValidatorCodes checkEmailFormat(String email, ValidatorCodes errorCode) {
+		return validateEmailAddress(email) ? null : errorCode;
+	}
+	
 	/**
 	 * @param name
 	 * @throws ValidationException
 	 */
 	public void validateFirstName(String name) throws ValidatorException {
-		validateStringIsBlank(name, ValidatorCodes.ERROR_CODE_FIRST_NAME_EMPTY);
+		raise(checkFirstName(name));
 	}
 	
 	/**
@@ -39,7 +91,7 @@ public class BusinessValidator {
 	 * @throws ValidationException
 	 */
 	public void validateLastName(String name) throws ValidatorException {
-		validateStringIsBlank(name, ValidatorCodes.ERROR_CODE_LAST_NAME_EMPTY);
+		raise(checkLastName(name));
 	}
 	
 	/**
@@ -47,20 +99,27 @@ public class BusinessValidator {
 	 * @throws ValidationException
 	 */
 	public void validateEmail(EmployeeVO vo) throws ValidatorException {
-		validateStringIsBlank(vo.getEmail(), ValidatorCodes.ERROR_CODE_EMAIL_EMPTY);
-		validateEmailFormat(vo.getEmail(), ValidatorCodes.ERROR_CODE_EMAIL_INVALID);
+		validateEmailSyntax(vo.getEmail());
 		emailExists(vo);
 	}
 	
+	/**
+	 * email checks without db access
+	 * 
+	 * @param email
+	 * @throws ValidatorException
+	 */
+	public void validateEmailSyntax(String email) throws ValidatorException {
+		raise(checkEmailSyntax(email));
+	}
+	
 	/**
 	 * @param email
 	 * @param errorCode
 	 * @throws ValidatorException
 	 */
 	public void validateEmailFormat(String email, ValidatorCodes errorCode) throws ValidatorException {
-		if (!validateEmailAddress(email)) {
-			throw new ValidatorException(errorCode);
-		}
+		raise(checkEmailFormat(email, errorCode));
 	}
 
 	/**
@@ -71,12 +130,7 @@ public class BusinessValidator {
 	private boolean validateEmailAddress(String email) {
 		if (StringUtils.isNotBlank(email)) {
 			email = StringUtils.upperCase(StringUtils.replace(email, " ", ""));
-			for (String pattern : Arrays.asList("^(.+)@(\\S+)$")) {
-				if (Pattern.matches(pattern, email)) {
-					return true;
-				}
-			}
-			return false;
+			return EMAIL_PATTERN.matcher(email).matches();
 		} else {
 			// if empty return true
 			return true;
@@ -87,65 +141,139 @@ public class BusinessValidator {
 	 * validate if email already exist must be unique (call repository findByEmail)
 	 * 
 	 * @param vo
-	 * @param isInsert
-	 * @return
-	 * @throws ValidatorException
+	 * @return error code, null if email is free or belongs to the same employee
 	 */
-	public void emailExists(EmployeeVO vo) throws ValidatorException {
-		log.info("email " + vo.toString());
+	public ValidatorCodes checkEmailUnique(EmployeeVO vo) {
+		log.debug("email {}", vo);
 		EmployeeVO dbVO = null;
 		
+		if (EmployeeWarmUp.isWarmingUp()) {
+			// synthetic email (reserved domain), no filter or db lookup
+			return null;
+		}
+		
+		boolean mightExist = employeeEmailIndex.mightExist(vo.getEmail());
+		
+		if (!mightExist && employeeEmailIndex.isSingleInstance()) {
+			// definitely new email, no db lookup
+			return null;
+		}
+		
 		dbVO = employeeService.findByEmail(vo.getEmail());
 		 
 		if (dbVO == null) {
 			// email not found
 			// that's ok
-			log.info("email not found");
+			log.debug("email not found");
+			if (mightExist) {
+				employeeEmailIndex.falsePositive();
+			}
 		} else {
-			log.info("email found");
+			log.debug("email found");
+			if (!mightExist) {
+				employeeEmailIndex.falseNegative();
+			}
 			if (dbVO.getId() == vo.getId()) {
 				// same employee, email has not changed
-				log.info("belongs to same instructor/student, email has not changed");
+				log.debug("belongs to same instructor/student, email has not changed");
 			} else {
 				// another employee with same email already exists in db
-				log.error(ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST.getMessage());
-				throw new ValidatorException(ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST);
+				log.debug("{}", ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST);
+				return ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST;
 			}
 		}
+		
+		return null;
+	}
+	
+	/**
+	 * validate if email already exist must be unique (call repository findByEmail)
+	 * 
+	 * @param vo
+	 * @throws ValidatorException
+	 */
+	public void emailExists(EmployeeVO vo) throws ValidatorException {
+		raise(checkEmailUnique(vo));
+	}
+	
+	/**
+	 * set lookup of existing emails (single query)
+	 * 
+	 * @param emails
+	 * @return map of email to owning employee id
+	 */
+	public Map<String, Integer> findExistingEmails(Collection<String> emails) {
+		Map<String, Integer> existing = new HashMap<String, Integer>();
+		
+		// only emails the filter can not rule out are looked up (single instance, otherwise all)
+		List<String> candidates = new ArrayList<String>(emails.size());
+		for (String email : emails) {
+			if (employeeEmailIndex.mightExist(email) || !employeeEmailIndex.isSingleInstance()) {
+				candidates.add(email);
+			}
+		}
+		
+		if (!candidates.isEmpty()) {
+			for (EmployeeVO dbVO : employeeService.findByEmails(candidates)) {
+				existing.put(dbVO.getEmail(), dbVO.getId());
+			}
+		}
+		
+		return existing;
+	}
+	
+	/**
+	 * set lookup of existing ids (single query)
+	 * 
+	 * @param ids
+	 * @return existing ids
+	 */
+	public Set<Integer> findExistingIds(Collection<Integer> ids) {
+		Set<Integer> existing = new HashSet<Integer>();
+		
+		if (!ids.isEmpty()) {
+			for (EmployeeVO dbVO : employeeService.findByIds(ids)) {
+				existing.add(dbVO.getId());
+			}
+		}
+		
+		return existing;
 	}
 	
 	/**
 	 * validate if object already exist
 	 * @param vo
 	 * @param isInsert
-	 * @return
+	 * @return stored object
 	 * @throws ValidatorException
 	 */
-	public void objectExists(Object vo, ValidatorType validatorType) throws ValidatorException {
-		
-		Object result;
-		log.info("validate employee on update");
+	public Object objectExists(Object vo, ValidatorType validatorType) throws ValidatorException {
 		
-		result = objectExists(((EmployeeVO) vo).getId(), validatorType);
+		Object result = objectExists(((EmployeeVO) vo).getId(), validatorType);
 		
-		if (result != null) {
-			// id found
-			log.info("employee id found");
-		} else {
-			// id not found
-			//log.error("result.notPresent");
+		if (result == null) {
 			throw new ValidatorException(ValidatorCodes.ERROR_CODE_INSTRUCTOR_INVALID);
 		}
+		
+		return result;
 	}
 
 	/**
 	 * @param str
 	 * @param errorCode
-	 * @throws ValidatorException
+	 * @return errorCode if blank, null otherwise
 	 */
-	private void validateStringIsBlank(String str, ValidatorCodes errorCode) throws ValidatorException {
-		if (StringUtils.isBlank(str)) {
-			throw new ValidatorException(errorCode);
+	private ValidatorCodes checkStringIsBlank(String str, ValidatorCodes errorCode) {
+		return StringUtils.isBlank(str) ? errorCode : null;
+	}
+	
+	/**
+	 * @param code
+	 * @throws ValidatorException if code is not null
+	 */
+	private void raise(ValidatorCodes code) throws ValidatorException {
+		if (code != null) {
+			throw new ValidatorException(code);
 		}
 	}
 
@@ -161,7 +289,14 @@ public class BusinessValidator {
 		
 		switch (validatorType) {
 		case EMPLOYEE:
-			dbVO = employeeService.findById(id);
+			if (id <= 0) {
+				// never stored, no lookup needed (same outcome as findById)
+				String message = MessagePool.format(EMPLOYEE_ID_NOT_FOUND, id);
+				log.warn(message);
+				throw new ObjectNotFoundException(message);
+			}
+			// row is kept for the following save/delete of this request
+			dbVO = employeeService.loadForUpdate(id);
 			break;
 		default:
 			break;
@@ -0,0 +1,278 @@
+package org.babinkuk.validator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.logging.log4j.ThreadContext;
+import org.babinkuk.config.MessagePool;
+import org.babinkuk.exception.ObjectException;
+import org.babinkuk.vo.EmployeeVO;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+
+/**
+ * precompiled, cost ordered validation steps per (ActionType, ValidatorType)
+ * plans are built once and kept for the process lifetime
+ * 
+ * @author BabinKuk
+ *
+ */
+public final class ValidationPlan {
+	
+	private static final Map<ValidatorType, Map<ActionType, ValidationPlan>> PLANS = new EnumMap<ValidatorType, Map<ActionType, ValidationPlan>>(ValidatorType.class);
+	
+	static {
+		for (ValidatorType validatorType : ValidatorType.values()) {
+			Map<ActionType, ValidationPlan> plans = new EnumMap<ActionType, ValidationPlan>(ActionType.class);
+			for (ActionType action : ActionType.values()) {
+				plans.put(action, new ValidationPlan(action, validatorType));
+			}
+			PLANS.put(validatorType, plans);
+		}
+	}
+	
+	private static final String VALIDATION_TIMEOUT = "error_code_validation_timeout";
+	
+	private final ActionType action;
+	
+	private final ValidatorType validatorType;
+	
+	private final ValidationStep[] steps;
+	
+	private final int databaseSteps;
+	
+	private ValidationPlan(ActionType action, ValidatorType validatorType) {
+		this.action = action;
+		this.validatorType = validatorType;
+		
+		// cheapest first (stable, equal cost keeps declaration order)
+		this.steps = Arrays.stream(ValidationStep.values())
+			.filter(step -> step.appliesTo(action))
+			.sorted(Comparator.comparingInt(ValidationStep::getCost))
+			.toArray(ValidationStep[]::new);
+		this.databaseSteps = (int) Arrays.stream(steps).filter(ValidationStep::isDatabase).count();
+	}
+	
+	private ValidationPlan(ValidationPlan plan, Set<String> fields) {
+		this.action = plan.action;
+		this.validatorType = plan.validatorType;
+		
+		// same order, object level steps are kept
+		this.steps = Arrays.stream(plan.steps)
+			.filter(step -> step.appliesTo(fields))
+			.toArray(ValidationStep[]::new);
+		this.databaseSteps = (int) Arrays.stream(steps).filter(ValidationStep::isDatabase).count();
+	}
+	
+	/**
+	 * @param action
+	 * @param validatorType
+	 * @return cached plan
+	 */
+	public static ValidationPlan of(ActionType action, ValidatorType validatorType) {
+		return PLANS.get(validatorType).get(action);
+	}
+	
+	/**
+	 * @return most database steps a plan runs on the executor at the same time (connections besides the request's own)
+	 */
+	public static int maxWorkerSteps() {
+		return PLANS.values().stream()
+			.flatMap(plans -> plans.values().stream())
+			.mapToInt(plan -> (int) Arrays.stream(plan.steps).filter(step -> step.isDatabase() && !step.isCallerThread()).count())
+			.max()
+			.orElse(0);
+	}
+	
+	/**
+	 * plan of a partial update, steps of untouched fields are dropped
+	 * 
+	 * @param fields changed fields (EmployeeVO properties)
+	 * @return new plan (not cached)
+	 */
+	public ValidationPlan restrictTo(Set<String> fields) {
+		return new ValidationPlan(this, fields);
+	}
+	
+	/**
+	 * run steps in plan order, failed rules are added to the result, dependent steps of a failed step are skipped
+	 * 
+	 * @param validator
+	 * @param vo
+	 * @param result
+	 */
+	public void execute(BusinessValidator validator, EmployeeVO vo, ValidationResult result) {
+		for (ValidationStep step : steps) {
+			if (step.getDependsOn() != null && result.hasFailed(step.getDependsOn())) {
+				continue;
+			}
+			
+			if (result.add(step.validate(validator, vo, validatorType, result))) {
+				result.fail(step);
+			}
+		}
+	}
+	
+	/**
+	 * same as execute, database steps run concurrently on the executor
+	 * (results are merged in plan order, ObjectNotFoundException of a step is rethrown)
+	 * tasks run with the locale and log context of the calling thread,
+	 * steps bound to the calling thread (entity of the request) run there while the tasks run
+	 * 
+	 * @param validator
+	 * @param vo
+	 * @param result
+	 * @param executor
+	 * @param timeoutMillis deadline for all database steps
+	 * @throws ObjectException if database steps did not finish in time
+	 */
+	public void execute(BusinessValidator validator, EmployeeVO vo, ValidationResult result, ExecutorService executor, long timeoutMillis) {
+		if (databaseSteps < 2) {
+			// nothing to overlap
+			execute(validator, vo, result);
+			return;
+		}
+		
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		
+		ValidatorCodes[] codes = new ValidatorCodes[steps.length];
+		@SuppressWarnings("unchecked")
+		Future<ValidationResult>[] futures = new Future[steps.length];
+		
+		try {
+			// syntactic steps inline, database steps fanned out
+			for (int i = 0; i < steps.length; i++) {
+				ValidationStep step = steps[i];
+				
+				if (step.getDependsOn() != null && result.hasFailed(step.getDependsOn())) {
+					continue;
+				}
+				
+				if (step.isCallerThread()) {
+					// after the fan out
+					continue;
+				}
+				
+				if (step.isDatabase()) {
+					futures[i] = executor.submit(withContext(() -> {
+						// own result per task, the caller's result is not thread safe
+						ValidationResult taskResult = new ValidationResult();
+						taskResult.add(step.validate(validator, vo, validatorType, taskResult));
+						return taskResult;
+					}));
+				} else if ((codes[i] = step.validate(validator, vo, validatorType, result)) != null) {
+					result.fail(step);
+				}
+			}
+			
+			// overlapping the tasks, the request's own connection and persistence context
+			for (int i = 0; i < steps.length; i++) {
+				ValidationStep step = steps[i];
+				
+				if (!step.isCallerThread() || (step.getDependsOn() != null && result.hasFailed(step.getDependsOn()))) {
+					continue;
+				}
+				
+				if ((codes[i] = step.validate(validator, vo, validatorType, result)) != null) {
+					result.fail(step);
+				}
+			}
+			
+			// join in plan order
+			for (int i = 0; i < steps.length; i++) {
+				if (futures[i] != null) {
+					ValidationResult taskResult = futures[i].get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+					if (taskResult.hasErrors()) {
+						codes[i] = taskResult.get(0);
+					}
+					if (taskResult.getCurrent() != null) {
+						result.setCurrent(taskResult.getCurrent());
+					}
+				}
+			}
+		} catch (TimeoutException e) {
+			throw timeout(timeoutMillis);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw timeout(timeoutMillis);
+		} finally {
+			for (Future<ValidationResult> future : futures) {
+				if (future != null) {
+					future.cancel(true);
+				}
+			}
+		}
+		
+		for (int i = 0; i < steps.length; i++) {
+			if (result.add(codes[i])) {
+				result.fail(steps[i]);
+			}
+		}
+	}
+	
+	/**
+	 * task with the locale (messages) and the log context (correlation id, sampling) of the submitting thread,
+	 * the worker's own state is restored after it (pooled threads keep nothing of the request)
+	 * 
+	 * @param task
+	 * @return task to submit
+	 */
+	static <T> Callable<T> withContext(Callable<T> task) {
+		LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+		Map<String, String> logContext = ThreadContext.getImmutableContext();
+		
+		return () -> {
+			LocaleContext workerLocaleContext = LocaleContextHolder.getLocaleContext();
+			Map<String, String> workerLogContext = ThreadContext.getImmutableContext();
+			
+			LocaleContextHolder.setLocaleContext(localeContext);
+			ThreadContext.clearMap();
+			ThreadContext.putAll(logContext);
+			try {
+				return task.call();
+			} finally {
+				LocaleContextHolder.setLocaleContext(workerLocaleContext);
+				ThreadContext.clearMap();
+				ThreadContext.putAll(workerLogContext);
+			}
+		};
+	}
+	
+	private ObjectException timeout(long timeoutMillis) {
+		return new ObjectException(MessagePool.format(VALIDATION_TIMEOUT, action, timeoutMillis));
+	}
+	
+	public List<ValidationStep> getSteps() {
+		return Collections.unmodifiableList(Arrays.asList(steps));
+	}
+	
+	public ActionType getAction() {
+		return action;
+	}
+	
+	public ValidatorType getValidatorType() {
+		return validatorType;
+	}
+
+	@Override
+	public String toString() {
+		return "ValidationPlan [action=" + action + ", validatorType=" + validatorType + ", steps=" + Arrays.toString(steps) + "]";
+	}
+	
+}
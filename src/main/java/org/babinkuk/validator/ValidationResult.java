@@ -0,0 +1,108 @@
+package org.babinkuk.validator;
+
+import java.util.Arrays;
+
+/**
+ * accumulator of failed rules (ValidatorCodes) for one validated object
+ * also carries the plan state (failed steps, stored object), reused per thread, see current()
+ *
+ * @author BabinKuk
+ *
+ */
+public final class ValidationResult {
+
+	private static final ThreadLocal<ValidationResult> CURRENT = ThreadLocal.withInitial(ValidationResult::new);
+
+	private ValidatorCodes[] codes = new ValidatorCodes[ValidatorCodes.values().length];
+
+	private int size;
+
+	// ValidationStep ordinals
+	private long failedSteps;
+
+	// stored object (update)
+	private Object current;
+
+	public ValidationResult() {
+		// new, not shared instance
+	}
+
+	/**
+	 * reset instance of the calling thread
+	 * must be fully consumed before the next call on the same thread
+	 *
+	 * @return ValidationResult
+	 */
+	public static ValidationResult current() {
+		return CURRENT.get().reset();
+	}
+
+	public ValidationResult reset() {
+		Arrays.fill(codes, 0, size, null);
+		size = 0;
+		failedSteps = 0;
+		current = null;
+		return this;
+	}
+
+	/**
+	 * @param code failed rule, null for passed rule
+	 * @return true if rule failed
+	 */
+	public boolean add(ValidatorCodes code) {
+		if (code == null) {
+			return false;
+		}
+		if (size == codes.length) {
+			codes = Arrays.copyOf(codes, size * 2);
+		}
+		codes[size++] = code;
+		return true;
+	}
+
+	public boolean hasErrors() {
+		return size > 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public ValidatorCodes get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+		}
+		return codes[index];
+	}
+
+	public boolean contains(ValidatorCodes code) {
+		for (int i = 0; i < size; i++) {
+			if (codes[i] == code) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	void fail(ValidationStep step) {
+		failedSteps |= 1L << step.ordinal();
+	}
+
+	boolean hasFailed(ValidationStep step) {
+		return (failedSteps & (1L << step.ordinal())) != 0;
+	}
+
+	Object getCurrent() {
+		return current;
+	}
+
+	void setCurrent(Object current) {
+		this.current = current;
+	}
+
+	@Override
+	public String toString() {
+		return "ValidationResult " + Arrays.toString(Arrays.copyOf(codes, size));
+	}
+
+}
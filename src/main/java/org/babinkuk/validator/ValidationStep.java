@@ -0,0 +1,124 @@
+package org.babinkuk.validator;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.babinkuk.vo.EmployeeVO;
+
+/**
+ * single validation rule with its relative cost
+ * steps are ordered by cost in ValidationPlan, a step is skipped when the step it depends on failed
+ * 
+ * @author BabinKuk
+ *
+ */
+public enum ValidationStep {
+	
+	FIRST_NAME(1, null, false, "firstName", EnumSet.allOf(ActionType.class)) {
+		@Override
+		ValidatorCodes validate(BusinessValidator validator, EmployeeVO vo, ValidatorType validatorType, ValidationResult result) {
+			return validator.checkFirstName(vo.getFirstName());
+		}
+	},
+	
+	LAST_NAME(1, null, false, "lastName", EnumSet.allOf(ActionType.class)) {
+		@Override
+		ValidatorCodes validate(BusinessValidator validator, EmployeeVO vo, ValidatorType validatorType, ValidationResult result) {
+			return validator.checkLastName(vo.getLastName());
+		}
+	},
+	
+	EMAIL_FORMAT(2, null, false, "email", EnumSet.allOf(ActionType.class)) {
+		@Override
+		ValidatorCodes validate(BusinessValidator validator, EmployeeVO vo, ValidatorType validatorType, ValidationResult result) {
+			return validator.checkEmailSyntax(vo.getEmail());
+		}
+	},
+	
+	// primary key lookup, not found aborts validation (ObjectNotFoundException), so it runs before email lookup
+	OBJECT_EXISTS(10, null, true, null, EnumSet.of(ActionType.UPDATE, ActionType.PATCH, ActionType.DELETE, ActionType.READ)) {
+		@Override
+		ValidatorCodes validate(BusinessValidator validator, EmployeeVO vo, ValidatorType validatorType, ValidationResult result) {
+			Object dbVO = validator.objectExists(vo.getId(), validatorType);
+			result.setCurrent(dbVO);
+			return dbVO == null ? ValidatorCodes.ERROR_CODE_INSTRUCTOR_INVALID : null;
+		}
+		
+		// loads the entity of the request (EmployeeUnitOfWork) in its persistence context, saved by the same request
+		@Override
+		public boolean isCallerThread() {
+			return true;
+		}
+	},
+	
+	EMAIL_UNIQUE(20, EMAIL_FORMAT, true, "email", EnumSet.allOf(ActionType.class)) {
+		@Override
+		ValidatorCodes validate(BusinessValidator validator, EmployeeVO vo, ValidatorType validatorType, ValidationResult result) {
+			if (result.getCurrent() instanceof EmployeeVO && vo.getEmail().equals(((EmployeeVO) result.getCurrent()).getEmail())) {
+				// email has not changed
+				return null;
+			}
+			return validator.checkEmailUnique(vo);
+		}
+	};
+	
+	private final int cost;
+	
+	private final ValidationStep dependsOn;
+	
+	// step queries the database (can run concurrently with other database steps)
+	private final boolean database;
+	
+	// validated field (EmployeeVO property), null if the step checks the whole object
+	private final String field;
+	
+	private final Set<ActionType> actions;
+	
+	ValidationStep(int cost, ValidationStep dependsOn, boolean database, String field, Set<ActionType> actions) {
+		this.cost = cost;
+		this.dependsOn = dependsOn;
+		this.database = database;
+		this.field = field;
+		this.actions = actions;
+	}
+	
+	public int getCost() {
+		return cost;
+	}
+	
+	public ValidationStep getDependsOn() {
+		return dependsOn;
+	}
+	
+	public boolean isDatabase() {
+		return database;
+	}
+	
+	public String getField() {
+		return field;
+	}
+	
+	/**
+	 * @return true if the database step runs on the calling thread in parallel validation
+	 */
+	public boolean isCallerThread() {
+		return false;
+	}
+	
+	/**
+	 * @param fields changed fields (partial update)
+	 * @return true if the step checks one of the fields or the whole object
+	 */
+	public boolean appliesTo(Set<String> fields) {
+		return field == null || fields.contains(field);
+	}
+	
+	public boolean appliesTo(ActionType action) {
+		return actions.contains(action);
+	}
+	
+	/**
+	 * @return error code, null if valid
+	 */
+	abstract ValidatorCodes validate(BusinessValidator validator, EmployeeVO vo, ValidatorType validatorType, ValidationResult result);
+}
@@ -1,5 +1,9 @@
 package org.babinkuk.validator;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.babinkuk.exception.ObjectNotFoundException;
 import org.babinkuk.exception.ObjectValidationException;
 import org.babinkuk.vo.EmployeeVO;
@@ -15,6 +19,18 @@ public interface Validator {
 	 */
 	public EmployeeVO validate(EmployeeVO vo, ActionType action, ValidatorType validatorType) throws ObjectValidationException;
 	
+	/**
+	 * validate changed fields only (partial update)
+	 * 
+	 * @param vo
+	 * @param fields changed fields
+	 * @param action
+	 * @param validatorType
+	 * @return
+	 * @throws ObjectValidationException
+	 */
+	public EmployeeVO validate(EmployeeVO vo, Set<String> fields, ActionType action, ValidatorType validatorType) throws ObjectValidationException;
+	
 	/**
 	 * @param id
 	 * @param validatorType
@@ -22,5 +38,14 @@ public interface Validator {
 	 * @throws ObjectNotFoundException
 	 */
 	public void validate(int id, ActionType action, ValidatorType validatorType) throws ObjectNotFoundException;
+	
+	/**
+	 * validate batch as a set (insert/update)
+	 * 
+	 * @param voList
+	 * @param validatorType
+	 * @return validation errors by item index (valid items are not present)
+	 */
+	public Map<Integer, List<String>> validate(List<EmployeeVO> voList, ValidatorType validatorType);
 
 }
@@ -10,6 +10,8 @@ public enum ValidatorCodes {
 	ERROR_CODE_EMAIL_INVALID("error_code_email_invalid"),
 	ERROR_CODE_EMAIL_ALREADY_EXIST("error_code_email_already_exist"),
 	ERROR_CODE_INSTRUCTOR_INVALID("error_code_instructor_invalid"),
+	ERROR_CODE_EMPLOYEE_INVALID("error_code_employee_invalid"),
+	ERROR_CODE_EMPLOYEE_EMPTY("error_code_employee_empty"),
 	ERROR_CODE_STUDENT_INVALID("error_code_student_invalid"),
 	ERROR_CODE_COURSE_INVALID("error_code_course_invalid"),
 	ERROR_CODE_REVIEW_INVALID("error_code_review_invalid"),
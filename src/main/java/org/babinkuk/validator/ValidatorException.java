@@ -1,5 +1,8 @@
 package org.babinkuk.validator;
 
+/**
+ * failed rule (error code only), created without stack trace
+ */
 public class ValidatorException extends Exception {
 
 	private static final long serialVersionUID = 1L;
@@ -7,7 +10,7 @@ public class ValidatorException extends Exception {
 	private ValidatorCodes errorCode;
 
 	public ValidatorException(ValidatorCodes errorCode) {
-		super();
+		super(null, null, false, false);
 		this.errorCode = errorCode;
 	}
 	
@@ -14,9 +14,17 @@ public class ValidatorFactory {
 	@Autowired
 	private ApplicationContext applicationContext;
 	
+	// looked up once, validator is a singleton
+	private volatile Validator validator;
+	
 	public Validator getValidator() {
 		
-		Validator validator = applicationContext.getBean(Validator.class);
+		Validator validator = this.validator;
+		
+		if (validator == null) {
+			validator = applicationContext.getBean(Validator.class);
+			this.validator = validator;
+		}
 		
 		if (validator == null) {
 			throw new IllegalStateException("Cannot acquire validator instance");
@@ -1,65 +1,189 @@
 package org.babinkuk.validator;
 
-import java.util.LinkedList;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.PostConstruct;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.babinkuk.config.ValidationConfig;
 import org.babinkuk.exception.ObjectNotFoundException;
-import org.babinkuk.exception.ObjectValidationException;
+import org.babinkuk.service.EmployeeWarmUp;
 import org.babinkuk.vo.EmployeeVO;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Component
 public class ValidatorHelper {
 	
 	private final Logger log = LogManager.getLogger(getClass());
 	
+	public static final String METRIC_NAME = "employee.validation";
+	
 	@Autowired
 	private BusinessValidator validator;
 	
-	public List<ValidatorException> validate(EmployeeVO vo, ActionType action, ValidatorType validatorType) throws ObjectValidationException {
-		List<ValidatorException> exceptions = new LinkedList<ValidatorException>();
-		
-		try {
-			validator.validateFirstName(vo.getFirstName());
-		} catch (ValidatorException e) {
-			exceptions.add(e);
+	// present only if employee.validation.parallel.enabled
+	@Autowired(required = false)
+	@Qualifier(ValidationConfig.VALIDATION_EXECUTOR)
+	private ExecutorService executor;
+	
+	@Value("${employee.validation.parallel.timeout:2s}")
+	private Duration timeout;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	private final Map<ActionType, Timer> serialTimers = new EnumMap<ActionType, Timer>(ActionType.class);
+	private final Map<ActionType, Timer> parallelTimers = new EnumMap<ActionType, Timer>(ActionType.class);
+	
+	@PostConstruct
+	public void init() {
+		for (ActionType action : ActionType.values()) {
+			serialTimers.put(action, timer(action, "serial"));
+			parallelTimers.put(action, timer(action, "parallel"));
 		}
+	}
+	
+	private Timer timer(ActionType action, String mode) {
+		return Timer.builder(METRIC_NAME)
+			.description("single object validation")
+			.tag("action", action.name())
+			.tag("mode", mode)
+			.register(meterRegistry);
+	}
+	
+	/**
+	 * @param vo
+	 * @param action
+	 * @param validatorType
+	 * @param result failed rules are added here
+	 * @throws ObjectNotFoundException
+	 */
+	public void validate(EmployeeVO vo, ActionType action, ValidatorType validatorType, ValidationResult result) throws ObjectNotFoundException {
+		// cheap checks first, db checks are skipped when their input is already invalid
+		execute(ValidationPlan.of(action, validatorType), vo, result);
+	}
+	
+	/**
+	 * partial update, only the changed fields are validated
+	 * 
+	 * @param vo
+	 * @param fields changed fields
+	 * @param action
+	 * @param validatorType
+	 * @param result failed rules are added here
+	 * @throws ObjectNotFoundException
+	 */
+	public void validate(EmployeeVO vo, Set<String> fields, ActionType action, ValidatorType validatorType, ValidationResult result) throws ObjectNotFoundException {
+		execute(ValidationPlan.of(action, validatorType).restrictTo(fields), vo, result);
+	}
+	
+	private void execute(ValidationPlan plan, EmployeeVO vo, ValidationResult result) {
+		ActionType action = plan.getAction();
 		
-		try {
-			validator.validateLastName(vo.getLastName());
-		} catch (ValidatorException e) {
-			exceptions.add(e);
+		// worker threads do not see the caller's transaction, so it stays serial inside one
+		boolean parallel = executor != null && !TransactionSynchronizationManager.isActualTransactionActive();
+		Runnable run = parallel
+			? () -> plan.execute(validator, vo, result, executor, timeout.toMillis())
+			: () -> plan.execute(validator, vo, result);
+		
+		if (EmployeeWarmUp.isWarmingUp()) {
+			// synthetic employees are not timed (as the stage timers of MetricsAspect)
+			run.run();
+		} else {
+			(parallel ? parallelTimers : serialTimers).get(action).record(run);
 		}
+	}
+	
+	public Map<Integer, List<ValidatorCodes>> validate(List<EmployeeVO> voList, ValidatorType validatorType) {
+		Map<Integer, List<ValidatorCodes>> errors = new TreeMap<Integer, List<ValidatorCodes>>();
 		
-		try {
-			validator.validateEmail(vo);
-		} catch (ValidatorException e) {
-			exceptions.add(e);
+		// syntactically valid emails (first occurrence index) and updated ids
+		Map<String, Integer> emails = new HashMap<String, Integer>();
+		Set<Integer> ids = new HashSet<Integer>();
+		
+		// item level checks (no db)
+		for (int i = 0; i < voList.size(); i++) {
+			EmployeeVO vo = voList.get(i);
+			
+			if (vo == null) {
+				// null array element
+				add(errors, i, ValidatorCodes.ERROR_CODE_EMPLOYEE_EMPTY);
+				continue;
+			}
+			
+			add(errors, i, validator.checkFirstName(vo.getFirstName()));
+			add(errors, i, validator.checkLastName(vo.getLastName()));
+			
+			if (!add(errors, i, validator.checkEmailSyntax(vo.getEmail()))
+					&& emails.putIfAbsent(vo.getEmail(), i) != null) {
+				// same email used by another item in this batch
+				add(errors, i, ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST);
+			}
+			
+			if (vo.getId() > 0) {
+				ids.add(vo.getId());
+			}
 		}
 		
-		if (action == ActionType.UPDATE || action == ActionType.DELETE || action == ActionType.READ) {
-			try {
-				validator.objectExists(vo, validatorType);
-			} catch (ValidatorException e) {
-				exceptions.add(e);
+		// set level checks (one query each)
+		Map<String, Integer> existingEmails = validator.findExistingEmails(emails.keySet());
+		Set<Integer> existingIds = validator.findExistingIds(ids);
+		
+		for (int i = 0; i < voList.size(); i++) {
+			EmployeeVO vo = voList.get(i);
+			
+			if (vo == null) {
+				continue;
+			}
+			
+			Integer owner = existingEmails.get(vo.getEmail());
+			if (owner != null && owner != vo.getId() && Integer.valueOf(i).equals(emails.get(vo.getEmail()))) {
+				// another employee with same email already exists in db
+				add(errors, i, ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST);
+			}
+			
+			if (vo.getId() > 0 && !existingIds.contains(vo.getId())) {
+				add(errors, i, ValidatorCodes.ERROR_CODE_EMPLOYEE_INVALID);
 			}
 		}
 		
-		return exceptions;
+		return errors;
 	}
 	
-	public List<ValidatorException> validate(int id, ValidatorType validatorType) throws ObjectNotFoundException {
-		List<ValidatorException> exceptions = new LinkedList<ValidatorException>();
-		
+	/**
+	 * @return true if code was added (rule failed)
+	 */
+	private boolean add(Map<Integer, List<ValidatorCodes>> errors, int index, ValidatorCodes code) {
+		if (code == null) {
+			return false;
+		}
+		errors.computeIfAbsent(index, k -> new ArrayList<ValidatorCodes>(2)).add(code);
+		return true;
+	}
+	
+	public void validate(int id, ValidatorType validatorType) throws ObjectNotFoundException {
 		try {
 			validator.objectExists(id, validatorType);
 		} catch (ObjectNotFoundException e) {
 			log.error(e.getMessage());
 			throw e;
 		}
-		
-		return exceptions;
 	}
 }
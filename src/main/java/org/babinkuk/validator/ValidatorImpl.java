@@ -1,18 +1,26 @@
 package org.babinkuk.validator;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.PostConstruct;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.babinkuk.config.MessageCatalog;
 import org.babinkuk.exception.ObjectNotFoundException;
 import org.babinkuk.exception.ObjectValidationException;
 import org.babinkuk.vo.EmployeeVO;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.MessageSource;
-import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.stereotype.Component;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * special validations are required depending on the role
  * 
@@ -25,53 +33,92 @@ public class ValidatorImpl implements Validator {
 private final Logger log = LogManager.getLogger(getClass());
 	
 	@Autowired
-	private MessageSource messageSource;
+	private MessageCatalog messageCatalog;
 	
 	@Autowired
 	private ValidatorHelper validatorHelper;
 	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	public static final String ERRORS_METRIC = "employee.validation.errors";
+	
+	// failed rules per code (registered once, incremented on the hot path)
+	private final Map<ValidatorCodes, Counter> errorCounters = new EnumMap<ValidatorCodes, Counter>(ValidatorCodes.class);
+	
+	@PostConstruct
+	public void registerMetrics() {
+		for (ValidatorCodes code : ValidatorCodes.values()) {
+			errorCounters.put(code, meterRegistry.counter(ERRORS_METRIC, "code", code.name().toLowerCase()));
+		}
+	}
+	
 	@Override
 	public EmployeeVO validate(EmployeeVO vo, ActionType action, ValidatorType validatorType) throws ObjectValidationException {
-		log.info("Validating {} {} (vo={})", action, validatorType, vo);
+		log.debug("Validating {} {} (vo={})", action, validatorType, vo);
 		
-		List<ValidatorException> exceptionList = new LinkedList<ValidatorException>();
+		ValidationResult result = ValidationResult.current();
 		
 		// all action types are enabled
-		exceptionList.addAll(validatorHelper.validate(vo, action, validatorType));
+		validatorHelper.validate(vo, action, validatorType, result);
 		
-		String message = String.format(messageSource.getMessage("validation_failed", new Object[] {}, LocaleContextHolder.getLocale()), action);
-		ObjectValidationException e = new ObjectValidationException(message);
+		return checkResult(vo, action, result);
+	}
+	
+	@Override
+	public EmployeeVO validate(EmployeeVO vo, Set<String> fields, ActionType action, ValidatorType validatorType) throws ObjectValidationException {
+		log.debug("Validating {} {} (vo={}, fields={})", action, validatorType, vo, fields);
 		
-		for (ValidatorException validationException : exceptionList) {
-			e.addValidationError(messageSource.getMessage(validationException.getErrorCode().getMessage(), new Object[] {}, LocaleContextHolder.getLocale()));
-		}
+		ValidationResult result = ValidationResult.current();
+		
+		validatorHelper.validate(vo, fields, action, validatorType, result);
 		
-		if (e.hasErrors()) {
-			throw e;
+		return checkResult(vo, action, result);
+	}
+	
+	private EmployeeVO checkResult(EmployeeVO vo, ActionType action, ValidationResult result) throws ObjectValidationException {
+		if (result.hasErrors()) {
+			// exception only for invalid input (without stack trace)
+			List<String> errors = new ArrayList<String>(result.size());
+			for (int i = 0; i < result.size(); i++) {
+				errorCounters.get(result.get(i)).increment();
+				errors.add(messageCatalog.get(result.get(i)));
+			}
+			result.reset();
+			
+			String message = messageCatalog.format("validation_failed", action);
+			throw new ObjectValidationException(message, errors);
 		}
-
+		
 		return vo;
 	}
 
 	@Override
 	public void validate(int id, ActionType action, ValidatorType validatorType) throws ObjectNotFoundException {
-		log.info("Validating {} {} (id={})", action, validatorType, id);
-		
-		List<ValidatorException> exceptionList = new LinkedList<ValidatorException>();
+		log.debug("Validating {} {} (id={})", action, validatorType, id);
 		
 		// all action types are enabled
-		exceptionList.addAll(validatorHelper.validate(id, validatorType));
+		validatorHelper.validate(id, validatorType);
+	}
+
+	@Override
+	public Map<Integer, List<String>> validate(List<EmployeeVO> voList, ValidatorType validatorType) {
+		log.debug("Validating batch {} (size={})", validatorType, voList.size());
 		
-		String message = String.format(messageSource.getMessage("validation_failed", new Object[] {}, LocaleContextHolder.getLocale()), action);
-		ObjectValidationException e = new ObjectValidationException(message);
+		Map<Integer, List<String>> errors = new TreeMap<Integer, List<String>>();
 		
-		for (ValidatorException validationException : exceptionList) {
-			e.addValidationError(messageSource.getMessage(validationException.getErrorCode().getMessage(), new Object[] {}, LocaleContextHolder.getLocale()));
+		for (Map.Entry<Integer, List<ValidatorCodes>> entry : validatorHelper.validate(voList, validatorType).entrySet()) {
+			List<String> messages = new ArrayList<String>(entry.getValue().size());
+			
+			for (ValidatorCodes code : entry.getValue()) {
+				errorCounters.get(code).increment();
+				messages.add(messageCatalog.get(code));
+			}
+			
+			errors.put(entry.getKey(), messages);
 		}
 		
-		if (e.hasErrors()) {
-			throw e;
-		}
+		return errors;
 	}
 
 }
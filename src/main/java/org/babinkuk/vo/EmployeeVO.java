@@ -3,6 +3,8 @@ package org.babinkuk.vo;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * instance of this class is used to represent employee data
  * 
@@ -23,6 +25,10 @@ public class EmployeeVO {
 	@Email(message = "error_code_email_invalid", regexp = "^(.+)@(\\S+)$")
 	private String email;
 	
+	// sent as ETag header, not in the body
+	@JsonIgnore
+	private int version;
+	
 	public EmployeeVO() {
 		// TODO Auto-generated constructor stub
 	}
@@ -32,6 +38,13 @@ public class EmployeeVO {
 		this.lastName = lastName;
 		this.email = email;
 	}
+	
+	// projection queries (EmployeeRepository.VO)
+	public EmployeeVO(int id, String firstName, String lastName, String email, int version) {
+		this(firstName, lastName, email);
+		this.id = id;
+		this.version = version;
+	}
 
 	public int getId() {
 		return id;
@@ -65,6 +78,14 @@ public class EmployeeVO {
 		this.email = email;
 	}
 
+	public int getVersion() {
+		return version;
+	}
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
 	@Override
 	public String toString() {
 		return "StudentVO [firstName=" + firstName + ", lastName=" + lastName + ", email=" + email + "]";
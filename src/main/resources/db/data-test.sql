@@ -0,0 +1,3 @@
+-- test rows (sql.script.employee.insert) use fixed ids below 1000
+-- a pooled block ends at the value read (allocationSize 50): the first block is 1000 .. 1049
+ALTER SEQUENCE employee_seq RESTART WITH 1049;
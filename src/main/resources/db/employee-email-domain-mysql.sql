@@ -0,0 +1,13 @@
+-- existing mysql databases: filter and sort columns of GET /employees (ddl-auto creates them on h2 only)
+-- run once before deploying the list filters
+--
+-- email_domain is derived from email by the database (generated column, never written by the application),
+-- rows inserted with plain sql or by the reactive application match the domain filter too
+-- existing rows get their domain when the column is added (virtual, only the index stores it)
+ALTER TABLE employee
+	ADD COLUMN email_domain VARCHAR(255) GENERATED ALWAYS AS (LOWER(SUBSTRING_INDEX(email, '@', -1))) VIRTUAL;
+
+ALTER TABLE employee
+	ADD INDEX idx_employee_email_domain (email_domain),
+	ADD INDEX idx_employee_first_name (first_name),
+	ADD INDEX idx_employee_last_name (last_name);
@@ -0,0 +1,7 @@
+-- existing mysql databases: unique constraint on employee.email (ddl-auto creates it on h2 only)
+-- run once before deploying, it backs the email validation against concurrent inserts
+--
+-- fails if emails are already duplicated, these have to be resolved first:
+-- SELECT email, COUNT(*) FROM employee GROUP BY email HAVING COUNT(*) > 1;
+ALTER TABLE employee
+	ADD CONSTRAINT uk_employee_email UNIQUE (email);
@@ -0,0 +1,15 @@
+-- existing mysql databases (id was AUTO_INCREMENT / IDENTITY): table of the employee_seq generator
+-- run once before deploying the pooled sequence (allocationSize 50), with the application stopped
+--
+-- hibernate reads next_val and writes next_val + 50, the first block of an instance ends at the value read
+-- (ids next_val - 49 .. next_val), so the table is seeded max(id) + 50: the first new id is max(id) + 1
+-- the reactive application takes its ids from the same table (EmployeeIdGenerator, same blocks),
+-- inserts that leave the id to AUTO_INCREMENT bypass the sequence and collide with the blocks handed out
+CREATE TABLE IF NOT EXISTS employee_seq (
+	next_val BIGINT
+) ENGINE=InnoDB;
+
+-- single row, a second run changes nothing
+INSERT INTO employee_seq (next_val)
+	SELECT seed.next_val FROM (SELECT COALESCE(MAX(id), 0) + 50 AS next_val FROM employee) seed
+	WHERE NOT EXISTS (SELECT 1 FROM employee_seq);
@@ -0,0 +1,7 @@
+-- existing mysql databases: optimistic locking column of employee (ddl-auto creates it on h2 only)
+-- run once before deploying the versioned entity (ETag / If-Match)
+--
+-- existing rows start at version 0, as rows inserted without a version
+-- updates made with plain sql must increase it, otherwise the collection ETag (GET /employees) does not change
+ALTER TABLE employee
+	ADD COLUMN version INT NOT NULL DEFAULT 0;
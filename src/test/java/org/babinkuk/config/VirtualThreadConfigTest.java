@@ -0,0 +1,160 @@
+package org.babinkuk.config;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.babinkuk.common.VirtualThreads;
+import org.babinkuk.controller.Api;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * virtual-thread mode on a real tomcat, needs java 21+ (skipped on older runtimes)
+ * mvn -Pjava21 test -Djava21.home=<jdk 21> -Dtest=VirtualThreadConfigTest
+ *
+ * @author BabinKuk
+ *
+ */
+// own in-memory database, create-drop of this context must not touch the shared testdb
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+	VirtualThreadConfig.ENABLED + "=true",
+	"spring.datasource.url=jdbc:h2:mem:virtualthreads"
+})
+@ActiveProfiles("test")
+@ExtendWith(VirtualThreadConfigTest.OnVirtualThreads.class)
+public class VirtualThreadConfigTest {
+	
+	public static final Logger log = LogManager.getLogger(VirtualThreadConfigTest.class);
+	
+	private static final String THREAD = Api.ROOT + "/test/thread";
+	
+	// blocks the async request until the test has seen its permit
+	private static volatile CountDownLatch streaming = new CountDownLatch(0);
+	
+	@Autowired
+	private TestRestTemplate restTemplate;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Autowired
+	private DatabaseBulkhead bulkhead;
+	
+	@Test
+	void requestThread() {
+		log.info("requestThread");
+		
+		ResponseEntity<String> response = restTemplate.getForEntity(THREAD, String.class);
+		
+		// assert
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertTrue(response.getBody().startsWith("VirtualThread["), "request thread not virtual: " + response.getBody());
+		assertTrue(response.getBody().contains("http-vt-"), "request thread name NOK: " + response.getBody());
+		
+		// employee api through the bulkhead and the database
+		assertEquals(HttpStatus.OK, restTemplate.getForEntity(Api.ROOT + Api.EMPLOYEES, String.class).getStatusCode());
+		assertEquals(bulkhead.getPermits(), available(), "bulkhead permits not released");
+	}
+	
+	@Test
+	void asyncRequestThread() throws Exception {
+		log.info("asyncRequestThread");
+		
+		streaming = new CountDownLatch(1);
+		CompletableFuture<ResponseEntity<String>> response = CompletableFuture.supplyAsync(
+			() -> restTemplate.getForEntity(THREAD + "/async", String.class));
+		
+		// permit is held while the body is streamed (the request thread has returned)
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (available() == bulkhead.getPermits() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(bulkhead.getPermits() - 1, available(), "async request holds no permit");
+		
+		streaming.countDown();
+		
+		// assert
+		assertEquals(HttpStatus.OK, response.get(5, TimeUnit.SECONDS).getStatusCode());
+		assertTrue(response.get().getBody().startsWith("VirtualThread["), "async thread not virtual: " + response.get().getBody());
+		assertTrue(response.get().getBody().contains("task-vt-"), "async thread name NOK: " + response.get().getBody());
+		
+		// released on completion (after the response is written)
+		deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (available() < bulkhead.getPermits() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(bulkhead.getPermits(), available(), "async request permit not released");
+	}
+	
+	private int available() {
+		return (int) meterRegistry.get(DatabaseBulkhead.METRIC_NAME + ".available").gauge().value();
+	}
+	
+	/**
+	 * skips the class (no context is started) on runtimes without virtual threads
+	 */
+	static class OnVirtualThreads implements ExecutionCondition {
+		
+		@Override
+		public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+			return VirtualThreads.isSupported()
+				? ConditionEvaluationResult.enabled("virtual threads supported")
+				: ConditionEvaluationResult.disabled("java " + System.getProperty("java.version") + " has no virtual threads");
+		}
+	}
+	
+	@TestConfiguration
+	static class ThreadControllerConfig {
+		
+		@Bean
+		public ThreadController threadController() {
+			return new ThreadController();
+		}
+	}
+	
+	/**
+	 * thread of the request (and of the async body, like the export)
+	 */
+	@RestController
+	static class ThreadController {
+		
+		@GetMapping(THREAD)
+		public String thread() {
+			return Thread.currentThread().toString();
+		}
+		
+		@GetMapping(THREAD + "/async")
+		public StreamingResponseBody asyncThread() {
+			return outputStream -> {
+				try {
+					streaming.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				outputStream.write(Thread.currentThread().toString().getBytes());
+			};
+		}
+	}
+}
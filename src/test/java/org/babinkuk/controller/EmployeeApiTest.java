@@ -0,0 +1,41 @@
+package org.babinkuk.controller;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.babinkuk.contract.EmployeeApiContract;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * shared /employees scenarios (EmployeeApiContract) against the servlet application
+ * running on a random port, own in memory database (test rows are committed)
+ * 
+ * @author BabinKuk
+ *
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "spring.datasource.url=jdbc:h2:mem:contract")
+@ActiveProfiles("test")
+public class EmployeeApiTest extends EmployeeApiContract {
+	
+	@Autowired
+	private JdbcTemplate jdbc;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	@Autowired
+	private CacheManager cacheManager;
+	
+	@Override
+	protected void execute(String sql) {
+		jdbc.execute(sql);
+		// rows are changed with plain sql, the caches would still have them
+		entityManagerFactory.getCache().evictAll();
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+	}
+	
+}
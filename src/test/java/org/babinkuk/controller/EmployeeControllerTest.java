@@ -1,13 +1,32 @@
 package org.babinkuk.controller;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceContext;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.babinkuk.common.PageCursor;
+import org.babinkuk.config.CacheConfig;
+import org.babinkuk.config.CorrelationIdFilter;
+import org.babinkuk.config.DatabaseBulkhead;
+import org.babinkuk.config.LogSampling;
+import org.babinkuk.config.MessageCatalog;
+import org.babinkuk.config.MetricsAspect;
+import org.babinkuk.service.EmployeeSearchIndex;
 import org.babinkuk.service.EmployeeService;
 import org.babinkuk.service.EmployeeServiceImpl;
+import org.babinkuk.validator.ValidatorCodes;
+import org.babinkuk.validator.ValidatorImpl;
 import org.babinkuk.vo.EmployeeVO;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,20 +35,32 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -50,6 +81,12 @@ public class EmployeeControllerTest {
 	@PersistenceContext
 	private EntityManager entityManager;
 	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	@Autowired
+	private CacheManager cacheManager;
+	
 	@Autowired
 	private MockMvc mockMvc;
 	
@@ -59,12 +96,21 @@ public class EmployeeControllerTest {
 	@Autowired
 	private MessageSource messageSource;
 	
+	@Autowired
+	private MessageCatalog messageCatalog;
+	
 	@Autowired
 	ObjectMapper objectMApper;
 	
 	@Autowired
 	private EmployeeService employeeService;
 	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Autowired
+	private EmployeeSearchIndex employeeSearchIndex;
+	
 	@Value("${sql.script.employee.insert}")
 	private String sqlAddEmployee;
 	
@@ -91,6 +137,8 @@ public class EmployeeControllerTest {
 	public void setupAfterTransaction() {
 		log.info("AfterEach");
 		jdbc.execute(sqlDeleteEmployee);
+		// rows are changed with plain sql, the second-level cache would still have them
+		entityManagerFactory.getCache().evictAll();
 	}
 	
 	@Test
@@ -121,6 +169,256 @@ public class EmployeeControllerTest {
 			;
 	}
 	
+	@Test
+	void getEmployeesPage() throws Exception {
+		log.info("getEmployeesPage");
+		
+		// add two more employees
+		employeeService.save(new EmployeeVO("firstName", "lastName", "emailAddress"));
+		employeeService.save(new EmployeeVO("firstName2", "lastName2", "emailAddress2"));
+		
+		// first page
+		MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("limit", "2")
+				.param("estimateTotal", "true")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(content().contentType(APPLICATION_JSON_UTF8))
+			.andExpect(jsonPath("$", hasSize(2))) // verify that json root element $ is size 2
+			.andExpect(jsonPath("$[0].id", is(1))) // verify ordering by id
+			.andExpect(header().string(EmployeeController.HEADER_PAGE_SIZE, "2"))
+			.andExpect(header().exists(EmployeeController.HEADER_NEXT_CURSOR))
+			.andExpect(header().exists(EmployeeController.HEADER_TOTAL_ESTIMATE))
+			.andReturn();
+		
+		String cursor = result.getResponse().getHeader(EmployeeController.HEADER_NEXT_CURSOR);
+		
+		// second (last) page
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("cursor", cursor)
+				.param("limit", "2")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(1))) // verify that json root element $ is size 1
+			.andExpect(jsonPath("$[0].firstName", is("firstName2"))) // verify json element
+			.andExpect(header().doesNotExist(EmployeeController.HEADER_NEXT_CURSOR))
+			;
+		
+		// page size over the server side maximum is capped
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("limit", "100000")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(header().string(EmployeeController.HEADER_PAGE_SIZE, "100"))
+			;
+		
+		// invalid cursor
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("cursor", "not a cursor")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.message", is(getMessage("error_code_cursor_invalid")))) // verify json element
+			;
+	}
+	
+	@Test
+	void getEmployeesFiltered() throws Exception {
+		log.info("getEmployeesFiltered");
+		
+		employeeService.save(new EmployeeVO("Ana", "Zec", "ana@a.com"));
+		employeeService.save(new EmployeeVO("Anabel", "Babic", "anabel@b.com"));
+		employeeService.save(new EmployeeVO("Ivo", "Anic", "ivo@A.com"));
+		
+		// first name prefix, sorted descending
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("firstName", "Ana")
+				.param("sort", "firstName,desc")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(2)))
+			.andExpect(jsonPath("$[0].firstName", is("Anabel")))
+			;
+		
+		// email domain (case insensitive) and id range
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("emailDomain", "A.com")
+				.param("minId", "2")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(2)))
+			.andExpect(jsonPath("$[0].email", is("ana@a.com")))
+			;
+		
+		// domain of the test row (plain sql insert, derived by the database)
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("emailDomain", "babinuk.com")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(1)))
+			.andExpect(jsonPath("$[0].id", is(1)))
+			;
+		
+		// wildcards are matched literally
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("lastName", "%")
+			).andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(0)))
+			;
+		
+		// keyset pages on last name
+		MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("sort", "lastName")
+				.param("limit", "2")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(2)))
+			.andExpect(jsonPath("$[0].lastName", is("Anic")))
+			.andExpect(jsonPath("$[1].lastName", is("Babic")))
+			.andExpect(header().exists(EmployeeController.HEADER_NEXT_CURSOR))
+			.andReturn();
+		
+		String cursor = result.getResponse().getHeader(EmployeeController.HEADER_NEXT_CURSOR);
+		
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("sort", "lastName")
+				.param("limit", "2")
+				.param("cursor", cursor)
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(2)))
+			.andExpect(jsonPath("$[0].lastName", is("Zec")))
+			.andExpect(jsonPath("$[1].lastName", is("lastNameStudent")))
+			;
+		
+		// cursor of another sort column
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("sort", "id")
+				.param("cursor", cursor)
+			).andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.message", is(getMessage("error_code_cursor_invalid"))))
+			;
+		
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("sort", "firstName")
+				.param("cursor", cursor)
+			).andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.message", is(getMessage("error_code_cursor_invalid"))))
+			;
+		
+		// cursor of another direction
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("sort", "lastName,desc")
+				.param("cursor", cursor)
+			).andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.message", is(getMessage("error_code_cursor_invalid"))))
+			;
+		
+		// id keyset on another sort column
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("sort", "lastName")
+				.param("after", "1")
+			).andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.message", is(getMessage("error_code_cursor_invalid"))))
+			;
+		
+		// not indexed sort column
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("sort", "version")
+			).andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.message", is(String.format(getMessage("error_code_sort_invalid"), "version"))))
+			;
+		
+		// empty id range
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("minId", "5")
+				.param("maxId", "1")
+			).andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.message", is(String.format(getMessage("error_code_id_range_invalid"), 5, 1))))
+			;
+		
+		// filter and sort columns are indexed, email by its unique constraint
+		Integer indexes = jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = 'EMPLOYEE' AND INDEX_NAME LIKE 'IDX_EMPLOYEE_%'", Integer.class);
+		assertEquals(3, indexes, "indexes NOK");
+		Integer unique = jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.CONSTRAINTS WHERE TABLE_NAME = 'EMPLOYEE' AND CONSTRAINT_TYPE = 'UNIQUE'", Integer.class);
+		assertEquals(1, unique, "unique constraints NOK");
+	}
+	
+	@Test
+	void getEmployeesNullSortValue() throws Exception {
+		log.info("getEmployeesNullSortValue");
+		
+		// null value is encoded as such, not as the string "null"
+		assertNull(PageCursor.decode(PageCursor.encode("lastName", false, 2, null)).getValue(), "null value NOK");
+		assertEquals("null", PageCursor.decode(PageCursor.encode("lastName", false, 2, "null")).getValue(), "\"null\" value NOK");
+		assertEquals("a:b", PageCursor.decode(PageCursor.encode("lastName", true, 2, "a:b")).getValue(), "value NOK");
+		
+		// rows without last name (plain sql, validation does not allow them)
+		jdbc.execute("INSERT INTO employee(id,first_name,last_name,email) values(2,'firstName2',null,'email2')");
+		jdbc.execute("INSERT INTO employee(id,first_name,last_name,email) values(3,'firstName3',null,'email3')");
+		employeeService.save(new EmployeeVO("firstName4", "Anic", "email4"));
+		
+		// one row per page, every row exactly once in both directions
+		assertEquals(4, pageIds("lastName").size(), "ascending pages NOK");
+		assertEquals(Arrays.asList(2, 3), pageIds("lastName").subList(0, 2), "ascending nulls not first");
+		assertEquals(4, pageIds("lastName,desc").size(), "descending pages NOK");
+		assertEquals(Arrays.asList(3, 2), pageIds("lastName,desc").subList(2, 4), "descending nulls not last");
+	}
+	
+	// ids of all pages of size 1
+	private List<Integer> pageIds(String sort) throws Exception {
+		List<Integer> ids = new ArrayList<Integer>();
+		String cursor = null;
+		
+		do {
+			MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.param("sort", sort)
+				.param("limit", "1");
+			if (cursor != null) {
+				request.param("cursor", cursor);
+			}
+			MvcResult result = mockMvc.perform(request).andExpect(status().isOk()).andReturn();
+			
+			for (EmployeeVO employeeVO : objectMApper.readValue(result.getResponse().getContentAsString(), EmployeeVO[].class)) {
+				ids.add(employeeVO.getId());
+			}
+			cursor = result.getResponse().getHeader(EmployeeController.HEADER_NEXT_CURSOR);
+		} while (cursor != null && ids.size() < 10);
+		
+		return ids;
+	}
+	
+	@Test
+	void searchEmployees() throws Exception {
+		log.info("searchEmployees");
+		
+		// row inserted with plain sql (same transaction) is visible after rebuild
+		employeeSearchIndex.rebuild();
+		
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES + "/search")
+				.param("q", "lastNameStudnet")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(1)))
+			.andExpect(jsonPath("$[0].id", is(1)))
+			.andExpect(jsonPath("$[0].email", is("firstNameStudent@babinuk.com")))
+			;
+		
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES + "/search")
+				.param("q", "qwerty")
+			).andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(0)))
+			;
+		
+		// empty and too long search text
+		for (String q : Arrays.asList(" ", StringUtils.repeat("a", 101))) {
+			mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES + "/search")
+					.param("q", q)
+				).andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.message", is(String.format(getMessage("error_code_search_query_invalid"), 100))))
+				;
+		}
+	}
+	
 	@Test
 	void getEmployee() throws Exception {
 		log.info("getEmployee");
@@ -216,6 +514,71 @@ public class EmployeeControllerTest {
 //			;
 //	}
 	
+	@Test
+	void saveEmployeesBatch() throws Exception {
+		log.info("saveEmployeesBatch");
+		
+		// update existing employee id 1
+		EmployeeVO updateVO = employeeService.findById(1);
+		updateVO.setFirstName("firstNameBatch");
+		
+		// new employees
+		EmployeeVO newVO = new EmployeeVO("firstName", "lastName", "batch1@email.hr");
+		EmployeeVO newVO2 = new EmployeeVO("firstName2", "lastName2", "batch2@email.hr");
+		
+		// invalid: empty first name, email used by another item, not existing id
+		EmployeeVO emptyVO = new EmployeeVO("", "lastName", "batch3@email.hr");
+		EmployeeVO duplicateVO = new EmployeeVO("firstName", "lastName", "batch1@email.hr");
+		EmployeeVO notExistingVO = new EmployeeVO("firstName", "lastName", "batch4@email.hr");
+		notExistingVO.setId(2);
+		
+		mockMvc.perform(MockMvcRequestBuilders.post(ROOT + EMPLOYEES + "/batch")
+				.contentType(APPLICATION_JSON_UTF8)
+				.content(objectMApper.writeValueAsString(Arrays.asList(updateVO, newVO, newVO2, emptyVO, duplicateVO, notExistingVO))) // generate json from java object
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.message", is(getMessage(EmployeeServiceImpl.BATCH_SUCCESS)))) // verify json element
+			.andExpect(jsonPath("$.additionalDetails.saved", is(3)))
+			.andExpect(jsonPath("$.additionalDetails.failed", is(3)))
+			.andExpect(jsonPath("$.results", hasSize(6)))
+			.andExpect(jsonPath("$.results[0].id", is(1)))
+			.andExpect(jsonPath("$.results[0].status", is(HttpStatus.OK.name())))
+			.andExpect(jsonPath("$.results[1].status", is(HttpStatus.OK.name())))
+			.andExpect(jsonPath("$.results[3].status", is(HttpStatus.BAD_REQUEST.name())))
+			.andExpect(jsonPath("$.results[3].errors", hasItem(getMessage(ValidatorCodes.ERROR_CODE_FIRST_NAME_EMPTY.getMessage()))))
+			.andExpect(jsonPath("$.results[4].errors", hasItem(getMessage(ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST.getMessage()))))
+			.andExpect(jsonPath("$.results[5].errors", hasItem(getMessage(ValidatorCodes.ERROR_CODE_EMPLOYEE_INVALID.getMessage()))))
+			;
+		
+		// additional check
+		assertEquals("firstNameBatch", employeeService.findById(1).getFirstName(), "updated firstName NOK");
+		assertNotNull(employeeService.findByEmail("batch1@email.hr"), "batch1 not saved");
+		assertNotNull(employeeService.findByEmail("batch2@email.hr"), "batch2 not saved");
+		assertNull(employeeService.findByEmail("batch3@email.hr"), "invalid batch3 saved");
+		
+		// email already in db (saved by the batch above), null item
+		EmployeeVO existingEmailVO = new EmployeeVO("firstName", "lastName", "batch2@email.hr");
+		
+		mockMvc.perform(MockMvcRequestBuilders.post(ROOT + EMPLOYEES + "/batch")
+				.contentType(APPLICATION_JSON_UTF8)
+				.content(objectMApper.writeValueAsString(Arrays.asList(existingEmailVO, null))) // generate json from java object
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.results[0].status", is(HttpStatus.BAD_REQUEST.name())))
+			.andExpect(jsonPath("$.results[0].errors", hasItem(getMessage(ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST.getMessage()))))
+			.andExpect(jsonPath("$.results[1].status", is(HttpStatus.BAD_REQUEST.name())))
+			.andExpect(jsonPath("$.results[1].errors", hasItem(getMessage(ValidatorCodes.ERROR_CODE_EMPLOYEE_EMPTY.getMessage()))))
+			;
+		
+		// empty batch
+		mockMvc.perform(MockMvcRequestBuilders.post(ROOT + EMPLOYEES + "/batch")
+				.contentType(APPLICATION_JSON_UTF8)
+				.content("[]")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isBadRequest())
+			;
+	}
+	
 	@Test
 	void updateEmployee() throws Exception {
 		log.info("updateEmployee");
@@ -255,6 +618,224 @@ public class EmployeeControllerTest {
 			.andExpect(jsonPath("$.email", is("email@email.com"))) // verify json element
 			;
 	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void updateEmployeeStatements() throws Exception {
+		log.info("updateEmployeeStatements");
+		
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		
+		try {
+			EmployeeVO employeeVO = new EmployeeVO("firstNameStudent", "lastNameStudent", "firstNameStudent@babinuk.com");
+			employeeVO.setId(1);
+			
+			// unchanged: row is read once (validation), no update
+			statistics.clear();
+			
+			mockMvc.perform(MockMvcRequestBuilders.put(ROOT + EMPLOYEES)
+					.contentType(APPLICATION_JSON_UTF8)
+					.content(objectMApper.writeValueAsString(employeeVO)) // generate json from java object
+				).andDo(MockMvcResultHandlers.print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.message", is(getMessage(EmployeeServiceImpl.SAVE_SUCCESS)))) // verify json element
+				;
+			
+			// assert
+			assertEquals(1, statistics.getPrepareStatementCount(), "unchanged update statements not 1");
+			assertEquals(0, statistics.getEntityUpdateCount(), "unchanged update not skipped");
+			
+			// changed: one update, the row is read from the second-level cache (loaded by the previous request)
+			employeeVO.setFirstName("firstName");
+			statistics.clear();
+			
+			mockMvc.perform(MockMvcRequestBuilders.put(ROOT + EMPLOYEES)
+					.contentType(APPLICATION_JSON_UTF8)
+					.content(objectMApper.writeValueAsString(employeeVO)) // generate json from java object
+				).andDo(MockMvcResultHandlers.print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.message", is(getMessage(EmployeeServiceImpl.SAVE_SUCCESS)))) // verify json element
+				;
+			
+			// assert
+			assertEquals(1, statistics.getPrepareStatementCount(), "update statements not 1");
+			assertEquals(1, statistics.getSecondLevelCacheHitCount(), "second-level cache hits not 1");
+			assertEquals(1, statistics.getEntityUpdateCount(), "entity update count not 1");
+			assertEquals("firstName", jdbc.queryForObject("SELECT first_name FROM employee WHERE id = 1", String.class));
+		} finally {
+			cacheManager.getCache(CacheConfig.EMPLOYEES).clear();
+			cacheManager.getCache(CacheConfig.EMPLOYEE_EMAILS).clear();
+		}
+	}
+	
+	@Test
+	void getEmployeeNotModified() throws Exception {
+		log.info("getEmployeeNotModified");
+		
+		// get employee with id=1, version 0
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES + "/{id}", 1)
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+			;
+		
+		// same version, no body
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES + "/{id}", 1)
+				.header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isNotModified())
+			.andExpect(content().string(""))
+			;
+		
+		// collection tag
+		String etag = mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+			).andExpect(status().isOk())
+			.andExpect(header().exists(HttpHeaders.ETAG))
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.header(HttpHeaders.IF_NONE_MATCH, etag)
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isNotModified())
+			.andExpect(content().string(""))
+			;
+		
+		// changed by another instance or application (plain sql), the tag is read from the database
+		jdbc.execute("UPDATE employee SET first_name = 'firstNameOther', version = version + 1 WHERE id = 1");
+		
+		etag = mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.header(HttpHeaders.IF_NONE_MATCH, etag)
+			).andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].firstName", is("firstNameOther"))) // verify json element
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		jdbc.execute("INSERT INTO employee(id,first_name,last_name,email) values(2,'firstName','lastName','other@babinuk.com')");
+		
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				.header(HttpHeaders.IF_NONE_MATCH, etag)
+			).andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(2))) // verify that json root element $ is size 2
+			;
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void updateEmployeeIfMatch() throws Exception {
+		log.info("updateEmployeeIfMatch");
+		
+		try {
+			String etag = mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+				).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+			
+			EmployeeVO employeeVO = new EmployeeVO("firstName", "lastNameStudent", "firstNameStudent@babinuk.com");
+			employeeVO.setId(1);
+			
+			// current version
+			mockMvc.perform(MockMvcRequestBuilders.put(ROOT + EMPLOYEES)
+					.header(HttpHeaders.IF_MATCH, "\"0\"")
+					.contentType(APPLICATION_JSON_UTF8)
+					.content(objectMApper.writeValueAsString(employeeVO)) // generate json from java object
+				).andDo(MockMvcResultHandlers.print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.message", is(getMessage(EmployeeServiceImpl.SAVE_SUCCESS)))) // verify json element
+				;
+			
+			mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES + "/{id}", 1)
+					.header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+				).andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+				.andExpect(jsonPath("$.firstName", is("firstName"))) // verify json element
+				;
+			
+			// collection has changed
+			mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES)
+					.header(HttpHeaders.IF_NONE_MATCH, etag)
+				).andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1))) // verify that json root element $ is size 1
+				;
+			
+			// stale version
+			employeeVO.setFirstName("firstNameStale");
+			
+			mockMvc.perform(MockMvcRequestBuilders.put(ROOT + EMPLOYEES)
+					.header(HttpHeaders.IF_MATCH, "\"0\"")
+					.contentType(APPLICATION_JSON_UTF8)
+					.content(objectMApper.writeValueAsString(employeeVO)) // generate json from java object
+				).andDo(MockMvcResultHandlers.print())
+				.andExpect(status().isPreconditionFailed())
+				.andExpect(jsonPath("$.message", is(String.format(getMessage("error_code_employee_version_mismatch"), 1)))) // verify json element
+				;
+			
+			assertEquals("firstName", jdbc.queryForObject("SELECT first_name FROM employee WHERE id = 1", String.class));
+		} finally {
+			cacheManager.getCache(CacheConfig.EMPLOYEES).clear();
+			cacheManager.getCache(CacheConfig.EMPLOYEE_EMAILS).clear();
+		}
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void patchEmployee() throws Exception {
+		log.info("patchEmployee");
+		
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		
+		try {
+			// email is not touched: one select, one update (last_name only), no email lookup
+			statistics.clear();
+			
+			mockMvc.perform(MockMvcRequestBuilders.patch(ROOT + EMPLOYEES + "/{id}", 1)
+					.contentType(EmployeeController.MERGE_PATCH_JSON)
+					.content("{\"lastName\": \"lastNamePatched\"}")
+				).andDo(MockMvcResultHandlers.print())
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.message", is(getMessage(EmployeeServiceImpl.SAVE_SUCCESS)))) // verify json element
+				;
+			
+			// assert
+			assertEquals(2, statistics.getPrepareStatementCount(), "patch statements not 2");
+			assertEquals(1, statistics.getEntityUpdateCount(), "entity update count not 1");
+			assertEquals("lastNamePatched", jdbc.queryForObject("SELECT last_name FROM employee WHERE id = 1", String.class));
+			assertEquals("firstNameStudent", jdbc.queryForObject("SELECT first_name FROM employee WHERE id = 1", String.class));
+			assertEquals("firstNameStudent@babinuk.com", jdbc.queryForObject("SELECT email FROM employee WHERE id = 1", String.class));
+		} finally {
+			cacheManager.getCache(CacheConfig.EMPLOYEES).clear();
+			cacheManager.getCache(CacheConfig.EMPLOYEE_EMAILS).clear();
+		}
+	}
+	
+	@Test
+	void patchEmployeeInvalid() throws Exception {
+		log.info("patchEmployeeInvalid");
+		
+		// touched field is validated
+		mockMvc.perform(MockMvcRequestBuilders.patch(ROOT + EMPLOYEES + "/{id}", 1)
+				.contentType(EmployeeController.MERGE_PATCH_JSON)
+				.content("{\"firstName\": null, \"email\": \"email@email.com\"}")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.errors", hasSize(1))) // verify json element
+			.andExpect(jsonPath("$.errors", hasItem(getMessage(ValidatorCodes.ERROR_CODE_FIRST_NAME_EMPTY.getMessage())))) // verify json element
+			;
+		
+		// not an object
+		mockMvc.perform(MockMvcRequestBuilders.patch(ROOT + EMPLOYEES + "/{id}", 1)
+				.contentType(EmployeeController.MERGE_PATCH_JSON)
+				.content("[]")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.message", is(getMessage("error_code_patch_invalid")))) // verify json element
+			;
+		
+		// get employee with id=2 (non existing)
+		mockMvc.perform(MockMvcRequestBuilders.patch(ROOT + EMPLOYEES + "/{id}", 2)
+				.contentType(EmployeeController.MERGE_PATCH_JSON)
+				.content("{\"lastName\": \"lastName\"}")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.message", is(String.format(getMessage("error_code_employee_id_not_found"), 2)))) // verify json element
+			;
+	}
 //	
 //	private void updateStudentFail(String validationRole) throws Exception {
 //		log.info("updateStudentFail {}", validationRole);
@@ -329,6 +910,141 @@ public class EmployeeControllerTest {
 			;
 	}
 	
+	@Test
+	void correlationId() throws Exception {
+		log.info("correlationId");
+		
+		// passed through
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES + "/{id}", 1)
+				.header(CorrelationIdFilter.HEADER, "client-42")
+			).andExpect(status().isOk())
+			.andExpect(header().string(CorrelationIdFilter.HEADER, "client-42"))
+			;
+		
+		// malformed id is replaced
+		String correlationId = mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES + "/{id}", 1)
+				.header(CorrelationIdFilter.HEADER, "bad\nid")
+			).andExpect(status().isOk())
+			.andReturn().getResponse().getHeader(CorrelationIdFilter.HEADER);
+		
+		assertNotNull(correlationId, "correlationId null");
+		assertTrue(correlationId.matches("[0-9a-f]{1,16}"), "correlationId NOK " + correlationId);
+	}
+	
+	@Test
+	void bulkhead() throws Exception {
+		log.info("bulkhead");
+		
+		// one permit, held by the outer request while the inner one arrives
+		DatabaseBulkhead bulkhead = new DatabaseBulkhead(1, false, Duration.ofMillis(10), messageCatalog, objectMApper, meterRegistry);
+		MockHttpServletResponse rejected = new MockHttpServletResponse();
+		MockHttpServletResponse passed = new MockHttpServletResponse();
+		
+		bulkhead.doFilter(new MockHttpServletRequest("GET", ROOT + EMPLOYEES), passed,
+			(req, res) -> bulkhead.doFilter(new MockHttpServletRequest("GET", ROOT + EMPLOYEES), rejected, new MockFilterChain()));
+		
+		assertEquals(HttpStatus.OK.value(), passed.getStatus(), "passed status NOK");
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), rejected.getStatus(), "rejected status NOK");
+		assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER), "Retry-After NOK");
+		assertTrue(rejected.getContentAsString().contains(getMessage("error_code_service_busy")), "rejected message NOK");
+		
+		// permit released, actuator is never limited
+		MockFilterChain chain = new MockFilterChain();
+		bulkhead.doFilter(new MockHttpServletRequest("GET", ROOT + EMPLOYEES), new MockHttpServletResponse(), chain);
+		assertNotNull(chain.getRequest(), "request not passed");
+		
+		chain = new MockFilterChain();
+		bulkhead.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), new MockHttpServletResponse(), chain);
+		assertNotNull(chain.getRequest(), "actuator request not passed");
+		
+		// async request (export) holds the permit until it completes, not until the request thread returns
+		MockHttpServletRequest async = new MockHttpServletRequest("GET", ROOT + EMPLOYEES + "/export");
+		async.setAsyncSupported(true);
+		bulkhead.doFilter(async, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+		
+		MockHttpServletResponse busy = new MockHttpServletResponse();
+		bulkhead.doFilter(new MockHttpServletRequest("GET", ROOT + EMPLOYEES), busy, new MockFilterChain());
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), busy.getStatus(), "permit of the running async request released");
+		
+		async.getAsyncContext().complete();
+		
+		chain = new MockFilterChain();
+		bulkhead.doFilter(new MockHttpServletRequest("GET", ROOT + EMPLOYEES), new MockHttpServletResponse(), chain);
+		assertNotNull(chain.getRequest(), "permit of the completed async request not released");
+		
+		// parallel validation: a request holds its own and a lookup connection, a pool below that is refused
+		assertEquals(5, new DatabaseBulkhead(10, true, Duration.ofMillis(10), messageCatalog, objectMApper, meterRegistry).getPermits(), "permits NOK");
+		assertThrows(IllegalStateException.class, () -> new DatabaseBulkhead(1, true, Duration.ofMillis(10), messageCatalog, objectMApper, meterRegistry));
+	}
+	
+	@Test
+	void logSamplingAsync() throws Exception {
+		log.info("logSamplingAsync");
+		
+		// export is sampled (test profile), the request thread returns before the body is written
+		MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES + "/export"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		
+		// assert not left on the request thread (next request of the pool thread)
+		assertFalse(LogSampling.isSampled(), "sampled after async start");
+		
+		mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+			.andExpect(status().isOk())
+			;
+		
+		// assert cleared after the async dispatch
+		assertFalse(LogSampling.isSampled(), "sampled after async dispatch");
+	}
+	
+	@Test
+	void metrics() throws Exception {
+		log.info("metrics");
+		
+		double failed = meterRegistry.counter(ValidatorImpl.ERRORS_METRIC, "code", "error_code_email_already_exist").count();
+		
+		// get employee with id=1 (service and repository calls)
+		mockMvc.perform(MockMvcRequestBuilders.get(ROOT + EMPLOYEES + "/{id}", 1)
+			).andExpect(status().isOk())
+			;
+		
+		// add employee with existing email (business rule)
+		mockMvc.perform(MockMvcRequestBuilders.post(ROOT + EMPLOYEES)
+				.contentType(APPLICATION_JSON_UTF8)
+				.content(objectMApper.writeValueAsString(new EmployeeVO("firstName", "lastName", "firstNameStudent@babinuk.com")))
+			).andDo(MockMvcResultHandlers.print())
+			;
+		
+		assertNotNull(meterRegistry.find(MetricsAspect.VALIDATOR).tag("method", "validate").timer(), "validator timer null");
+		assertNotNull(meterRegistry.find(MetricsAspect.SERVICE).tag("method", "findById").timer(), "service timer null");
+		assertNotNull(meterRegistry.find(MetricsAspect.REPOSITORY).timer(), "repository timer null");
+		assertEquals(failed + 1, meterRegistry.counter(ValidatorImpl.ERRORS_METRIC, "code", "error_code_email_already_exist").count());
+		
+		// scrape endpoint with percentile histogram buckets
+		mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus")
+			).andExpect(status().isOk())
+			.andExpect(content().string(containsString("employee_service_seconds_bucket{")))
+			.andExpect(content().string(containsString("employee_validation_errors_total{")))
+			.andExpect(content().string(containsString("http_server_requests_seconds_bucket{")))
+			.andExpect(content().string(containsString("hikaricp_connections")))
+			.andExpect(content().string(containsString("hibernate_second_level_cache_requests_total{")))
+			;
+	}
+	
+	@Test
+	void readinessProbe() throws Exception {
+		log.info("readinessProbe");
+		
+		// ready (warm-up disabled in the test profile), the warm-up is part of the readiness group
+		mockMvc.perform(MockMvcRequestBuilders.get("/actuator/health/readiness")
+			).andDo(MockMvcResultHandlers.print())
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.status", is("UP")))
+			.andExpect(jsonPath("$.components.readinessState.status", is("UP")))
+			.andExpect(jsonPath("$.components.employeeWarmUp.status", is("UP")))
+			;
+	}
+	
 	private String getMessage(String str) {
 		return messageSource.getMessage(str, new Object[] {}, LocaleContextHolder.getLocale());
 	}
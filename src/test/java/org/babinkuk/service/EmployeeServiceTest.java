@@ -1,25 +1,64 @@
 package org.babinkuk.service;
 
+import javax.persistence.EntityManagerFactory;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.babinkuk.common.ExportFormat;
+import org.babinkuk.common.MessageTemplate;
+import org.babinkuk.common.NgramIndex;
+import org.babinkuk.config.CacheConfig;
+import org.babinkuk.config.MessageCatalog;
+import org.babinkuk.config.MetricsAspect;
+import org.babinkuk.dao.EmployeeRepository;
 import org.babinkuk.exception.ObjectNotFoundException;
+import org.babinkuk.mapper.EmployeeMapper;
+import org.babinkuk.validator.ActionType;
+import org.babinkuk.validator.ValidatorCodes;
+import org.babinkuk.validator.ValidatorHelper;
 import org.babinkuk.vo.EmployeeVO;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.MessageSource;
+import org.springframework.context.NoSuchMessageException;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -31,12 +70,48 @@ public class EmployeeServiceTest {
 	@Autowired
 	private JdbcTemplate jdbc;
 	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
 	@Autowired
 	private MessageSource messageSource;
 	
 	@Autowired
 	private EmployeeService employeeService;
 	
+	@Autowired
+	private EmployeeServiceImpl employeeServiceImpl;
+	
+	@Autowired
+	private EmployeeRepository employeeRepository;
+	
+	@Autowired
+	private EmployeeMapper employeeMapper;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private CacheManager cacheManager;
+	
+	@Autowired
+	private EmployeeEmailIndex employeeEmailIndex;
+	
+	@Autowired
+	private EmployeeSearchIndex employeeSearchIndex;
+	
+	@Autowired
+	private MessageCatalog messageCatalog;
+	
+	@Autowired
+	private EmployeeWarmUp employeeWarmUp;
+	
+	@Autowired
+	private ApplicationAvailability applicationAvailability;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
 	@Value("${sql.script.employee.insert}")
 	private String sqlAddEmployee;
 	
@@ -53,6 +128,8 @@ public class EmployeeServiceTest {
 	public void setupAfterTransaction() {
 		log.info("AfterEach");
 		jdbc.execute(sqlDeleteEmployee);
+		// rows are changed with plain sql, the second-level cache would still have them
+		entityManagerFactory.getCache().evictAll();
 	}
 	
 	@Test
@@ -157,6 +234,30 @@ public class EmployeeServiceTest {
 		assertEquals(email, employeeVO2.getEmail(),"employeeVO.getEmailAddress() NOK");
 	}
 	
+	@Test
+	void saveEmployees() {
+		log.info("saveEmployees");
+		
+		EmployeeVO updateVO = employeeService.findById(1);
+		updateVO.setFirstName("firstNameBatch");
+		
+		// not existing id is inserted
+		EmployeeVO notExistingVO = new EmployeeVO("firstName", "lastName", "batch@email.hr");
+		notExistingVO.setId(999);
+		
+		List<EmployeeVO> saved = employeeService.saveAll(Arrays.asList(updateVO, notExistingVO));
+		
+		// assert
+		assertEquals(2, saved.size(), "saved size NOK");
+		assertEquals(1, saved.get(0).getId());
+		assertEquals("firstNameBatch", saved.get(0).getFirstName(), "saved.get(0).getFirstName() NOK");
+		assertTrue(saved.get(1).getId() >= 1000, "generated id NOK");
+		assertEquals("batch@email.hr", saved.get(1).getEmail(), "saved.get(1).getEmail() NOK");
+		
+		// request objects are not changed
+		assertEquals(999, notExistingVO.getId(), "request id changed");
+	}
+	
 	@Test
 	void deleteEmployee() {
 		log.info("deleteEmployee");
@@ -224,6 +325,386 @@ public class EmployeeServiceTest {
 		}
 	}
 	
+	@Test
+	void getEmployeesPage() {
+		log.info("getEmployeesPage");
+		
+		// create student
+		EmployeeVO employeeVO = new EmployeeVO("firstName", "lastName", "emailAddress");
+		employeeVO.setId(0);
+		
+		employeeService.save(employeeVO);
+		
+		// first page
+		Iterable<EmployeeVO> students = employeeService.getEmployees(0, 1);
+		
+		// assert
+		if (students instanceof Collection<?>) {
+			assertEquals(1, ((Collection<?>) students).size(), "students page size not 1");
+		}
+		EmployeeVO first = students.iterator().next();
+		assertEquals(1, first.getId());
+		
+		// second page
+		students = employeeService.getEmployees(first.getId(), 1);
+		
+		// assert
+		EmployeeVO second = students.iterator().next();
+		assertEquals("emailAddress", second.getEmail(), "second page NOK");
+		
+		// after last page
+		students = employeeService.getEmployees(second.getId(), 1);
+		
+		// assert
+		assertFalse(students.iterator().hasNext(), "page after last not empty");
+		
+		// estimate covers the id range
+		assertTrue(employeeService.estimateEmployeeCount() >= 2, "estimate less than 2");
+	}
+	
+	@Test
+	void exportEmployees() throws IOException {
+		log.info("exportEmployees");
+		
+		// create student
+		EmployeeVO employeeVO = new EmployeeVO("firstName", "lastName", "emailAddress");
+		employeeVO.setId(0);
+		
+		employeeService.save(employeeVO);
+		
+		// ndjson: one object per line
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		employeeService.exportEmployees(outputStream, ExportFormat.NDJSON);
+		
+		String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\n");
+		
+		// assert
+		assertEquals(2, lines.length, "ndjson lines not 2");
+		assertEquals("firstNameStudent", objectMapper.readValue(lines[0], EmployeeVO.class).getFirstName(), "first line NOK");
+		assertEquals("emailAddress", objectMapper.readValue(lines[1], EmployeeVO.class).getEmail(), "second line NOK");
+		
+		// json array
+		outputStream = new ByteArrayOutputStream();
+		employeeService.exportEmployees(outputStream, ExportFormat.JSON);
+		
+		EmployeeVO[] employees = objectMapper.readValue(outputStream.toByteArray(), EmployeeVO[].class);
+		
+		// assert
+		assertEquals(2, employees.length, "json array size not 2");
+		assertEquals(1, employees[0].getId());
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void cachedEmployee() {
+		log.info("cachedEmployee");
+		
+		// outside of transaction reads go through the cache
+		CacheStats before = cacheStats(CacheConfig.EMPLOYEES);
+		
+		try {
+			EmployeeVO employeeVO = employeeService.findById(1);
+			employeeService.findById(1);
+			
+			// assert second read is a hit
+			CacheStats after = cacheStats(CacheConfig.EMPLOYEES);
+			assertEquals(1, after.missCount() - before.missCount(), "employees miss count not 1");
+			assertEquals(1, after.hitCount() - before.hitCount(), "employees hit count not 1");
+			
+			// cached entry is not changed by the caller
+			employeeVO.setFirstName("ime");
+			assertEquals("firstNameStudent", employeeService.findById(1).getFirstName(), "cached employee changed");
+			
+			// email lookups (also negative)
+			assertEquals(1, employeeService.findByEmail("firstNameStudent@babinuk.com").getId());
+			assertNull(employeeService.findByEmail("email"), "not existing email not null");
+			
+			// missing email is not cached, row written by another instance (plain sql) is found
+			assertNull(employeeService.findByEmail("other@babinuk.com"), "not existing email not null");
+			jdbc.execute("INSERT INTO employee(id,first_name,last_name,email) values(2,'firstName','lastName','other@babinuk.com')");
+			assertEquals(2, employeeService.findByEmail("other@babinuk.com").getId());
+			
+			// update is evicted after commit
+			employeeVO.setEmail("email");
+			employeeService.save(employeeVO);
+			
+			EmployeeVO employeeVO2 = employeeService.findById(1);
+			
+			// assert
+			assertEquals("ime", employeeVO2.getFirstName(), "employeeVO.getFirstName() NOK");
+			assertEquals("email", employeeVO2.getEmail(), "employeeVO.getEmailAddress() NOK");
+			assertEquals(1, employeeService.findByEmail("email").getId());
+			assertNull(employeeService.findByEmail("firstNameStudent@babinuk.com"), "previous email not null");
+			
+			// delete is evicted after commit
+			employeeService.delete(1);
+			
+			assertThrows(ObjectNotFoundException.class, () -> {
+				employeeService.findById(1);
+			});
+			assertNull(employeeService.findByEmail("email"), "deleted email not null");
+		} finally {
+			cacheManager.getCache(CacheConfig.EMPLOYEES).clear();
+			cacheManager.getCache(CacheConfig.EMPLOYEE_EMAILS).clear();
+		}
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void cachedEmployeeStaleRead() {
+		log.info("cachedEmployeeStaleRead");
+		
+		EmployeeVO stale = employeeServiceImpl.findById(1);
+		ConcurrentMapCacheManager staleCacheManager = new ConcurrentMapCacheManager(CacheConfig.EMPLOYEES, CacheConfig.EMPLOYEE_EMAILS);
+		CachingEmployeeService[] caching = new CachingEmployeeService[1];
+		
+		// another transaction commits (and evicts) while the row is read
+		EmployeeServiceImpl racingService = new EmployeeServiceImpl() {
+			@Override
+			public EmployeeVO findById(int id) {
+				caching[0].onEmployeeChanged(new EmployeeChangedEvent(stale, null, false));
+				return stale;
+			}
+			
+			@Override
+			public EmployeeVO findByEmail(String email) {
+				caching[0].onEmployeeChanged(new EmployeeChangedEvent(stale, null, false));
+				return stale;
+			}
+		};
+		caching[0] = new CachingEmployeeService(racingService, employeeMapper, staleCacheManager);
+		
+		assertEquals(1, caching[0].findById(1).getId());
+		assertEquals(1, caching[0].findByEmail(stale.getEmail()).getId());
+		
+		// assert value read before the eviction is not cached
+		assertNull(staleCacheManager.getCache(CacheConfig.EMPLOYEES).get(1), "stale employee cached");
+		assertNull(staleCacheManager.getCache(CacheConfig.EMPLOYEE_EMAILS).get(stale.getEmail()), "stale email cached");
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void secondLevelCache() {
+		log.info("secondLevelCache");
+		
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		
+		// first entity load (write paths, once per request by EmployeeUnitOfWork) reads the row
+		assertEquals("firstNameStudent", employeeRepository.findById(1).get().getFirstName());
+		
+		// load of a later request: entity from the second-level cache
+		statistics.clear();
+		
+		EmployeeVO employeeVO = employeeMapper.toVODetails(employeeRepository.findById(1).get());
+		
+		// assert
+		assertEquals(0, statistics.getPrepareStatementCount(), "cached load statements not 0");
+		assertEquals(1, statistics.getSecondLevelCacheHitCount(), "second-level cache hits not 1");
+		assertEquals("firstNameStudent", employeeVO.getFirstName(), "employeeVO.getFirstName() NOK");
+		
+		// read paths stay projections (no entity, not in the second-level cache)
+		statistics.clear();
+		
+		EmployeeVO employeeVO2 = employeeServiceImpl.findById(1);
+		EmployeeVO employeeVO3 = employeeServiceImpl.findByEmail("firstNameStudent@babinuk.com");
+		
+		// assert
+		assertEquals(2, statistics.getPrepareStatementCount(), "projection statements not 2");
+		assertEquals(0, statistics.getSecondLevelCacheHitCount(), "projection second-level cache hits not 0");
+		assertEquals(employeeVO.getVersion(), employeeVO2.getVersion());
+		assertEquals(1, employeeVO3.getId());
+		
+		// changed, the cached entity follows the update
+		employeeVO.setFirstName("ime");
+		employeeVO.setEmail("email");
+		employeeService.save(employeeVO);
+		
+		statistics.clear();
+		
+		employeeVO = employeeMapper.toVODetails(employeeRepository.findById(1).get());
+		
+		// assert
+		assertEquals(0, statistics.getPrepareStatementCount(), "cached load after update statements not 0");
+		assertEquals("ime", employeeVO.getFirstName(), "employeeVO.getFirstName() NOK");
+		assertEquals("email", employeeVO.getEmail(), "employeeVO.getEmailAddress() NOK");
+		assertEquals(1, employeeServiceImpl.findByEmail("email").getId());
+		assertNull(employeeServiceImpl.findByEmail("firstNameStudent@babinuk.com"), "previous email not null");
+		
+		// unique constraint behind the validation
+		assertThrows(DataIntegrityViolationException.class, () -> {
+			jdbc.execute("INSERT INTO employee(id,first_name,last_name,email) values(2,'firstName','lastName','email')");
+		});
+		
+		// deleted, no longer cached
+		employeeService.delete(1);
+		
+		assertFalse(employeeRepository.findById(1).isPresent(), "deleted employee loaded");
+		assertNull(employeeServiceImpl.findByEmail("email"), "deleted email not null");
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void emailIndex() {
+		log.info("emailIndex");
+		
+		// row inserted with plain sql is visible after rebuild
+		assertEquals(1, employeeEmailIndex.rebuild(), "email filter size not 1");
+		
+		// assert
+		assertTrue(employeeEmailIndex.mightExist("firstNameStudent@babinuk.com"), "existing email not in filter");
+		assertTrue(employeeEmailIndex.mightExist("FIRSTNAMESTUDENT@babinuk.com "), "existing email (case) not in filter");
+		assertFalse(employeeEmailIndex.mightExist("emailAddress"), "new email in filter");
+		
+		// saved email is added
+		EmployeeVO employeeVO = new EmployeeVO("firstName", "lastName", "emailAddress");
+		employeeVO.setId(0);
+		
+		employeeService.save(employeeVO);
+		
+		// assert
+		assertTrue(employeeEmailIndex.mightExist("emailAddress"), "saved email not in filter");
+		
+		// rebuild drops deleted emails
+		jdbc.execute(sqlDeleteEmployee);
+		employeeEmailIndex.rebuild();
+		
+		// assert
+		assertFalse(employeeEmailIndex.mightExist("emailAddress"), "deleted email in filter after rebuild");
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void searchIndex() {
+		log.info("searchIndex");
+		
+		// row inserted with plain sql is visible after rebuild
+		assertEquals(1, employeeSearchIndex.rebuild(), "search index size not 1");
+		
+		// prefix, typo and email domain
+		for (String query : Arrays.asList("firstNameStu", "lastNameStudnet", "babinuk", "FIRSTNAME student")) {
+			List<EmployeeVO> found = toList(employeeService.searchEmployees(query, 10));
+			assertEquals(1, found.size(), query + " size NOK");
+			assertEquals(1, found.get(0).getId(), query + " id NOK");
+		}
+		assertTrue(toList(employeeService.searchEmployees("xyz", 10)).isEmpty(), "xyz found");
+		
+		// saved employee is added after commit, best match first
+		EmployeeVO employeeVO = new EmployeeVO("Ana", "Zec", "ana.zec@babinkuk.com");
+		employeeService.save(employeeVO);
+		employeeService.save(new EmployeeVO("Anamarija", "Zekic", "anamarija@babinkuk.com"));
+		
+		List<EmployeeVO> found = toList(employeeService.searchEmployees("ana ze", 10));
+		
+		// assert
+		assertEquals(2, found.size(), "ana ze size NOK");
+		assertEquals("Zec", found.get(0).getLastName(), "ana ze best match NOK");
+		
+		// results are copies
+		found.get(0).setLastName("changed");
+		assertEquals("Zec", toList(employeeService.searchEmployees("ana zec", 1)).get(0).getLastName(), "indexed employee changed");
+		
+		// deleted employee is removed after commit
+		employeeService.delete(found.get(0).getId());
+		
+		// assert
+		found = toList(employeeService.searchEmployees("ana ze", 10));
+		assertEquals(1, found.size(), "ana ze size after delete NOK");
+		assertEquals("Zekic", found.get(0).getLastName(), "ana ze after delete NOK");
+		
+		// removed values are compacted
+		NgramIndex<Integer> index = new NgramIndex<Integer>();
+		for (int i = 0; i < 4000; i++) {
+			index.put(i, i, "name" + i);
+		}
+		for (int i = 0; i < 3000; i++) {
+			index.remove(i);
+		}
+		
+		// assert
+		assertEquals(1000, index.size(), "index size NOK");
+		assertEquals(Arrays.asList(3999), index.search("name3999 ", 1, 1), "name3999 NOK");
+		assertTrue(index.search("name1", 10, 1).isEmpty(), "removed value found");
+		assertTrue(index.getPostingCount() < 4000 * 5, "postings not compacted");
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void warmUp() {
+		log.info("warmUp");
+		
+		// as on the ready event (outside of a transaction, after the index builds)
+		employeeEmailIndex.rebuild();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		long timed = timerCount(MetricsAspect.VALIDATOR) + timerCount(MetricsAspect.RULE) + timerCount(MetricsAspect.SERVICE);
+		long validations = timerCount(ValidatorHelper.METRIC_NAME);
+		
+		Map<String, Object> result = employeeWarmUp.run(500, Duration.ofSeconds(30));
+		
+		// assert
+		assertEquals(500, result.get("iterations"), "iterations NOK");
+		assertEquals(0, statistics.getPrepareStatementCount(), "warm-up statements not 0");
+		assertEquals(timed, timerCount(MetricsAspect.VALIDATOR) + timerCount(MetricsAspect.RULE) + timerCount(MetricsAspect.SERVICE), "warm-up timed");
+		assertEquals(validations, timerCount(ValidatorHelper.METRIC_NAME), "warm-up validations timed");
+		assertFalse(EmployeeWarmUp.isWarmingUp(), "warming up after run");
+		assertEquals(false, result.get("timedOut"), "timedOut NOK");
+		assertEquals(Status.UP, employeeWarmUp.health().getStatus(), "health NOK");
+		assertEquals(result, employeeWarmUp.health().getDetails(), "health details NOK");
+		assertEquals(ReadinessState.ACCEPTING_TRAFFIC, applicationAvailability.getReadinessState(), "readiness NOK");
+		
+		// synthetic employees are not saved
+		assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM employee", Integer.class), "employee rows NOK");
+		assertNull(employeeService.findByEmail("warmup1.ivan@warmup.invalid"), "warm-up employee found");
+		
+		// timeout ends it early
+		result = employeeWarmUp.run(Integer.MAX_VALUE, Duration.ofMillis(200));
+		
+		// assert
+		assertEquals(true, result.get("timedOut"), "timedOut after timeout NOK");
+		assertEquals(Status.UP, employeeWarmUp.health().getStatus(), "health after timeout NOK");
+	}
+	
+	// samples of all timers with this name
+	private long timerCount(String name) {
+		return meterRegistry.find(name).timers().stream().mapToLong(Timer::count).sum();
+	}
+	
+	private static <T> List<T> toList(Iterable<T> iterable) {
+		List<T> list = new ArrayList<T>();
+		iterable.forEach(list::add);
+		return list;
+	}
+	
+	@Test
+	void messageCatalog() {
+		log.info("messageCatalog");
+		
+		// same messages as the MessageSource
+		for (ValidatorCodes code : Arrays.asList(ValidatorCodes.ERROR_CODE_FIRST_NAME_EMPTY, ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST, ValidatorCodes.ERROR_CODE_EMPLOYEE_INVALID)) {
+			assertEquals(getMessage(code.getMessage()), messageCatalog.get(code), code + " NOK");
+		}
+		assertEquals(getMessage(EmployeeServiceImpl.SAVE_SUCCESS), messageCatalog.get(EmployeeServiceImpl.SAVE_SUCCESS));
+		
+		// templates format like String.format
+		assertEquals(String.format(getMessage("error_code_employee_id_not_found"), 2), messageCatalog.format("error_code_employee_id_not_found", 2));
+		assertEquals(String.format(getMessage("validation_failed"), ActionType.CREATE), messageCatalog.format("validation_failed", ActionType.CREATE));
+		assertEquals(String.format("%d of %s", 1, "x"), new MessageTemplate("%d of %s").format(1, "x"));
+		assertEquals(String.format("100%% %s", "x"), new MessageTemplate("100%% %s").format("x"));
+		
+		// reload resolves again
+		messageCatalog.reload();
+		assertEquals(getMessage(ValidatorCodes.ERROR_CODE_EMAIL_EMPTY.getMessage()), messageCatalog.get(ValidatorCodes.ERROR_CODE_EMAIL_EMPTY));
+		
+		// unknown key fails as before
+		assertThrows(NoSuchMessageException.class, () -> {
+			messageCatalog.get("unknown_key");
+		});
+	}
+	
+	private CacheStats cacheStats(String name) {
+		return ((CaffeineCache) cacheManager.getCache(name)).getNativeCache().stats();
+	}
+	
 	private String getMessage(String str) {
 		return messageSource.getMessage(str, new Object[] {}, LocaleContextHolder.getLocale());
 	}
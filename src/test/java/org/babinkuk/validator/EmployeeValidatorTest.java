@@ -1,10 +1,24 @@
 package org.babinkuk.validator;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.babinkuk.config.CacheConfig;
+import org.babinkuk.config.CorrelationIdFilter;
+import org.babinkuk.exception.ObjectNotFoundException;
+import org.babinkuk.exception.ObjectValidationException;
+import org.babinkuk.service.EmployeeEmailIndex;
 import org.babinkuk.service.EmployeeService;
 import org.babinkuk.vo.EmployeeVO;
 import org.junit.jupiter.api.AfterEach;
@@ -15,6 +29,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.http.MediaType;
@@ -24,6 +39,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -66,6 +82,18 @@ public class EmployeeValidatorTest {
 	
 	@Autowired
 	private EmployeeService employeeService;
+	
+	@Autowired
+	private BusinessValidator businessValidator;
+	
+	@Autowired
+	private ValidatorFactory validatorFactory;
+	
+	@Autowired
+	private EmployeeEmailIndex employeeEmailIndex;
+	
+	@Autowired
+	private CacheManager cacheManager;
 		
 	@Value("${sql.script.employee.insert}")
 	private String sqlAddEmployee;
@@ -93,6 +121,8 @@ public class EmployeeValidatorTest {
 	public void setupAfterTransaction() {
 		log.info("AfterEach");
 		jdbc.execute(sqlDeleteEmployee);
+		// rows are changed with plain sql, the second-level cache would still have them
+		entityManager.getEntityManagerFactory().getCache().evictAll();
 	}
 	
 	@Test
@@ -367,6 +397,171 @@ public class EmployeeValidatorTest {
 			;
 	}
 	
+	@Test
+	void validationPlan() {
+		log.info("validationPlan");
+		
+		// syntactic checks first, db checks last
+		assertEquals(Arrays.asList(ValidationStep.FIRST_NAME, ValidationStep.LAST_NAME, ValidationStep.EMAIL_FORMAT, ValidationStep.EMAIL_UNIQUE),
+			ValidationPlan.of(ActionType.CREATE, ValidatorType.EMPLOYEE).getSteps(), "create plan NOK");
+		assertEquals(Arrays.asList(ValidationStep.FIRST_NAME, ValidationStep.LAST_NAME, ValidationStep.EMAIL_FORMAT, ValidationStep.OBJECT_EXISTS, ValidationStep.EMAIL_UNIQUE),
+			ValidationPlan.of(ActionType.UPDATE, ValidatorType.EMPLOYEE).getSteps(), "update plan NOK");
+		
+		// plans are cached
+		assertSame(ValidationPlan.of(ActionType.UPDATE, ValidatorType.EMPLOYEE), ValidationPlan.of(ActionType.UPDATE, ValidatorType.EMPLOYEE));
+		
+		// email uniqueness is not checked for an invalid email
+		ValidationResult result = new ValidationResult();
+		ValidationPlan.of(ActionType.CREATE, ValidatorType.EMPLOYEE).execute(businessValidator, new EmployeeVO("firstName", "lastName", ""), result);
+		
+		// assert
+		assertEquals(1, result.size(), "errors size not 1");
+		assertEquals(ValidatorCodes.ERROR_CODE_EMAIL_EMPTY, result.get(0));
+		
+		// stored object is not looked up for id 0
+		Exception exception = assertThrows(ObjectNotFoundException.class, () -> {
+			ValidationPlan.of(ActionType.UPDATE, ValidatorType.EMPLOYEE).execute(businessValidator, new EmployeeVO("firstName", "lastName", "email@email.com"), new ValidationResult());
+		});
+		
+		assertEquals(String.format(getMessage("error_code_employee_id_not_found"), 0), exception.getMessage());
+	}
+	
+	@Test
+	void validationPlanFields() {
+		log.info("validationPlanFields");
+		
+		// untouched fields are not validated, stored object is always looked up
+		assertEquals(Arrays.asList(ValidationStep.LAST_NAME, ValidationStep.OBJECT_EXISTS),
+			ValidationPlan.of(ActionType.PATCH, ValidatorType.EMPLOYEE).restrictTo(Collections.singleton("lastName")).getSteps(), "lastName plan NOK");
+		assertEquals(Arrays.asList(ValidationStep.EMAIL_FORMAT, ValidationStep.OBJECT_EXISTS, ValidationStep.EMAIL_UNIQUE),
+			ValidationPlan.of(ActionType.PATCH, ValidatorType.EMPLOYEE).restrictTo(Collections.singleton("email")).getSteps(), "email plan NOK");
+		assertEquals(Arrays.asList(ValidationStep.OBJECT_EXISTS),
+			ValidationPlan.of(ActionType.PATCH, ValidatorType.EMPLOYEE).restrictTo(Collections.emptySet()).getSteps(), "empty plan NOK");
+	}
+	
+	@Test
+	void validationResult() {
+		log.info("validationResult");
+		
+		// valid input, no exception
+		EmployeeVO employeeVO = new EmployeeVO("firstName", "lastName", "email@email.com");
+		assertSame(employeeVO, validatorFactory.getValidator().validate(employeeVO, ActionType.CREATE, ValidatorType.EMPLOYEE));
+		
+		// invalid input, exception without stack trace
+		ObjectValidationException exception = assertThrows(ObjectValidationException.class, () -> {
+			validatorFactory.getValidator().validate(new EmployeeVO("", "", "this is invalid email"), ActionType.CREATE, ValidatorType.EMPLOYEE);
+		});
+		
+		// assert
+		assertEquals(0, exception.getStackTrace().length, "stack trace not empty");
+		assertEquals(String.format(getMessage(VALIDATION_FAILED), ActionType.CREATE), exception.getMessage());
+		assertEquals(Arrays.asList(
+				getMessage(ValidatorCodes.ERROR_CODE_FIRST_NAME_EMPTY.getMessage()),
+				getMessage(ValidatorCodes.ERROR_CODE_LAST_NAME_EMPTY.getMessage()),
+				getMessage(ValidatorCodes.ERROR_CODE_EMAIL_INVALID.getMessage())),
+			exception.getValidationErrors());
+		
+		// result of the thread is reused
+		ValidationResult result = ValidationResult.current();
+		result.add(ValidatorCodes.ERROR_CODE_EMAIL_EMPTY);
+		assertSame(result, ValidationResult.current());
+		assertFalse(result.hasErrors(), "reused result not reset");
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void emailFilterMiss() {
+		log.info("emailFilterMiss");
+		
+		try {
+			// row written with plain sql after the filter was built (like another instance)
+			employeeEmailIndex.rebuild();
+			jdbc.execute("INSERT INTO employee(id,first_name,last_name,email) values(2,'firstName','lastName','email@email.com')");
+			
+			assertFalse(employeeEmailIndex.isSingleInstance(), "single instance by default");
+			assertFalse(employeeEmailIndex.mightExist("email@email.com"), "email in filter");
+			
+			// assert filter miss is confirmed in the database
+			EmployeeVO employeeVO = new EmployeeVO("firstName", "lastName", "email@email.com");
+			employeeVO.setId(1);
+			
+			assertEquals(ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST, businessValidator.checkEmailUnique(employeeVO));
+			assertEquals(Collections.singletonMap("email@email.com", 2), businessValidator.findExistingEmails(Collections.singleton("email@email.com")));
+		} finally {
+			cacheManager.getCache(CacheConfig.EMPLOYEES).clear();
+			cacheManager.getCache(CacheConfig.EMPLOYEE_EMAILS).clear();
+		}
+	}
+	
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void validationPlanParallel() throws Exception {
+		log.info("validationPlanParallel");
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		
+		try {
+			// second employee owns the email (committed, lookups run on other threads)
+			jdbc.execute("INSERT INTO employee(id,first_name,last_name,email) values(2,'firstName','lastName','email@email.com')");
+			employeeEmailIndex.rebuild();
+			
+			ValidationPlan plan = ValidationPlan.of(ActionType.UPDATE, ValidatorType.EMPLOYEE);
+			EmployeeVO employeeVO = new EmployeeVO("", "", "email@email.com");
+			employeeVO.setId(1);
+			
+			ValidationResult serial = new ValidationResult();
+			plan.execute(businessValidator, employeeVO, serial);
+			
+			ValidationResult parallel = new ValidationResult();
+			plan.execute(businessValidator, employeeVO, parallel, executor, 2000);
+			
+			// assert same errors in same order
+			assertEquals(3, parallel.size(), "errors size not 3");
+			assertEquals(serial.toString(), parallel.toString());
+			assertEquals(ValidatorCodes.ERROR_CODE_EMAIL_ALREADY_EXIST, parallel.get(2));
+			
+			// entity lookup on this thread (unit of work of the request), only the email lookup was submitted
+			assertEquals(1, ((ThreadPoolExecutor) executor).getTaskCount(), "submitted tasks NOK");
+			
+			// not found is rethrown
+			employeeVO.setId(3);
+			Exception exception = assertThrows(ObjectNotFoundException.class, () -> {
+				plan.execute(businessValidator, employeeVO, new ValidationResult(), executor, 2000);
+			});
+			
+			assertEquals(String.format(getMessage("error_code_employee_id_not_found"), 3), exception.getMessage());
+		} finally {
+			executor.shutdownNow();
+			cacheManager.getCache(CacheConfig.EMPLOYEES).clear();
+			cacheManager.getCache(CacheConfig.EMPLOYEE_EMAILS).clear();
+		}
+	}
+	
+	@Test
+	void validationPlanParallelContext() throws Exception {
+		log.info("validationPlanParallelContext");
+		
+		// one worker, the second task runs on the thread of the first
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		
+		try {
+			LocaleContextHolder.setLocale(Locale.GERMAN);
+			ThreadContext.put(CorrelationIdFilter.KEY, "validationPlanParallelContext");
+			
+			Callable<String> task = ValidationPlan.withContext(() -> LocaleContextHolder.getLocale() + " " + ThreadContext.get(CorrelationIdFilter.KEY));
+			
+			// assert worker sees the caller's locale and log context
+			assertEquals("de validationPlanParallelContext", executor.submit(task).get());
+			
+			// assert nothing is left on the worker
+			assertEquals("null true", executor.submit(() -> LocaleContextHolder.getLocaleContext() + " " + ThreadContext.isEmpty()).get());
+		} finally {
+			executor.shutdownNow();
+			LocaleContextHolder.resetLocaleContext();
+			ThreadContext.remove(CorrelationIdFilter.KEY);
+		}
+	}
+	
 	private String getMessage(String str) {
 		return messageSource.getMessage(str, new Object[] {}, LocaleContextHolder.getLocale());
 	}